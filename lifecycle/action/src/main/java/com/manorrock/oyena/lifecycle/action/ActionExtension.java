@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.action;
+
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.spi.AfterBeanDiscovery;
+import jakarta.enterprise.inject.spi.AnnotatedMethod;
+import jakarta.enterprise.inject.spi.Extension;
+import jakarta.enterprise.inject.spi.ProcessBean;
+import jakarta.enterprise.inject.spi.ProcessManagedBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The CDI extension that collects the action routes.
+ *
+ * <p>
+ *  Every method annotated with &#64;ActionMapping is collected once at
+ *  deployment time so matching a request never needs to scan the beans. The
+ *  action mapping matcher builds its route table from them.
+ * </p>
+ *
+ * <p>
+ *  It also registers the context for @ActionRequestScoped and gives every
+ *  bean in that scope its slot.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class ActionExtension implements Extension {
+
+    /**
+     * Stores the routes collected during bean discovery.
+     */
+    private final List<ActionRoute> collected = new ArrayList<>();
+
+    /**
+     * Stores the request context.
+     */
+    private final ActionRequestContext requestContext = new ActionRequestContext();
+
+    /**
+     * Stores the routes.
+     */
+    private List<ActionRoute> routes = List.of();
+
+    /**
+     * Constructor.
+     */
+    public ActionExtension() {
+        // nothing to do here.
+    }
+
+    /**
+     * Assign a slot to an @ActionRequestScoped bean.
+     *
+     * @param <T> the type of the bean.
+     * @param event the process bean event.
+     */
+    public <T> void processBean(@Observes ProcessBean<T> event) {
+        if (ActionRequestScoped.class.equals(event.getBean().getScope())) {
+            requestContext.getSlot(event.getBean());
+        }
+    }
+
+    /**
+     * Collect the action routes of a managed bean.
+     *
+     * @param <T> the type of the bean.
+     * @param event the process managed bean event.
+     */
+    public <T> void processManagedBean(@Observes ProcessManagedBean<T> event) {
+        for (AnnotatedMethod<? super T> method : event.getAnnotatedBeanClass().getMethods()) {
+            if (method.isAnnotationPresent(ActionMapping.class)) {
+                collected.add(new ActionRoute(event.getBean(), method.getJavaMember(),
+                        method.getAnnotation(ActionMapping.class).value()));
+            }
+        }
+    }
+
+    /**
+     * Freeze the collected routes.
+     *
+     * @param event the after bean discovery event.
+     */
+    public void afterBeanDiscovery(@Observes AfterBeanDiscovery event) {
+        routes = List.copyOf(collected);
+        collected.clear();
+        event.addContext(requestContext);
+    }
+
+    /**
+     * Get the request context.
+     *
+     * @return the request context.
+     */
+    ActionRequestContext getRequestContext() {
+        return requestContext;
+    }
+
+    /**
+     * Get the routes.
+     *
+     * @return the routes.
+     */
+    public List<ActionRoute> getRoutes() {
+        return routes;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.action;
+
+import com.manorrock.oyena.lifecycle.common.FanOut;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.faces.FacesException;
+import jakarta.inject.Inject;
+import jakarta.servlet.ServletContext;
+import java.time.Duration;
+
+/**
+ * The request bound fan-out for action methods.
+ *
+ * <p>
+ *  Inject it to run independent sub-tasks of an action method concurrently on
+ *  virtual threads. The FAN_OUT_TIMEOUT context parameter sets a deadline,
+ *  counting from the first use in the request, after which waiting for a task
+ *  cancels it. Tasks still running when the request ends are cancelled. The
+ *  action lifecycle reports the durations of the tasks in the Server-Timing
+ *  response header.
+ * </p>
+ *
+ * <p>
+ *  It is @ActionRequestScoped, not @RequestScoped, so it stays with the
+ *  request while an asynchronous action is suspended.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+@ActionRequestScoped
+public class ActionFanOut extends FanOut {
+
+    /**
+     * Stores the name of the context parameter with the timeout in
+     * milliseconds.
+     */
+    public static final String FAN_OUT_TIMEOUT = "com.manorrock.oyena.lifecycle.action.FAN_OUT_TIMEOUT";
+
+    /**
+     * Stores the action extension.
+     */
+    @Inject
+    private ActionExtension actionExtension;
+
+    /**
+     * Stores the servlet context.
+     */
+    @Inject
+    private ServletContext servletContext;
+
+    /**
+     * Constructor.
+     */
+    public ActionFanOut() {
+        // nothing to do here.
+    }
+
+    /**
+     * Initialize the fan-out for the current request.
+     */
+    @PostConstruct
+    public void initialize() {
+        String value = servletContext.getInitParameter(FAN_OUT_TIMEOUT);
+        if (value != null && !value.isBlank()) {
+            try {
+                setTimeout(Duration.ofMillis(Long.parseLong(value.trim())));
+            } catch (NumberFormatException nfe) {
+                throw new FacesException("Invalid value for " + FAN_OUT_TIMEOUT + ": " + value, nfe);
+            }
+        }
+        actionExtension.getRequestContext().setFanOut(this);
+    }
+
+    /**
+     * Cancel the tasks that are still running at the end of the request.
+     */
+    @PreDestroy
+    public void destroy() {
+        close();
+    }
+}
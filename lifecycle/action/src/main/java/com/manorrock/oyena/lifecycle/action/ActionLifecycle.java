@@ -26,24 +26,84 @@
  */
 package com.manorrock.oyena.lifecycle.action;
 
+import com.manorrock.oyena.lifecycle.common.FanOut;
+import com.manorrock.oyena.lifecycle.common.ParameterConversionException;
+import com.manorrock.oyena.lifecycle.common.RequestContext;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.faces.FacesException;
+import jakarta.faces.component.UIViewRoot;
 import jakarta.faces.context.FacesContext;
 import jakarta.faces.event.PhaseListener;
 import jakarta.faces.lifecycle.Lifecycle;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The Action lifecycle.
  *
+ * <p>
+ *  An action method can return a CompletionStage of the view id. If it is not
+ *  complete yet the request is put in asynchronous mode and the container
+ *  thread is released. Once the stage completes the request is dispatched
+ *  back to the container, which creates and renders the view with the
+ *  FacesContext and CDI request context of that dispatch. The
+ *  @ActionRequestScoped instances are kept for the dispatch. If the request
+ *  does not support asynchronous mode the container thread waits for the
+ *  stage instead.
+ * </p>
+ *
+ * <p>
+ *  A suspended request times out after the ASYNC_TIMEOUT context parameter
+ *  (in milliseconds, default 0 for no timeout). It is then answered with a
+ *  503 and the @ActionRequestScoped instances are destroyed, the stage
+ *  completing later no longer dispatches the request.
+ * </p>
+ *
+ * <p>
+ *  A request with a value that cannot be converted to the type of an action
+ *  parameter is answered with a 400.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 @ApplicationScoped
 @Named("com.manorrock.oyena.lifecycle.action.ActionLifecycle")
 public class ActionLifecycle extends Lifecycle {
 
+    /**
+     * Stores the name of the context parameter with the timeout in
+     * milliseconds of a suspended request (default 0, no timeout).
+     */
+    public static final String ASYNC_TIMEOUT = "com.manorrock.oyena.lifecycle.action.ASYNC_TIMEOUT";
+
+    /**
+     * Stores the name of the Faces context attribute that holds the
+     * CompletionStage of the view id.
+     */
+    static final String PENDING_VIEW_ID = ActionLifecycle.class.getPackage().getName() + ".PendingViewId";
+
+    /**
+     * Stores the name of the request attribute that holds the outcome of a
+     * suspended request.
+     */
+    private static final String SUSPENDED = ActionLifecycle.class.getPackage().getName() + ".Suspended";
+
+    /**
+     * Stores the action extension.
+     */
+    @Inject
+    private ActionExtension actionExtension;
+
     /**
      * Stores the action mapping matcher.
      */
@@ -62,6 +122,11 @@ public class ActionLifecycle extends Lifecycle {
     @Inject
     private ActionResponseHandler actionResponseHandler;
 
+    /**
+     * Stores the timeout of a suspended request (null until read).
+     */
+    private volatile Long asyncTimeout;
+
     /**
      * Constructor.
      */
@@ -91,15 +156,208 @@ public class ActionLifecycle extends Lifecycle {
      */
     @Override
     public void execute(FacesContext facesContext) throws FacesException {
-        ActionMappingMatch match = actionMappingMatcher.match(facesContext);
-        if (match != null) {
-            actionMethodExecutor.execute(facesContext, match);
+        ActionRequestContext requestContext = actionExtension.getRequestContext();
+        Suspended suspended = (Suspended) facesContext.getExternalContext().getRequestMap().remove(SUSPENDED);
+        if (suspended != null) {
+            requestContext.attach(suspended.instances);
         } else {
+            requestContext.activate();
+        }
+        try {
+            if (suspended != null) {
+                resume(facesContext, suspended.viewId, suspended.failure);
+            } else {
+                ActionMappingMatch match = actionMappingMatcher.match(facesContext);
+                if (match == null) {
+                    try {
+                        facesContext.getExternalContext().responseSendError(404, "Unable to match action");
+                        facesContext.responseComplete();
+                    } catch (IOException ioe) {
+                        throw new FacesException(ioe);
+                    }
+                } else {
+                    actionMethodExecutor.execute(facesContext, match);
+                    CompletionStage<?> pending
+                            = (CompletionStage<?>) facesContext.getAttributes().remove(PENDING_VIEW_ID);
+                    if (pending == null) {
+                        reportFanOut(facesContext);
+                    } else if (suspend(facesContext, pending)) {
+                        return;
+                    }
+                }
+            }
+        } catch (RuntimeException re) {
+            requestContext.deactivate();
+            if (!sendBadRequest(facesContext, re)) {
+                throw re;
+            }
+        }
+        if (facesContext.getResponseComplete()) {
+            requestContext.deactivate();
+        }
+    }
+
+    /**
+     * Suspend the request until the view id is available.
+     *
+     * <p>
+     *  If the CompletionStage is already complete, or the request does not
+     *  support asynchronous mode, the view root is set right away (waiting for
+     *  the stage if needed). Otherwise the request is put in asynchronous mode,
+     *  the @ActionRequestScoped instances are detached from the container
+     *  thread and the request is dispatched back to the container once the
+     *  stage completes, to render the view there. The SuspendListener makes
+     *  sure the request is either dispatched or (when it timed out or failed
+     *  first) abandoned.
+     * </p>
+     *
+     * @param facesContext the Faces context.
+     * @param pending the CompletionStage of the view id.
+     * @return true if the request was suspended, false otherwise.
+     */
+    private boolean suspend(FacesContext facesContext, CompletionStage<?> pending) {
+        CompletableFuture<Object> outcome = new CompletableFuture<>();
+        pending.whenComplete((viewId, throwable) -> {
+            if (throwable != null) {
+                outcome.completeExceptionally(throwable);
+            } else {
+                outcome.complete(viewId);
+            }
+        });
+        HttpServletRequest request = (HttpServletRequest) facesContext.getExternalContext().getRequest();
+        if (outcome.isDone() || !request.isAsyncSupported()) {
+            Object viewId = null;
+            Throwable failure = null;
+            try {
+                viewId = outcome.join();
+            } catch (CompletionException ce) {
+                failure = ce;
+            }
+            resume(facesContext, viewId, failure);
+            return false;
+        }
+        long timeout = getAsyncTimeout(facesContext);
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(timeout);
+        SuspendListener listener = new SuspendListener(actionExtension.getRequestContext().detach());
+        asyncContext.addListener(listener);
+        facesContext.responseComplete();
+        outcome.whenComplete((viewId, throwable) -> {
+            if (!listener.completed()) {
+                return;
+            }
+            Suspended suspended = new Suspended();
+            suspended.viewId = viewId;
+            suspended.failure = throwable;
+            suspended.instances = listener.instances;
             try {
-                facesContext.getExternalContext().responseSendError(404, "Unable to match action");
-                facesContext.responseComplete();
-            } catch (IOException ioe) {
-                throw new FacesException(ioe);
+                asyncContext.getRequest().setAttribute(SUSPENDED, suspended);
+                asyncContext.dispatch();
+            } catch (IllegalStateException ise) {
+                if (listener.instances != null) {
+                    listener.instances.destroyAll();
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Get the timeout of a suspended request.
+     *
+     * @param facesContext the Faces context.
+     * @return the timeout in milliseconds, 0 for no timeout.
+     * @throws FacesException when the ASYNC_TIMEOUT context parameter is not
+     * a number.
+     */
+    private long getAsyncTimeout(FacesContext facesContext) {
+        Long result = asyncTimeout;
+        if (result == null) {
+            String value = facesContext.getExternalContext().getInitParameter(ASYNC_TIMEOUT);
+            result = 0L;
+            if (value != null && !value.isBlank()) {
+                try {
+                    result = Long.parseLong(value.trim());
+                } catch (NumberFormatException nfe) {
+                    throw new FacesException("Invalid value for " + ASYNC_TIMEOUT + ": " + value, nfe);
+                }
+            }
+            asyncTimeout = result;
+        }
+        return result;
+    }
+
+    /**
+     * Continue a request with the outcome of its CompletionStage.
+     *
+     * @param facesContext the Faces context.
+     * @param viewId the view id.
+     * @param failure the throwable the CompletionStage failed with (if any).
+     */
+    private void resume(FacesContext facesContext, Object viewId, Throwable failure) {
+        if (failure != null) {
+            throw new FacesException(failure instanceof CompletionException
+                    && failure.getCause() != null ? failure.getCause() : failure);
+        }
+        setViewRoot(facesContext, (String) viewId);
+        reportFanOut(facesContext);
+    }
+
+    /**
+     * Set the view root (unless the action already did).
+     *
+     * @param facesContext the Faces context.
+     * @param viewId the view id.
+     */
+    private void setViewRoot(FacesContext facesContext, String viewId) {
+        if (facesContext.getViewRoot() == null) {
+            UIViewRoot viewRoot = facesContext.getApplication().getViewHandler().createView(facesContext, viewId);
+            facesContext.setViewRoot(viewRoot);
+        }
+    }
+
+    /**
+     * Answer the request with a 400 if a request value could not be converted
+     * to a method parameter.
+     *
+     * <p>
+     *  The error message only names the parameter, the request value is not
+     *  echoed back.
+     * </p>
+     *
+     * @param facesContext the Faces context.
+     * @param throwable the throwable the execution failed with.
+     * @return true if the 400 was sent, false otherwise.
+     */
+    private static boolean sendBadRequest(FacesContext facesContext, Throwable throwable) {
+        ParameterConversionException exception = ParameterConversionException.find(throwable);
+        if (exception == null) {
+            return false;
+        }
+        try {
+            String parameter = exception.getParameter();
+            facesContext.getExternalContext().responseSendError(400, parameter != null
+                    ? "Unable to convert the value of parameter '" + parameter + "'"
+                    : "Unable to convert a request value");
+            facesContext.responseComplete();
+        } catch (IOException ioe) {
+            throw new FacesException(ioe);
+        }
+        return true;
+    }
+
+    /**
+     * Report the timings of the fan-out of the request (if used) in the
+     * Server-Timing response header.
+     *
+     * @param facesContext the Faces context.
+     */
+    private void reportFanOut(FacesContext facesContext) {
+        FanOut fanOut = actionExtension.getRequestContext().getFanOut();
+        if (fanOut != null) {
+            String timing = fanOut.toServerTiming();
+            if (!timing.isEmpty()) {
+                facesContext.getExternalContext().addResponseHeader("Server-Timing", timing);
             }
         }
     }
@@ -141,8 +399,149 @@ public class ActionLifecycle extends Lifecycle {
      */
     @Override
     public void render(FacesContext facesContext) throws FacesException {
-        if (!facesContext.getResponseComplete()) {
-            actionResponseHandler.respond(facesContext);
+        try {
+            if (!facesContext.getResponseComplete()) {
+                actionResponseHandler.respond(facesContext);
+            }
+        } finally {
+            actionExtension.getRequestContext().deactivate();
+        }
+    }
+
+    /**
+     * The AsyncListener of a suspended request.
+     *
+     * <p>
+     *  Whichever comes first, the stage completing or the request timing out
+     *  (or failing, eg. because the client disconnected), decides what
+     *  happens to the request. When the stage completes first the request is
+     *  dispatched. When the request times out or fails first the fan-out is
+     *  cancelled, the @ActionRequestScoped instances are destroyed, a timed
+     *  out request is answered with a 503 and the request is completed
+     *  without a dispatch.
+     * </p>
+     */
+    private static class SuspendListener implements AsyncListener {
+
+        /**
+         * Stores the instances of the @ActionRequestScoped beans (null if
+         * the context was not active).
+         */
+        private final RequestContext.Instances instances;
+
+        /**
+         * Stores whether the request was either abandoned or the stage
+         * completed.
+         */
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        /**
+         * Constructor.
+         *
+         * @param instances the instances of the @ActionRequestScoped beans.
+         */
+        SuspendListener(RequestContext.Instances instances) {
+            this.instances = instances;
+        }
+
+        /**
+         * Abandon the request (unless the stage completed already).
+         *
+         * @param event the async event.
+         * @param timedOut true if the request timed out, false if it failed.
+         * @throws IOException when an I/O error occurs.
+         */
+        private void abandon(AsyncEvent event, boolean timedOut) throws IOException {
+            if (!settled.compareAndSet(false, true)) {
+                return;
+            }
+            if (instances != null) {
+                FanOut fanOut = instances.getFanOut();
+                if (fanOut != null) {
+                    fanOut.cancel();
+                }
+                instances.destroyAll();
+            }
+            if (timedOut && event.getSuppliedResponse() instanceof HttpServletResponse response
+                    && !response.isCommitted()) {
+                response.sendError(503, "Request timed out");
+            }
+            event.getAsyncContext().complete();
+        }
+
+        /**
+         * Record that the stage completed.
+         *
+         * @return true if the request is to be dispatched, false if it was
+         * abandoned.
+         */
+        boolean completed() {
+            return settled.compareAndSet(false, true);
+        }
+
+        /**
+         * Handle the completion of the request.
+         *
+         * @param event the async event.
+         * @throws IOException when an I/O error occurs.
+         */
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException {
+            // nothing to do here.
+        }
+
+        /**
+         * Abandon the request when it failed.
+         *
+         * @param event the async event.
+         * @throws IOException when an I/O error occurs.
+         */
+        @Override
+        public void onError(AsyncEvent event) throws IOException {
+            abandon(event, false);
+        }
+
+        /**
+         * Handle the start of a new asynchronous cycle.
+         *
+         * @param event the async event.
+         * @throws IOException when an I/O error occurs.
+         */
+        @Override
+        public void onStartAsync(AsyncEvent event) throws IOException {
+            // nothing to do here.
+        }
+
+        /**
+         * Abandon the request when it timed out.
+         *
+         * @param event the async event.
+         * @throws IOException when an I/O error occurs.
+         */
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            abandon(event, true);
         }
     }
+
+    /**
+     * The outcome of a suspended request.
+     */
+    private static class Suspended {
+
+        /**
+         * Stores the throwable the CompletionStage failed with (if any).
+         */
+        private Throwable failure;
+
+        /**
+         * Stores the instances of the @ActionRequestScoped beans.
+         */
+        private RequestContext.Instances instances;
+
+        /**
+         * Stores the view id.
+         */
+        private Object viewId;
+    }
 }
@@ -26,8 +26,10 @@
  */
 package com.manorrock.oyena.lifecycle.action;
 
+import com.manorrock.oyena.lifecycle.common.MethodInvoker;
 import jakarta.enterprise.inject.spi.Bean;
 import java.lang.reflect.Method;
+import java.util.Map;
 
 /**
  * The action mapping match class.
@@ -51,6 +53,11 @@ public class ActionMappingMatch {
      */
     private Bean<? extends Object> bean;
 
+    /**
+     * Stores the method invoker.
+     */
+    private MethodInvoker invoker;
+
     /**
      * Stores the method.
      */
@@ -61,6 +68,11 @@ public class ActionMappingMatch {
      */
     private String pathInfo;
 
+    /**
+     * Stores the path parameters.
+     */
+    private Map<String, String> pathParameters;
+
     /**
      * Get the action mapping.
      * 
@@ -97,6 +109,15 @@ public class ActionMappingMatch {
         return mappingType;
     }
 
+    /**
+     * Get the method invoker.
+     *
+     * @return the method invoker, or null if the matcher did not set it.
+     */
+    public MethodInvoker getInvoker() {
+        return invoker;
+    }
+
     /**
      * Get the method.
      *
@@ -115,6 +136,19 @@ public class ActionMappingMatch {
         return pathInfo;
     }
 
+    /**
+     * Get the path parameters.
+     *
+     * <p>
+     *  These are the named groups captured while matching a regex mapping.
+     * </p>
+     *
+     * @return the path parameters, or null if they were not captured.
+     */
+    public Map<String, String> getPathParameters() {
+        return pathParameters;
+    }
+
     /**
      * Set the action mapping.
      *
@@ -142,6 +176,15 @@ public class ActionMappingMatch {
         this.mappingType = mappingType;
     }
 
+    /**
+     * Set the method invoker.
+     *
+     * @param invoker the method invoker.
+     */
+    public void setInvoker(MethodInvoker invoker) {
+        this.invoker = invoker;
+    }
+
     /**
      * Set the method.
      *
@@ -159,4 +202,13 @@ public class ActionMappingMatch {
     public void setPathInfo(String pathInfo) {
         this.pathInfo = pathInfo;
     }
+
+    /**
+     * Set the path parameters.
+     *
+     * @param pathParameters the path parameters.
+     */
+    public void setPathParameters(Map<String, String> pathParameters) {
+        this.pathParameters = pathParameters;
+    }
 }
@@ -28,6 +28,7 @@ package com.manorrock.oyena.lifecycle.action;
 
 import jakarta.faces.context.FacesContext;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
 
 /**
  * The action parameter producer API.
@@ -47,4 +48,40 @@ public interface ActionParameterProducer {
      */
     public Object produce(FacesContext facesContext, ActionMappingMatch actionMappingMatch, Class<?> parameterType,
         Annotation[] parameterAnnotations);
+
+    /**
+     * Get the resolver for a parameter.
+     *
+     * <p>
+     *  The resolver is created once per parameter of an action method and then
+     *  used for every request. The default implementation delegates to the
+     *  produce method.
+     * </p>
+     *
+     * @param parameterType the parameter type.
+     * @param parameterAnnotations the parameter annotations.
+     * @return the resolver.
+     */
+    default ActionParameterResolver getResolver(Class<?> parameterType, Annotation[] parameterAnnotations) {
+        return (facesContext, actionMappingMatch) -> produce(
+                facesContext, actionMappingMatch, parameterType, parameterAnnotations);
+    }
+
+    /**
+     * Get the resolver for a parameter with its generic type.
+     *
+     * <p>
+     *  The generic type allows converting to eg. Optional&lt;Integer&gt;. The
+     *  default implementation ignores it.
+     * </p>
+     *
+     * @param parameterType the parameter type.
+     * @param genericParameterType the generic parameter type.
+     * @param parameterAnnotations the parameter annotations.
+     * @return the resolver.
+     */
+    default ActionParameterResolver getResolver(Class<?> parameterType, Type genericParameterType,
+            Annotation[] parameterAnnotations) {
+        return getResolver(parameterType, parameterAnnotations);
+    }
 }
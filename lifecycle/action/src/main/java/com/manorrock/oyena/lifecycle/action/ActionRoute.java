@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.action;
+
+import static com.manorrock.oyena.lifecycle.action.ActionMappingType.EXACT;
+import static com.manorrock.oyena.lifecycle.action.ActionMappingType.EXTENSION;
+import static com.manorrock.oyena.lifecycle.action.ActionMappingType.PREFIX;
+import static com.manorrock.oyena.lifecycle.action.ActionMappingType.REGEX;
+import com.manorrock.oyena.lifecycle.common.MethodInvoker;
+import jakarta.enterprise.inject.spi.Bean;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * An action route.
+ * 
+ * <p>
+ *  An action route is the immutable deployment time representation of a method
+ *  annotated with &#64;ActionMapping.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class ActionRoute {
+
+    /**
+     * Stores the action mapping (without the wildcard or "regex:" prefix).
+     */
+    private final String actionMapping;
+
+    /**
+     * Stores the bean.
+     */
+    private final Bean<?> bean;
+
+    /**
+     * Stores the mapping type.
+     */
+    private final ActionMappingType mappingType;
+
+    /**
+     * Stores the method invoker.
+     */
+    private final MethodInvoker invoker;
+
+    /**
+     * Stores the method.
+     */
+    private final Method method;
+
+    /**
+     * Constructor.
+     *
+     * @param bean the bean.
+     * @param method the method.
+     * @param mapping the mapping as specified by the &#64;ActionMapping.
+     */
+    public ActionRoute(Bean<?> bean, Method method, String mapping) {
+        this.bean = bean;
+        this.method = method;
+        this.invoker = new MethodInvoker(method);
+        if (mapping.startsWith("regex:")) {
+            mappingType = REGEX;
+            actionMapping = mapping.substring("regex:".length());
+        } else if (mapping.endsWith("*")) {
+            mappingType = PREFIX;
+            actionMapping = mapping.substring(0, mapping.length() - 1);
+        } else if (mapping.startsWith("*")) {
+            mappingType = EXTENSION;
+            actionMapping = mapping.substring(1);
+        } else {
+            mappingType = EXACT;
+            actionMapping = mapping;
+        }
+    }
+
+    /**
+     * Get the action mapping.
+     *
+     * @return the action mapping.
+     */
+    public String getActionMapping() {
+        return actionMapping;
+    }
+
+    /**
+     * Get the bean.
+     *
+     * @return the bean.
+     */
+    public Bean<?> getBean() {
+        return bean;
+    }
+
+    /**
+     * Get the length.
+     *
+     * @return the length.
+     */
+    public int getLength() {
+        return actionMapping.length();
+    }
+
+    /**
+     * Get the mapping type.
+     *
+     * @return the mapping type.
+     */
+    public ActionMappingType getMappingType() {
+        return mappingType;
+    }
+
+    /**
+     * Get the method invoker.
+     *
+     * @return the method invoker.
+     */
+    public MethodInvoker getInvoker() {
+        return invoker;
+    }
+
+    /**
+     * Get the method.
+     *
+     * @return the method.
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Create a match for the given path info.
+     *
+     * @param pathInfo the path info.
+     * @param pathParameters the path parameters captured while matching.
+     * @return the action mapping match.
+     */
+    public ActionMappingMatch toMatch(String pathInfo, Map<String, String> pathParameters) {
+        ActionMappingMatch match = new ActionMappingMatch();
+        match.setBean(bean);
+        match.setMethod(method);
+        match.setInvoker(invoker);
+        match.setActionMapping(actionMapping);
+        match.setMappingType(mappingType);
+        match.setPathInfo(pathInfo);
+        match.setPathParameters(pathParameters);
+        return match;
+    }
+}
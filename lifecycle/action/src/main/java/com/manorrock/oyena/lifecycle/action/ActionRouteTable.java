@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.action;
+
+import com.manorrock.oyena.lifecycle.common.PrefixTree;
+import com.manorrock.oyena.lifecycle.common.RegexEngine;
+import com.manorrock.oyena.lifecycle.common.RegexSet;
+import com.manorrock.oyena.lifecycle.common.RegexSetMatch;
+import com.manorrock.oyena.lifecycle.common.RouteCache;
+import com.manorrock.oyena.lifecycle.common.RouteFilter;
+import com.manorrock.oyena.lifecycle.common.ResolvedRoute;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The action route table.
+ *
+ * <p>
+ *  The route table is built once at deployment time and is immutable after
+ *  that. Exact mappings win over everything else, otherwise the longest
+ *  matching prefix, extension or regex mapping wins (in that order when they
+ *  have the same length). Regex mappings are compiled into a single regex set
+ *  and are tried longest first. Optionally the routes resolved for non-exact
+ *  mappings are kept in a bounded match cache keyed by path info. A path that
+ *  cannot match any non-exact mapping is rejected up front by the route filter,
+ *  which knows the prefix of every prefix and regex mapping and the suffix of
+ *  every extension mapping.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class ActionRouteTable {
+
+    /**
+     * Stores the exact routes.
+     */
+    private final Map<String, ActionRoute> exactRoutes;
+
+    /**
+     * Stores the extension routes (keyed by extension, eg. '.do').
+     */
+    private final Map<String, ActionRoute> extensionRoutes;
+
+    /**
+     * Stores the route filter.
+     */
+    private final RouteFilter filter;
+
+    /**
+     * Stores the match cache (null when disabled).
+     */
+    private final RouteCache<ActionRoute> matchCache;
+
+    /**
+     * Stores the prefix routes.
+     */
+    private final PrefixTree<ActionRoute> prefixRoutes;
+
+    /**
+     * Stores the extension routes that cannot be looked up by extension.
+     */
+    private final ActionRoute[] suffixRoutes;
+
+    /**
+     * Stores the regex routes.
+     */
+    private final ActionRoute[] regexRoutes;
+
+    /**
+     * Stores the regex set of the regex routes.
+     */
+    private final RegexSet regexSet;
+
+    /**
+     * Stores all the routes.
+     */
+    private final List<ActionRoute> routes;
+
+    /**
+     * Constructor.
+     *
+     * @param routes the routes.
+     * @param regexEngine the regex engine used for the regex routes.
+     * @param matchCacheSize the size of the match cache (0 to disable it).
+     * @param missCacheSize the size of the miss cache of the route filter (0
+     * to disable it).
+     */
+    public ActionRouteTable(List<ActionRoute> routes, RegexEngine regexEngine,
+            int matchCacheSize, int missCacheSize) {
+        this.routes = Collections.unmodifiableList(new ArrayList<>(routes));
+        Map<String, ActionRoute> exact = new HashMap<>();
+        Map<String, ActionRoute> extension = new HashMap<>();
+        List<ActionRoute> suffix = new ArrayList<>();
+        PrefixTree<ActionRoute> prefix = new PrefixTree<>();
+        List<ActionRoute> regex = new ArrayList<>();
+        List<String> roots = new ArrayList<>();
+        List<String> suffixes = new ArrayList<>();
+        for (ActionRoute route : routes) {
+            switch (route.getMappingType()) {
+                case EXACT -> exact.putIfAbsent(route.getActionMapping(), route);
+                case EXTENSION -> {
+                    suffixes.add(route.getActionMapping());
+                    if (route.getActionMapping().startsWith(".")
+                            && route.getActionMapping().indexOf('/') == -1) {
+                        extension.putIfAbsent(route.getActionMapping(), route);
+                    } else {
+                        suffix.add(route);
+                    }
+                }
+                case PREFIX -> {
+                    roots.add(route.getActionMapping());
+                    prefix.add(route.getActionMapping(), route);
+                }
+                case REGEX -> {
+                    roots.add(RouteFilter.regexRoot(route.getActionMapping()));
+                    regex.add(route);
+                }
+            }
+        }
+        regex.sort(Comparator.comparingInt(ActionRoute::getLength).reversed());
+        this.exactRoutes = Collections.unmodifiableMap(exact);
+        this.extensionRoutes = Collections.unmodifiableMap(extension);
+        this.suffixRoutes = suffix.toArray(ActionRoute[]::new);
+        this.prefixRoutes = prefix;
+        this.regexRoutes = regex.toArray(ActionRoute[]::new);
+        this.regexSet = RegexSet.compile(
+                regex.stream().map(ActionRoute::getActionMapping).toList(), regexEngine);
+        this.matchCache = matchCacheSize > 0 ? new RouteCache<>(matchCacheSize) : null;
+        this.filter = new RouteFilter(roots, suffixes, missCacheSize);
+    }
+
+    /**
+     * Match the path info to an extension route.
+     *
+     * <p>
+     *  The extensions of the last path segment are looked up longest first (eg.
+     *  '.tar.gz' before '.gz').
+     * </p>
+     *
+     * @param pathInfo the path info.
+     * @return the extension route, or null if not found.
+     */
+    private ActionRoute matchExtension(String pathInfo) {
+        ActionRoute result = null;
+        if (!extensionRoutes.isEmpty()) {
+            int index = pathInfo.indexOf('.', pathInfo.lastIndexOf('/') + 1);
+            while (index != -1 && result == null) {
+                result = extensionRoutes.get(pathInfo.substring(index));
+                index = pathInfo.indexOf('.', index + 1);
+            }
+        }
+        for (ActionRoute route : suffixRoutes) {
+            if (pathInfo.endsWith(route.getActionMapping())
+                    && (result == null || route.getLength() > result.getLength())) {
+                result = route;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the route filter.
+     *
+     * @return the route filter.
+     */
+    public RouteFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Get the match cache.
+     *
+     * @return the match cache, or null if it is disabled.
+     */
+    public RouteCache<ActionRoute> getMatchCache() {
+        return matchCache;
+    }
+
+    /**
+     * Get the routes.
+     *
+     * @return the routes.
+     */
+    public List<ActionRoute> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Match the path info to an action route.
+     *
+     * @param pathInfo the path info.
+     * @return the action mapping match, or null if not found.
+     */
+    public ActionMappingMatch match(String pathInfo) {
+        if (pathInfo == null) {
+            return null;
+        }
+        ActionRoute result = exactRoutes.get(pathInfo);
+        if (result != null) {
+            return result.toMatch(pathInfo, Collections.emptyMap());
+        }
+        if (!filter.mayMatch(pathInfo)) {
+            return null;
+        }
+        if (matchCache != null) {
+            ResolvedRoute<ActionRoute> entry = matchCache.get(pathInfo);
+            if (entry != null) {
+                return entry.getRoute().toMatch(pathInfo, entry.getParameters());
+            }
+        }
+        if (filter.isKnownMiss(pathInfo)) {
+            return null;
+        }
+        Map<String, String> pathParameters = Collections.emptyMap();
+        result = prefixRoutes.longestMatch(pathInfo);
+        ActionRoute extension = matchExtension(pathInfo);
+        if (extension != null && (result == null || extension.getLength() > result.getLength())) {
+            result = extension;
+        }
+        if (regexRoutes.length > 0
+                && (result == null || regexRoutes[0].getLength() > result.getLength())) {
+            RegexSetMatch regexMatch = regexSet.match(pathInfo);
+            if (regexMatch != null
+                    && (result == null || regexRoutes[regexMatch.getIndex()].getLength() > result.getLength())) {
+                result = regexRoutes[regexMatch.getIndex()];
+                pathParameters = regexMatch.getGroups();
+            }
+        }
+        if (result == null) {
+            filter.recordMiss(pathInfo);
+            return null;
+        }
+        if (matchCache != null) {
+            matchCache.put(pathInfo, result, pathParameters);
+        }
+        return result.toMatch(pathInfo, pathParameters);
+    }
+}
@@ -26,116 +26,85 @@
  */
 package com.manorrock.oyena.lifecycle.action;
 
-import static com.manorrock.oyena.lifecycle.action.ActionMappingType.EXACT;
-import static com.manorrock.oyena.lifecycle.action.ActionMappingType.EXTENSION;
-import static com.manorrock.oyena.lifecycle.action.ActionMappingType.PREFIX;
-import static com.manorrock.oyena.lifecycle.action.ActionMappingType.REGEX;
+import com.manorrock.oyena.lifecycle.common.RegexEngine;
+import com.manorrock.oyena.lifecycle.common.RouteCache;
+import com.manorrock.oyena.lifecycle.common.RouteFilter;
 import jakarta.enterprise.context.ApplicationScoped;
-import static jakarta.enterprise.inject.Any.Literal.INSTANCE;
-import jakarta.enterprise.inject.spi.AnnotatedMethod;
-import jakarta.enterprise.inject.spi.AnnotatedType;
-import jakarta.enterprise.inject.spi.Bean;
-import jakarta.enterprise.inject.spi.CDI;
+import jakarta.faces.FacesException;
 import jakarta.faces.context.FacesContext;
-import java.util.Iterator;
-import java.util.Set;
-import java.util.regex.Pattern;
+import jakarta.inject.Inject;
 
 /**
  * The default action mapping matcher.
  *
+ * <p>
+ *  This matcher uses a route table built from the action routes that were
+ *  collected at deployment time by the action extension. The route table is
+ *  built on the first request so it can use the regex engine configured with
+ *  the com.manorrock.oyena.lifecycle.action.REGEX_ENGINE context parameter
+ *  ('java' or 'linear', defaults to 'java'). The
+ *  com.manorrock.oyena.lifecycle.action.MATCH_CACHE_SIZE context parameter
+ *  enables a bounded cache of resolved routes of the given size (defaults to
+ *  0, which disables the cache). The
+ *  com.manorrock.oyena.lifecycle.action.MISS_CACHE_SIZE context parameter enables
+ *  a bounded cache of paths that did not match (defaults to 0, which disables
+ *  the cache).
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 @ApplicationScoped
 public class DefaultActionMappingMatcher implements ActionMappingMatcher {
 
     /**
-     * Find the action mapping for the given bean.
+     * Stores the name of the context parameter that sets the match cache size.
+     */
+    public static final String MATCH_CACHE_SIZE = "com.manorrock.oyena.lifecycle.action.MATCH_CACHE_SIZE";
+
+    /**
+     * Stores the name of the context parameter that sets the miss cache size.
+     */
+    public static final String MISS_CACHE_SIZE = "com.manorrock.oyena.lifecycle.action.MISS_CACHE_SIZE";
+
+    /**
+     * Stores the name of the context parameter that selects the regex engine.
+     */
+    public static final String REGEX_ENGINE = "com.manorrock.oyena.lifecycle.action.REGEX_ENGINE";
+
+    /**
+     * Stores the action extension.
+     */
+    @Inject
+    private ActionExtension actionExtension;
+
+    /**
+     * Stores the route table.
+     */
+    private volatile ActionRouteTable routeTable;
+
+    /**
+     * Get the route table.
      *
      * @param facesContext the Faces context.
-     * @param bean the bean.
-     * @return the action mapping match, or null if not found.
+     * @return the route table.
+     * @throws FacesException when the configuration is invalid.
      */
-    private ActionMappingMatch determineActionMappingMatch(FacesContext facesContext, Bean<?> bean) {
-        ActionMappingMatch result = null;
-        Class clazz = bean.getBeanClass();
-        AnnotatedType annotatedType = CDI.current().getBeanManager().createAnnotatedType(clazz);
-        Set<AnnotatedMethod> annotatedMethodSet = annotatedType.getMethods();
-        boolean done = false;
-        for (AnnotatedMethod method : annotatedMethodSet) {
-            if (method.isAnnotationPresent(ActionMapping.class)) {
-                ActionMapping requestMapping = method.getAnnotation(ActionMapping.class);
-                result = processAnnotatedMethod(requestMapping, facesContext, result, bean, method);
-                if (result != null
-                        && (result.getMappingType().equals(EXACT)
-                        || result.getMappingType().equals(EXTENSION)
-                        || result.getMappingType().equals(REGEX))) {
-                    done = true;
-                }
-            }
-            if (result != null
-                    && (result.getMappingType().equals(EXACT)
-                    || (result.getMappingType().equals(EXTENSION)))) {
-                done = true;
-            }
-            if (done) {
-                break;
-            }
-        }
-        return result;
-    }
-
-    private ActionMappingMatch processAnnotatedMethod(ActionMapping requestMapping, FacesContext facesContext, ActionMappingMatch result, Bean<?> bean, AnnotatedMethod method) {
-        String mapping = requestMapping.value();
-        String pathInfo = facesContext.getExternalContext().getRequestPathInfo();
-        if (pathInfo != null) {
-            ActionMappingType mappingType = determineActionMappingType(mapping, pathInfo);
-            if (mappingType != null) {
-                switch (mappingType) {
-                    case EXACT -> {
-                        result = new ActionMappingMatch();
-                        result.setBean(bean);
-                        result.setMethod(method.getJavaMember());
-                        result.setActionMapping(mapping);
-                        result.setMappingType(EXACT);
-                        result.setPathInfo(pathInfo);
-                    }
-                    case PREFIX -> {
-                        mapping = mapping.substring(0, mapping.length() - 1);
-                        if (pathInfo.startsWith(mapping)) {
-                            if (result == null) {
-                                result = new ActionMappingMatch();
-                                result.setBean(bean);
-                                result.setMethod(method.getJavaMember());
-                                result.setActionMapping(mapping);
-                                result.setMappingType(PREFIX);
-                                result.setPathInfo(pathInfo);
-                            } else if (mapping.length() > result.getLength()) {
-                                result.setBean(bean);
-                                result.setMethod(method.getJavaMember());
-                                result.setActionMapping(mapping);
-                                result.setMappingType(PREFIX);
-                                result.setPathInfo(pathInfo);
-                            }
-                        }
-                    }
-                    case EXTENSION -> {
-                        mapping = mapping.substring(1);
-                        if (pathInfo.endsWith(mapping)) {
-                            result = new ActionMappingMatch();
-                            result.setBean(bean);
-                            result.setMethod(method.getJavaMember());
-                            result.setActionMapping(mapping);
-                            result.setMappingType(EXTENSION);
-                            result.setPathInfo(pathInfo);
-                        }
-                    }
-                    case REGEX -> {
-                        ActionMappingMatch regexMatch = determineRegexMatch(mapping, pathInfo, bean, method);
-                        if (regexMatch != null) {
-                            result = regexMatch;
-                        }
+    private ActionRouteTable getRouteTable(FacesContext facesContext) {
+        ActionRouteTable result = routeTable;
+        if (result == null) {
+            synchronized (this) {
+                result = routeTable;
+                if (result == null) {
+                    String value = facesContext.getExternalContext().getInitParameter(REGEX_ENGINE);
+                    RegexEngine regexEngine;
+                    try {
+                        regexEngine = RegexEngine.fromValue(value);
+                    } catch (IllegalArgumentException iae) {
+                        throw new FacesException("Unknown regex engine: " + value, iae);
                     }
+                    result = new ActionRouteTable(actionExtension.getRoutes(), regexEngine,
+                            getSize(facesContext, MATCH_CACHE_SIZE), getSize(facesContext, MISS_CACHE_SIZE));
+                    routeTable = result;
                 }
             }
         }
@@ -143,62 +112,52 @@ public class DefaultActionMappingMatcher implements ActionMappingMatcher {
     }
 
     /**
-     * Determine the mapping type.
+     * Get the match cache.
      *
-     * @param mapping the mapping.
-     * @param pathInfo the path info.
+     * <p>
+     *  The match cache exposes the hit and miss counters.
+     * </p>
+     *
+     * @return the match cache, or null if it is disabled or no request has
+     * been matched yet.
      */
-    private ActionMappingType determineActionMappingType(String mapping, String pathInfo) {
-        ActionMappingType result = null;
-        if (mapping.equals(pathInfo)) {
-            result = EXACT;
-        } else if (mapping.endsWith("*")) {
-            result = PREFIX;
-        } else if (mapping.startsWith("*")) {
-            result = EXTENSION;
-        } else if (mapping.startsWith("regex:")) {
-            result = REGEX;
-        }
-        return result;
+    public RouteCache<ActionRoute> getMatchCache() {
+        ActionRouteTable table = routeTable;
+        return table != null ? table.getMatchCache() : null;
     }
 
     /**
-     * Determine if this is a "regex:" match.
+     * Get a size from a context parameter.
      *
-     * @param mapping the mapping.
-     * @param pathInfo the path info.
-     * @param bean the bean.
-     * @param method the method.
-     * @return the match, or null if not found.
+     * @param facesContext the Faces context.
+     * @param name the name of the context parameter.
+     * @return the size, or 0 if the context parameter is not set.
+     * @throws FacesException when the value is not a number.
      */
-    private ActionMappingMatch determineRegexMatch(
-            String mapping,
-            String pathInfo,
-            Bean<?> bean,
-            AnnotatedMethod<?> method) {
-
-        ActionMappingMatch regexMatch = null;
-        mapping = mapping.substring("regex:".length());
-        if (Pattern.matches(mapping, pathInfo)) {
-            regexMatch = new ActionMappingMatch();
-            regexMatch.setBean(bean);
-            regexMatch.setMethod(method.getJavaMember());
-            regexMatch.setActionMapping(mapping);
-            regexMatch.setMappingType(REGEX);
-            regexMatch.setPathInfo(pathInfo);
+    private int getSize(FacesContext facesContext, String name) {
+        String value = facesContext.getExternalContext().getInitParameter(name);
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException nfe) {
+            throw new FacesException("Invalid value for " + name + ": " + value, nfe);
         }
-        return regexMatch;
     }
 
     /**
-     * Get the beans.
+     * Get the route filter.
+     *
+     * <p>
+     *  The route filter exposes the number of rejected lookups.
+     * </p>
      *
-     * @return the beans.
+     * @return the route filter, or null if no request has been matched yet.
      */
-    private Iterator<Bean<?>> getBeans() {
-        Set<Bean<?>> beans = CDI.current().getBeanManager().getBeans(
-                Object.class, INSTANCE);
-        return beans.iterator();
+    public RouteFilter getRouteFilter() {
+        ActionRouteTable table = routeTable;
+        return table != null ? table.getFilter() : null;
     }
 
     /**
@@ -209,17 +168,7 @@ public class DefaultActionMappingMatcher implements ActionMappingMatcher {
      */
     @Override
     public ActionMappingMatch match(FacesContext facesContext) {
-        ActionMappingMatch match = null;
-        Iterator<Bean<?>> beans = getBeans();
-        while (beans.hasNext()) {
-            Bean<?> bean = beans.next();
-            ActionMappingMatch candidate = determineActionMappingMatch(facesContext, bean);
-            if (match == null) {
-                match = candidate;
-            } else if (candidate != null && candidate.getLength() > match.getLength()) {
-                match = candidate;
-            }
-        }
-        return match;
+        return getRouteTable(facesContext).match(
+                facesContext.getExternalContext().getRequestPathInfo());
     }
 }
@@ -26,18 +26,44 @@
  */
 package com.manorrock.oyena.lifecycle.action;
 
+import com.manorrock.oyena.lifecycle.common.MethodInvoker;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.inject.Any;
 import jakarta.enterprise.inject.Instance;
-import jakarta.enterprise.inject.spi.CDI;
+import jakarta.enterprise.inject.spi.Bean;
 import jakarta.faces.FacesException;
 import jakarta.faces.component.UIViewRoot;
 import jakarta.faces.context.FacesContext;
 import jakarta.inject.Inject;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The default action method executor.
  *
+ * <p>
+ *  The parameters of a method are resolved with a plan, an array with one
+ *  parameter resolver per parameter, that is created by the parameter
+ *  producer the first time the method is executed.
+ * </p>
+ *
+ * <p>
+ *  The instance of the action bean comes from an ActionBeanInstances that is
+ *  created once per bean, see there for the scope handling and the
+ *  @ActionPooled opt-in pool.
+ * </p>
+ *
+ * <p>
+ *  A method that returns a CompletionStage instead of a view id leaves the
+ *  creation of the view to the action lifecycle, which waits for the stage
+ *  to complete. The instance is only released once the stage completes.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 @ApplicationScoped
@@ -48,6 +74,46 @@ public class DefaultActionMethodExecutor implements ActionMethodExecutor {
      */
     @Inject
     private ActionParameterProducer actionParameterProducer;
+
+    /**
+     * Stores the Instance the bean instances are selected from.
+     */
+    @Inject
+    @Any
+    private Instance<Object> instance;
+
+    /**
+     * Stores the instances for every bean.
+     */
+    private final Map<Bean<?>, ActionBeanInstances> beanInstances = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the method invokers for matches that do not carry one.
+     */
+    private final Map<Method, MethodInvoker> invokers = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the parameter resolution plan for every method invoker.
+     */
+    private final Map<MethodInvoker, ActionParameterResolver[]> plans = new ConcurrentHashMap<>();
+
+    /**
+     * Create the parameter resolution plan for a method.
+     *
+     * @param invoker the method invoker.
+     * @return the parameter resolvers, one per parameter.
+     */
+    private ActionParameterResolver[] createPlan(MethodInvoker invoker) {
+        Class<?>[] parameterTypes = invoker.getParameterTypes();
+        Type[] genericParameterTypes = invoker.getGenericParameterTypes();
+        Annotation[][] parameterAnnotations = invoker.getParameterAnnotations();
+        ActionParameterResolver[] plan = new ActionParameterResolver[parameterTypes.length];
+        for (int i = 0; i < plan.length; i++) {
+            plan[i] = actionParameterProducer.getResolver(
+                    parameterTypes[i], genericParameterTypes[i], parameterAnnotations[i]);
+        }
+        return plan;
+    }
     
     /**
      * Execute the method.
@@ -57,28 +123,49 @@ public class DefaultActionMethodExecutor implements ActionMethodExecutor {
      */
     @Override
     public void execute(FacesContext facesContext, ActionMappingMatch actionMappingMatch) {
-        Instance instance = CDI.current().select(
-                actionMappingMatch.getBean().getBeanClass(), Any.Literal.INSTANCE);
-        String viewId;
+        ActionBeanInstances instances = beanInstances.computeIfAbsent(actionMappingMatch.getBean(),
+                bean -> new ActionBeanInstances(bean, instance.select(bean.getBeanClass(), Any.Literal.INSTANCE)));
+        Object result;
+        MethodInvoker invoker = actionMappingMatch.getInvoker();
+        if (invoker == null) {
+            invoker = invokers.computeIfAbsent(actionMappingMatch.getMethod(), MethodInvoker::new);
+        }
         try {
-            Object[] parameters = new Object[actionMappingMatch.getMethod().getParameterCount()];
-            if (parameters.length > 0) {
-                for(int i=0; i<parameters.length; i++) {
-                    parameters[i] = actionParameterProducer.produce(
-                            facesContext,
-                            actionMappingMatch,
-                            actionMappingMatch.getMethod().getParameterTypes()[i],
-                            actionMappingMatch.getMethod().getParameterAnnotations()[i]);
+            Object[] parameters = null;
+            if (invoker.getParameterCount() > 0) {
+                ActionParameterResolver[] plan = plans.computeIfAbsent(invoker, this::createPlan);
+                parameters = new Object[plan.length];
+                for (int i = 0; i < plan.length; i++) {
+                    parameters[i] = plan[i].resolve(facesContext, actionMappingMatch);
                 }
             }
-            viewId = (String) actionMappingMatch.getMethod().invoke(
-                    instance.get(), parameters);
+            Instance.Handle<?> handle = instances.acquire();
+            try {
+                result = invoker.invoke(handle.get(), parameters);
+            } catch (Throwable throwable) {
+                instances.release(handle);
+                throw throwable;
+            }
+            instances.release(handle, result);
         } catch (Exception exception) {
             throw new FacesException(exception);
         }
+        if (result instanceof CompletionStage<?> stage) {
+            facesContext.getAttributes().put(ActionLifecycle.PENDING_VIEW_ID, stage);
+            return;
+        }
         if (facesContext.getViewRoot() == null) {
-            UIViewRoot viewRoot = facesContext.getApplication().getViewHandler().createView(facesContext, viewId);
+            UIViewRoot viewRoot = facesContext.getApplication().getViewHandler().createView(
+                    facesContext, (String) result);
             facesContext.setViewRoot(viewRoot);
         }
     }
+
+    /**
+     * Destroy the pooled bean instances.
+     */
+    @PreDestroy
+    public void destroy() {
+        beanInstances.values().forEach(ActionBeanInstances::destroy);
+    }
 }
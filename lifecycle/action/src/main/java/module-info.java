@@ -30,6 +30,8 @@ module com.manorrock.oyena.lifecycle.action {
 
     exports com.manorrock.oyena.lifecycle.action;
     opens com.manorrock.oyena.lifecycle.action;
+    requires com.manorrock.oyena.lifecycle.common;
+    requires static jakarta.annotation;
     requires static jakarta.faces.api;
     requires static jakarta.cdi;
     requires static jakarta.servlet;
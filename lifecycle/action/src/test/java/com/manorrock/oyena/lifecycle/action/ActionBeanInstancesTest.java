@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.action;
+
+import jakarta.enterprise.context.Dependent;
+import jakarta.enterprise.inject.Instance;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the ActionBeanInstances class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class ActionBeanInstancesTest {
+
+    /**
+     * Test acquire method with a @ActionPooled @Dependent bean.
+     */
+    @Test
+    void testAcquire() {
+        List<Object> destroyed = new ArrayList<>();
+        ActionBeanInstances instances = new ActionBeanInstances(ActionStubs.bean(PooledBean.class, Dependent.class),
+                ActionStubs.instance(PooledBean::new, destroyed));
+        Instance.Handle<?> first = instances.acquire();
+        Instance.Handle<?> second = instances.acquire();
+        Instance.Handle<?> third = instances.acquire();
+        instances.release(first);
+        instances.release(second);
+        instances.release(third);
+        assertEquals(List.of(third.get()), destroyed);
+        assertSame(first, instances.acquire());
+        instances.destroy();
+        assertEquals(List.of(third.get(), second.get()), destroyed);
+    }
+
+    /**
+     * A bean that keeps at most 2 idle instances.
+     */
+    @ActionPooled(2)
+    public static class PooledBean {
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.action;
+
+import com.manorrock.oyena.lifecycle.common.FanOut;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.spi.Contextual;
+import jakarta.faces.FacesException;
+import jakarta.faces.application.Application;
+import jakarta.faces.application.ApplicationWrapper;
+import jakarta.faces.application.ViewHandler;
+import jakarta.faces.application.ViewHandlerWrapper;
+import jakarta.faces.component.UIViewRoot;
+import jakarta.faces.context.ExternalContext;
+import jakarta.faces.context.ExternalContextWrapper;
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.context.FacesContextWrapper;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the ActionLifecycle class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class ActionLifecycleTest {
+
+    /**
+     * Stores the async context that was created last.
+     */
+    private volatile AsyncContext asyncContext;
+
+    /**
+     * Stores the latch that is released when the request is completed.
+     */
+    private final CountDownLatch completed = new CountDownLatch(1);
+
+    /**
+     * Stores the view ids of the views that were created.
+     */
+    private final List<String> createdViews = new ArrayList<>();
+
+    /**
+     * Stores the latch that is released when the request is dispatched.
+     */
+    private final CountDownLatch dispatched = new CountDownLatch(1);
+
+    /**
+     * Stores the AsyncListeners that were added.
+     */
+    private final List<AsyncListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Stores the request attributes (shared by the dispatches).
+     */
+    private final Map<String, Object> requestMap = new HashMap<>();
+
+    /**
+     * Stores the timeout that was set on the async context.
+     */
+    private volatile Long timeout;
+
+    /**
+     * Create a lifecycle.
+     *
+     * @param extension the action extension.
+     * @param action the action, returning the CompletionStage of the view id.
+     * @return the lifecycle.
+     * @throws Exception when a serious error occurs.
+     */
+    private ActionLifecycle createLifecycle(ActionExtension extension,
+            Function<FacesContext, CompletableFuture<String>> action) throws Exception {
+        ActionRoute route = new ActionRoute(ActionStubs.bean(ActionLifecycleTest.class, ApplicationScoped.class),
+                ActionLifecycleTest.class.getDeclaredMethod("createFacesContext"), "/async");
+        ActionMappingMatch match = route.toMatch("/async", null);
+        ActionLifecycle lifecycle = new ActionLifecycle();
+        ActionStubs.set(lifecycle, "actionExtension", extension);
+        ActionStubs.set(lifecycle, "actionMappingMatcher", (ActionMappingMatcher) facesContext -> match);
+        ActionStubs.set(lifecycle, "actionMethodExecutor", (ActionMethodExecutor) (facesContext, actionMappingMatch)
+                -> facesContext.getAttributes().put(ActionLifecycle.PENDING_VIEW_ID, action.apply(facesContext)));
+        return lifecycle;
+    }
+
+    /**
+     * Create the Faces context of a dispatch.
+     *
+     * @return the Faces context.
+     */
+    private FacesContext createFacesContext() {
+        HttpServletRequest[] request = new HttpServletRequest[1];
+        asyncContext = ActionStubs.stub(AsyncContext.class, Map.of(
+                "addListener", arguments -> listeners.add((AsyncListener) arguments[0]),
+                "getRequest", arguments -> request[0],
+                "setTimeout", arguments -> timeout = (Long) arguments[0],
+                "complete", arguments -> {
+                    completed.countDown();
+                    return null;
+                },
+                "dispatch", arguments -> {
+                    dispatched.countDown();
+                    return null;
+                }));
+        request[0] = ActionStubs.stub(HttpServletRequest.class, Map.of(
+                "isAsyncSupported", arguments -> true,
+                "startAsync", arguments -> asyncContext,
+                "setAttribute", arguments -> requestMap.put((String) arguments[0], arguments[1])));
+        ExternalContext externalContext = new ExternalContextWrapper(null) {
+            @Override
+            public String getInitParameter(String name) {
+                return ActionLifecycle.ASYNC_TIMEOUT.equals(name) ? "1500" : null;
+            }
+
+            @Override
+            public Object getRequest() {
+                return request[0];
+            }
+
+            @Override
+            public Map<String, Object> getRequestMap() {
+                return requestMap;
+            }
+        };
+        ViewHandler viewHandler = new ViewHandlerWrapper(null) {
+            @Override
+            public UIViewRoot createView(FacesContext facesContext, String viewId) {
+                createdViews.add(viewId);
+                return null;
+            }
+        };
+        Application application = new ApplicationWrapper(null) {
+            @Override
+            public ViewHandler getViewHandler() {
+                return viewHandler;
+            }
+        };
+        Map<Object, Object> attributes = new HashMap<>();
+        boolean[] responseComplete = new boolean[1];
+        return new FacesContextWrapper(null) {
+            @Override
+            public Application getApplication() {
+                return application;
+            }
+
+            @Override
+            public Map<Object, Object> getAttributes() {
+                return attributes;
+            }
+
+            @Override
+            public ExternalContext getExternalContext() {
+                return externalContext;
+            }
+
+            @Override
+            public boolean getResponseComplete() {
+                return responseComplete[0];
+            }
+
+            @Override
+            public UIViewRoot getViewRoot() {
+                return null;
+            }
+
+            @Override
+            public void responseComplete() {
+                responseComplete[0] = true;
+            }
+
+            @Override
+            public void setViewRoot(UIViewRoot viewRoot) {
+            }
+        };
+    }
+
+    /**
+     * Test execute method with an asynchronous action that sets request
+     * scoped state the view reads.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testExecute() throws Exception {
+        ActionExtension extension = new ActionExtension();
+        ActionRequestContext requestContext = extension.getRequestContext();
+        @SuppressWarnings("unchecked")
+        Contextual<Object> contextual = ActionStubs.stub(Contextual.class, Map.of(
+                "create", arguments -> new StringBuilder(),
+                "destroy", arguments -> null));
+        requestContext.getSlot(contextual);
+        CompletableFuture<String> stage = new CompletableFuture<>();
+        ActionLifecycle lifecycle = createLifecycle(extension, facesContext -> {
+            StringBuilder state = (StringBuilder) requestContext.get(contextual, ActionStubs.creationalContext());
+            return stage.thenApplyAsync(viewId -> {
+                state.append("loaded");
+                return viewId;
+            });
+        });
+
+        FacesContext facesContext = createFacesContext();
+        lifecycle.execute(facesContext);
+        assertTrue(facesContext.getResponseComplete());
+        assertFalse(requestContext.isActive());
+        stage.complete("/async.xhtml");
+        assertTrue(dispatched.await(5, TimeUnit.SECONDS));
+        assertEquals(1500L, timeout);
+
+        FacesContext dispatchContext = createFacesContext();
+        lifecycle.execute(dispatchContext);
+        assertFalse(dispatchContext.getResponseComplete());
+        assertEquals(List.of("/async.xhtml"), createdViews);
+        assertEquals("loaded", requestContext.get(contextual).toString());
+        requestContext.deactivate();
+    }
+
+    /**
+     * Test execute method with an asynchronous action that fails.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testExecute2() throws Exception {
+        Error error = new StackOverflowError();
+        CompletableFuture<String> stage = new CompletableFuture<>();
+        ActionLifecycle lifecycle = createLifecycle(new ActionExtension(), facesContext -> stage);
+        lifecycle.execute(createFacesContext());
+        stage.completeExceptionally(error);
+        assertTrue(dispatched.await(5, TimeUnit.SECONDS));
+        FacesException exception = assertThrows(FacesException.class,
+                () -> lifecycle.execute(createFacesContext()));
+        assertSame(error, exception.getCause());
+    }
+
+    /**
+     * Test execute method with an action that is already complete.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testExecute3() throws Exception {
+        ActionLifecycle lifecycle = createLifecycle(new ActionExtension(),
+                facesContext -> CompletableFuture.completedFuture("/done.xhtml"));
+        FacesContext facesContext = createFacesContext();
+        lifecycle.execute(facesContext);
+        assertFalse(facesContext.getResponseComplete());
+        assertEquals(List.of("/done.xhtml"), createdViews);
+        assertEquals(1, dispatched.getCount());
+    }
+
+    /**
+     * Test execute method abandoning an asynchronous action when the client
+     * disconnects.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testExecute4() throws Exception {
+        ActionExtension extension = new ActionExtension();
+        ActionRequestContext requestContext = extension.getRequestContext();
+        List<Object> destroyed = new CopyOnWriteArrayList<>();
+        @SuppressWarnings("unchecked")
+        Contextual<Object> contextual = ActionStubs.stub(Contextual.class, Map.of(
+                "create", arguments -> new Object(),
+                "destroy", arguments -> destroyed.add(arguments[0])));
+        requestContext.getSlot(contextual);
+        FanOut fanOut = new FanOut();
+        CompletableFuture<String> stage = new CompletableFuture<>();
+        ActionLifecycle lifecycle = createLifecycle(extension, facesContext -> {
+            requestContext.setFanOut(fanOut);
+            requestContext.get(contextual, ActionStubs.creationalContext());
+            FanOut.Task<Object> task = fanOut.fork("backend", () -> {
+                new CountDownLatch(1).await();
+                return null;
+            });
+            return stage.thenApply(viewId -> {
+                task.join();
+                return viewId;
+            });
+        });
+        lifecycle.execute(createFacesContext());
+        AsyncEvent event = new AsyncEvent(asyncContext, null, null);
+        for (AsyncListener listener : listeners) {
+            listener.onError(event);
+        }
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertEquals(1, destroyed.size());
+        assertTrue(fanOut.getTasks().get(0).isDone());
+        stage.complete("/async.xhtml");
+        assertEquals(1, dispatched.getCount());
+    }
+
+    /**
+     * Test execute method answering an asynchronous action that times out
+     * with a 503.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testExecute5() throws Exception {
+        CompletableFuture<String> stage = new CompletableFuture<>();
+        ActionLifecycle lifecycle = createLifecycle(new ActionExtension(), facesContext -> stage);
+        lifecycle.execute(createFacesContext());
+        List<Object> errors = new CopyOnWriteArrayList<>();
+        HttpServletResponse response = ActionStubs.stub(HttpServletResponse.class, Map.of(
+                "isCommitted", arguments -> false,
+                "sendError", arguments -> errors.add(arguments[0])));
+        AsyncEvent event = new AsyncEvent(asyncContext, null, response);
+        for (AsyncListener listener : listeners) {
+            listener.onTimeout(event);
+            listener.onError(event);
+        }
+        assertEquals(List.of(503), errors);
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        stage.complete("/async.xhtml");
+        assertEquals(1, dispatched.getCount());
+        assertTrue(requestMap.isEmpty());
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.action;
+
+import static com.manorrock.oyena.lifecycle.action.ActionMappingType.EXACT;
+import static com.manorrock.oyena.lifecycle.action.ActionMappingType.EXTENSION;
+import static com.manorrock.oyena.lifecycle.action.ActionMappingType.PREFIX;
+import static com.manorrock.oyena.lifecycle.action.ActionMappingType.REGEX;
+import com.manorrock.oyena.lifecycle.common.RegexEngine;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the ActionRouteTable class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class ActionRouteTableTest {
+
+    /**
+     * Create a route table with the given mappings.
+     *
+     * @param matchCacheSize the match cache size.
+     * @param mappings the mappings.
+     * @return the route table.
+     */
+    private static ActionRouteTable createTable(int matchCacheSize, String... mappings) {
+        List<ActionRoute> routes = new ArrayList<>();
+        for (String mapping : mappings) {
+            try {
+                routes.add(new ActionRoute(null,
+                        ActionRouteTableTest.class.getDeclaredMethod("action"), mapping));
+            } catch (NoSuchMethodException nsme) {
+                throw new IllegalStateException(nsme);
+            }
+        }
+        return new ActionRouteTable(routes, RegexEngine.JAVA, matchCacheSize, 0);
+    }
+
+    /**
+     * The action method used by the routes.
+     *
+     * @return the view id.
+     */
+    String action() {
+        return "/index.xhtml";
+    }
+
+    /**
+     * Test match method.
+     */
+    @Test
+    void testMatch() {
+        ActionRouteTable table = createTable(0, "/about", "/about*",
+                "/users/*", "*.do", "regex:/users/(?<id>\\d+)");
+        assertEquals(EXACT, table.match("/about").getMappingType());
+        assertEquals(PREFIX, table.match("/about/team").getMappingType());
+        assertEquals(PREFIX, table.match("/users/abc").getMappingType());
+        assertEquals(EXTENSION, table.match("/list.do").getMappingType());
+        assertNull(table.match("/none"));
+        assertNull(table.match(null));
+        assertEquals(1, table.getFilter().getRejections());
+    }
+
+    /**
+     * Test match method picking the longest non-exact mapping.
+     */
+    @Test
+    void testMatch2() {
+        ActionRouteTable table = createTable(0, "/users/*", "*.do",
+                "regex:/users/(?<id>\\d+)", "*.tar.gz", "*.gz");
+        ActionMappingMatch match = table.match("/users/42");
+        assertEquals(REGEX, match.getMappingType());
+        assertEquals(Map.of("id", "42"), match.getPathParameters());
+        assertEquals(PREFIX, table.match("/users/list.do").getMappingType());
+        assertEquals(".tar.gz", table.match("/files/a.tar.gz").getActionMapping());
+        assertEquals(".gz", table.match("/files/a.gz").getActionMapping());
+    }
+
+    /**
+     * Test match method preferring prefix over extension over regex on a tie.
+     */
+    @Test
+    void testMatch3() {
+        ActionRouteTable table = createTable(0, "/ab*", "*.ab", "regex:/a.");
+        assertEquals(PREFIX, table.match("/ab").getMappingType());
+        ActionRouteTable table2 = createTable(0, "*.abc", "regex:/.+c");
+        assertEquals(EXTENSION, table2.match("/x.abc").getMappingType());
+    }
+
+    /**
+     * Test match method with the match cache enabled.
+     */
+    @Test
+    void testMatch4() {
+        ActionRouteTable table = createTable(16, "/users/*", "regex:/users/(?<id>\\d+)");
+        assertEquals(Map.of("id", "7"), table.match("/users/7").getPathParameters());
+        assertEquals(Map.of("id", "7"), table.match("/users/7").getPathParameters());
+        assertEquals("/users/7", table.match("/users/7").getPathInfo());
+        assertEquals(2, table.getMatchCache().getHits());
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.action;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.faces.FacesException;
+import jakarta.faces.context.FacesContext;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the DefaultActionMethodExecutor class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class DefaultActionMethodExecutorTest {
+
+    /**
+     * Create a match for a method of the test bean.
+     *
+     * @param name the name of the method.
+     * @param parameterTypes the parameter types.
+     * @return the match.
+     * @throws Exception when a serious error occurs.
+     */
+    private static ActionMappingMatch createMatch(String name, Class<?>... parameterTypes) throws Exception {
+        ActionRoute route = new ActionRoute(ActionStubs.bean(TestBean.class, ApplicationScoped.class),
+                TestBean.class.getMethod(name, parameterTypes), "/" + name);
+        return route.toMatch("/" + name, null);
+    }
+
+    /**
+     * Create an executor.
+     *
+     * @param producer the parameter producer.
+     * @return the executor.
+     */
+    private static DefaultActionMethodExecutor createExecutor(ActionParameterProducer producer) {
+        DefaultActionMethodExecutor executor = new DefaultActionMethodExecutor();
+        ActionStubs.set(executor, "actionParameterProducer", producer);
+        ActionStubs.set(executor, "instance", ActionStubs.instance(TestBean::new, new ArrayList<>()));
+        return executor;
+    }
+
+    /**
+     * Get the pending view id of an execution.
+     *
+     * @param executor the executor.
+     * @param match the match.
+     * @return the view id.
+     */
+    private static String execute(DefaultActionMethodExecutor executor, ActionMappingMatch match) {
+        Map<Object, Object> attributes = new HashMap<>();
+        executor.execute(ActionStubs.facesContext(attributes), match);
+        CompletionStage<?> stage = (CompletionStage<?>) attributes.get(ActionLifecycle.PENDING_VIEW_ID);
+        return (String) stage.toCompletableFuture().join();
+    }
+
+    /**
+     * Test execute method resolving the parameters with a plan.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testExecute() throws Exception {
+        CountingProducer producer = new CountingProducer();
+        DefaultActionMethodExecutor executor = createExecutor(producer);
+        ActionMappingMatch match = createMatch("join", String.class, Integer.class);
+        assertEquals("String-Integer", execute(executor, match));
+        assertEquals("String-Integer", execute(executor, match));
+        assertEquals(List.of(String.class, Integer.class), producer.types);
+    }
+
+    /**
+     * Test execute method without parameters.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testExecute2() throws Exception {
+        CountingProducer producer = new CountingProducer();
+        DefaultActionMethodExecutor executor = createExecutor(producer);
+        assertEquals("hello", execute(executor, createMatch("hello")));
+        assertTrue(producer.types.isEmpty());
+    }
+
+    /**
+     * Test execute method with a method that throws.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testExecute3() throws Exception {
+        DefaultActionMethodExecutor executor = createExecutor(new CountingProducer());
+        FacesException exception = assertThrows(FacesException.class,
+                () -> execute(executor, createMatch("fail")));
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+    }
+
+    /**
+     * A parameter producer that counts the resolvers it creates.
+     */
+    static class CountingProducer implements ActionParameterProducer {
+
+        /**
+         * Stores the types of the parameters a resolver was created for.
+         */
+        final List<Type> types = new ArrayList<>();
+
+        @Override
+        public Object produce(FacesContext facesContext, ActionMappingMatch actionMappingMatch,
+                Class<?> parameterType, Annotation[] parameterAnnotations) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ActionParameterResolver getResolver(Class<?> parameterType, Type genericParameterType,
+                Annotation[] parameterAnnotations) {
+            types.add(genericParameterType);
+            String value = parameterType.getSimpleName();
+            return (facesContext, actionMappingMatch) -> parameterType == String.class ? value : 1;
+        }
+    }
+
+    /**
+     * The bean the test methods are invoked on.
+     */
+    public static class TestBean {
+
+        /**
+         * A method that throws.
+         *
+         * @return never.
+         */
+        public CompletionStage<String> fail() {
+            throw new IllegalStateException();
+        }
+
+        /**
+         * A method without parameters.
+         *
+         * @return 'hello'.
+         */
+        public CompletionStage<String> hello() {
+            return CompletableFuture.completedFuture("hello");
+        }
+
+        /**
+         * A method with parameters.
+         *
+         * @param value the string.
+         * @param number the number.
+         * @return the string and the type of the number.
+         */
+        public CompletionStage<String> join(String value, Integer number) {
+            return CompletableFuture.completedFuture(value + "-" + number.getClass().getSimpleName());
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.action;
+
+import com.manorrock.oyena.lifecycle.common.ParameterConversionException;
+import jakarta.faces.context.ExternalContextWrapper;
+import jakarta.faces.context.FacesContext;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the DefaultActionParameterBinder class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class DefaultActionParameterBinderTest {
+
+    /**
+     * Bind the parameter of a method of the test bean.
+     *
+     * @param binder the binder.
+     * @param name the name of the method.
+     * @return the resolver.
+     */
+    private static ActionParameterResolver bind(DefaultActionParameterBinder binder, String name) {
+        for (Method method : TestBean.class.getMethods()) {
+            if (method.getName().equals(name)) {
+                return binder.bind(method.getParameterTypes()[0],
+                        method.getGenericParameterTypes()[0], method.getParameterAnnotations()[0]);
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    /**
+     * Test bind method with cookies.
+     */
+    @Test
+    void testBind() {
+        DefaultActionParameterBinder binder = new DefaultActionParameterBinder();
+        TestExternalContext externalContext = new TestExternalContext();
+        Cookie cookie = new Cookie("visits", "42");
+        externalContext.cookies.put("visits", cookie);
+        FacesContext facesContext = ActionStubs.facesContext(externalContext);
+        assertEquals(42, bind(binder, "visits").resolve(facesContext, null));
+        assertSame(cookie, bind(binder, "cookie").resolve(facesContext, null));
+        cookie.setValue("x");
+        ParameterConversionException exception = assertThrows(ParameterConversionException.class,
+                () -> bind(binder, "visits").resolve(facesContext, null));
+        assertEquals("visits", exception.getParameter());
+    }
+
+    /**
+     * Test bind method with session and request attributes.
+     */
+    @Test
+    void testBind2() {
+        DefaultActionParameterBinder binder = new DefaultActionParameterBinder();
+        TestExternalContext externalContext = new TestExternalContext();
+        FacesContext facesContext = ActionStubs.facesContext(externalContext);
+        assertNull(bind(binder, "user").resolve(facesContext, null));
+        UUID user = UUID.randomUUID();
+        externalContext.sessionMap = new HashMap<>(Map.of("user", user.toString()));
+        assertEquals(user, bind(binder, "user").resolve(facesContext, null));
+        externalContext.sessionMap.put("user", user);
+        assertSame(user, bind(binder, "user").resolve(facesContext, null));
+        assertEquals(Optional.empty(), bind(binder, "count").resolve(facesContext, null));
+        externalContext.requestMap.put("count", "7");
+        assertEquals(Optional.of(7), bind(binder, "count").resolve(facesContext, null));
+    }
+
+    /**
+     * Test bind method with a request body in an unknown charset.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testBind3() throws Exception {
+        DefaultActionParameterBinder binder = new DefaultActionParameterBinder();
+        TestExternalContext externalContext = new TestExternalContext();
+        externalContext.request = ActionStubs.stub(HttpServletRequest.class, Map.of(
+                "getCharacterEncoding", arguments -> "x-bogus",
+                "getInputStream", arguments -> new TestInputStream("caf\u00e9")));
+        FacesContext facesContext = ActionStubs.facesContext(externalContext);
+        assertEquals("caf\u00e9", bind(binder, "text").resolve(facesContext, null));
+        try (BufferedReader reader = (BufferedReader) bind(binder, "reader").resolve(facesContext, null)) {
+            assertEquals("caf\u00e9", reader.readLine());
+        }
+    }
+
+    /**
+     * An external context backed by maps.
+     */
+    static class TestExternalContext extends ExternalContextWrapper {
+
+        /**
+         * Stores the cookies.
+         */
+        final Map<String, Object> cookies = new HashMap<>();
+
+        /**
+         * Stores the request.
+         */
+        Object request;
+
+        /**
+         * Stores the request attributes.
+         */
+        final Map<String, Object> requestMap = new HashMap<>();
+
+        /**
+         * Stores the session attributes (null when there is no session).
+         */
+        Map<String, Object> sessionMap;
+
+        /**
+         * Constructor.
+         */
+        TestExternalContext() {
+            super(null);
+        }
+
+        @Override
+        public Object getRequest() {
+            return request;
+        }
+
+        @Override
+        public Map<String, Object> getRequestCookieMap() {
+            return cookies;
+        }
+
+        @Override
+        public Map<String, Object> getRequestMap() {
+            return requestMap;
+        }
+
+        @Override
+        public Object getSession(boolean create) {
+            return sessionMap;
+        }
+
+        @Override
+        public Map<String, Object> getSessionMap() {
+            return sessionMap;
+        }
+    }
+
+    /**
+     * A servlet input stream over a string.
+     */
+    static class TestInputStream extends ServletInputStream {
+
+        /**
+         * Stores the input stream.
+         */
+        private final ByteArrayInputStream input;
+
+        /**
+         * Constructor.
+         *
+         * @param content the content.
+         */
+        TestInputStream(String content) {
+            input = new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public boolean isFinished() {
+            return input.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read() {
+            return input.read();
+        }
+    }
+
+    /**
+     * The bean with the parameters that are bound.
+     */
+    public static class TestBean {
+
+        /**
+         * Take a whole cookie.
+         *
+         * @param cookie the cookie.
+         */
+        public void cookie(@ActionCookieParameter("visits") Cookie cookie) {
+        }
+
+        /**
+         * Take an optional request attribute.
+         *
+         * @param count the count.
+         */
+        public void count(@ActionRequestAttribute("count") Optional<Integer> count) {
+        }
+
+        /**
+         * Take the request body as a reader.
+         *
+         * @param reader the reader.
+         */
+        public void reader(@ActionRequestBody Reader reader) {
+        }
+
+        /**
+         * Take the request body as a String.
+         *
+         * @param text the text.
+         */
+        public void text(@ActionRequestBody String text) {
+        }
+
+        /**
+         * Take a session attribute.
+         *
+         * @param user the user.
+         */
+        public void user(@ActionSessionAttribute("user") UUID user) {
+        }
+
+        /**
+         * Take a cookie value.
+         *
+         * @param visits the number of visits.
+         */
+        public void visits(@ActionCookieParameter("visits") int visits) {
+        }
+    }
+}
@@ -0,0 +1,448 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import jakarta.enterprise.context.Dependent;
+import jakarta.enterprise.inject.Instance;
+import jakarta.enterprise.inject.spi.Bean;
+import java.util.Iterator;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * The instances of a bean that serves requests.
+ *
+ * <p>
+ *  The Instance of the bean is resolved once. For a bean of any scope other
+ *  than @Dependent the contextual reference (the client proxy for a normal
+ *  scope) is cached as well and handed out for every request. A @Dependent
+ *  bean gets a new instance per request that is destroyed afterwards, unless
+ *  the lifecycle asks for pooling (eg. because of @ActionPooled or @RestPooled)
+ *  in which case instances are taken from and returned to a bounded pool.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class BeanInstances {
+
+    /**
+     * Stores the Instance.
+     */
+    private final Instance<?> instance;
+
+    /**
+     * Stores the pool (if pooled).
+     */
+    private final InstancePool<Instance.Handle<?>> pool;
+
+    /**
+     * Stores the shared handle (if not @Dependent).
+     */
+    private final Instance.Handle<?> shared;
+
+    /**
+     * Constructor.
+     *
+     * @param bean the bean.
+     * @param instance the Instance of the bean.
+     * @param poolSize the maximum number of idle instances of a @Dependent
+     * bean, or -1 if it is not pooled.
+     */
+    protected BeanInstances(Bean<?> bean, Instance<?> instance, int poolSize) {
+        this.instance = instance;
+        if (!Dependent.class.equals(bean.getScope())) {
+            shared = instance.getHandle();
+            pool = null;
+        } else if (poolSize != -1) {
+            shared = null;
+            pool = new InstancePool<>(poolSize, instance::getHandle, Instance.Handle::destroy);
+        } else {
+            shared = null;
+            pool = null;
+        }
+    }
+
+    /**
+     * Acquire a handle to an instance.
+     *
+     * @return the handle.
+     */
+    public Instance.Handle<?> acquire() {
+        if (shared != null) {
+            return shared;
+        }
+        if (pool != null) {
+            return pool.acquire();
+        }
+        return instance.getHandle();
+    }
+
+    /**
+     * Release a handle.
+     *
+     * @param handle the handle.
+     */
+    public void release(Instance.Handle<?> handle) {
+        if (shared == null) {
+            if (pool != null) {
+                pool.release(handle);
+            } else {
+                handle.destroy();
+            }
+        }
+    }
+
+    /**
+     * Release a handle once the result of the method invoked on its instance
+     * is done with.
+     *
+     * <p>
+     *  A result that can still call into the instance after the method
+     *  returned keeps the handle: a CompletionStage until it completes, a
+     *  Stream until it is closed, an Iterator until it is exhausted or closed
+     *  and a Flow.Publisher until its subscriber completes, fails or cancels,
+     *  or until it is closed without a subscriber. The Iterator and the
+     *  Flow.Publisher are wrapped to notice this and the wrappers are
+     *  AutoCloseable, so whoever drops the result unused must close it. Any
+     *  other result releases the handle right away.
+     * </p>
+     *
+     * @param handle the handle.
+     * @param result the result of the method.
+     * @return the result, possibly wrapped.
+     */
+    public Object release(Instance.Handle<?> handle, Object result) {
+        if (shared != null) {
+            return result;
+        }
+        if (result instanceof CompletionStage<?> stage) {
+            stage.whenComplete((value, throwable) -> release(handle));
+            return result;
+        }
+        if (result instanceof Stream<?> stream) {
+            return stream.onClose(new Release(handle));
+        }
+        if (result instanceof Iterator<?> iterator) {
+            return new ReleasingIterator<>(iterator, new Release(handle));
+        }
+        if (result instanceof Flow.Publisher<?> publisher) {
+            return new ReleasingPublisher<>(publisher, new Release(handle));
+        }
+        release(handle);
+        return result;
+    }
+
+    /**
+     * Destroy the pooled instances.
+     */
+    public void destroy() {
+        if (pool != null) {
+            pool.clear();
+        }
+    }
+
+    /**
+     * Releases a handle at most once.
+     */
+    private class Release implements Runnable {
+
+        /**
+         * Stores the released flag.
+         */
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * Stores the handle.
+         */
+        private final Instance.Handle<?> handle;
+
+        /**
+         * Constructor.
+         *
+         * @param handle the handle.
+         */
+        Release(Instance.Handle<?> handle) {
+            this.handle = handle;
+        }
+
+        /**
+         * Release the handle, unless it already was.
+         */
+        @Override
+        public void run() {
+            if (released.compareAndSet(false, true)) {
+                release(handle);
+            }
+        }
+    }
+
+    /**
+     * An Iterator that releases a handle when it is exhausted or closed.
+     *
+     * @param <T> the type of the elements.
+     */
+    @SuppressWarnings("try")
+    private static class ReleasingIterator<T> implements Iterator<T>, AutoCloseable {
+
+        /**
+         * Stores the iterator.
+         */
+        private final Iterator<T> iterator;
+
+        /**
+         * Stores the release.
+         */
+        private final Runnable release;
+
+        /**
+         * Constructor.
+         *
+         * @param iterator the iterator.
+         * @param release the release.
+         */
+        ReleasingIterator(Iterator<T> iterator, Runnable release) {
+            this.iterator = iterator;
+            this.release = release;
+        }
+
+        /**
+         * Does the iterator have more elements, releasing the handle if not.
+         *
+         * @return true if it does, false otherwise.
+         */
+        @Override
+        public boolean hasNext() {
+            boolean hasNext;
+            try {
+                hasNext = iterator.hasNext();
+            } catch (RuntimeException re) {
+                release.run();
+                throw re;
+            }
+            if (!hasNext) {
+                release.run();
+            }
+            return hasNext;
+        }
+
+        /**
+         * Get the next element.
+         *
+         * @return the next element.
+         */
+        @Override
+        public T next() {
+            return iterator.next();
+        }
+
+        /**
+         * Remove the last element returned.
+         */
+        @Override
+        public void remove() {
+            iterator.remove();
+        }
+
+        /**
+         * Close the iterator (if it is AutoCloseable) and release the handle.
+         *
+         * @throws Exception when closing the iterator fails.
+         */
+        @Override
+        public void close() throws Exception {
+            try {
+                if (iterator instanceof AutoCloseable closeable) {
+                    closeable.close();
+                }
+            } finally {
+                release.run();
+            }
+        }
+    }
+
+    /**
+     * A Flow.Publisher that releases a handle when its subscriber completes,
+     * fails or cancels, or when it is closed without a subscriber.
+     *
+     * @param <T> the type of the items.
+     */
+    private static class ReleasingPublisher<T> implements Flow.Publisher<T>, AutoCloseable {
+
+        /**
+         * Stores the publisher.
+         */
+        private final Flow.Publisher<T> publisher;
+
+        /**
+         * Stores the release.
+         */
+        private final Runnable release;
+
+        /**
+         * Stores the subscribed flag.
+         */
+        private final AtomicBoolean subscribed = new AtomicBoolean();
+
+        /**
+         * Constructor.
+         *
+         * @param publisher the publisher.
+         * @param release the release.
+         */
+        ReleasingPublisher(Flow.Publisher<T> publisher, Runnable release) {
+            this.publisher = publisher;
+            this.release = release;
+        }
+
+        /**
+         * Subscribe to the publisher.
+         *
+         * @param subscriber the subscriber.
+         */
+        @Override
+        public void subscribe(Flow.Subscriber<? super T> subscriber) {
+            subscribed.set(true);
+            publisher.subscribe(new ReleasingSubscriber<>(subscriber, release));
+        }
+
+        /**
+         * Release the handle if there is no subscriber.
+         */
+        @Override
+        public void close() {
+            if (!subscribed.get()) {
+                release.run();
+            }
+        }
+    }
+
+    /**
+     * A Flow.Subscriber (and the Flow.Subscription it hands out) that
+     * releases a handle when the subscription ends.
+     *
+     * @param <T> the type of the items.
+     */
+    private static class ReleasingSubscriber<T> implements Flow.Subscriber<T>, Flow.Subscription {
+
+        /**
+         * Stores the release.
+         */
+        private final Runnable release;
+
+        /**
+         * Stores the subscriber.
+         */
+        private final Flow.Subscriber<? super T> subscriber;
+
+        /**
+         * Stores the subscription.
+         */
+        private volatile Flow.Subscription subscription;
+
+        /**
+         * Constructor.
+         *
+         * @param subscriber the subscriber.
+         * @param release the release.
+         */
+        ReleasingSubscriber(Flow.Subscriber<? super T> subscriber, Runnable release) {
+            this.subscriber = subscriber;
+            this.release = release;
+        }
+
+        /**
+         * Handle the subscription.
+         *
+         * @param subscription the subscription.
+         */
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscriber.onSubscribe(this);
+        }
+
+        /**
+         * Handle an item.
+         *
+         * @param item the item.
+         */
+        @Override
+        public void onNext(T item) {
+            subscriber.onNext(item);
+        }
+
+        /**
+         * Handle the failure of the publisher and release the handle.
+         *
+         * @param throwable the throwable.
+         */
+        @Override
+        public void onError(Throwable throwable) {
+            try {
+                subscriber.onError(throwable);
+            } finally {
+                release.run();
+            }
+        }
+
+        /**
+         * Handle the completion of the publisher and release the handle.
+         */
+        @Override
+        public void onComplete() {
+            try {
+                subscriber.onComplete();
+            } finally {
+                release.run();
+            }
+        }
+
+        /**
+         * Request items.
+         *
+         * @param n the number of items.
+         */
+        @Override
+        public void request(long n) {
+            subscription.request(n);
+        }
+
+        /**
+         * Cancel the subscription and release the handle.
+         */
+        @Override
+        public void cancel() {
+            try {
+                subscription.cancel();
+            } finally {
+                release.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,399 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A fan-out of sub-tasks that run concurrently on virtual threads.
+ *
+ * <p>
+ *  Every forked task runs on its own virtual thread. An optional timeout sets
+ *  a deadline for all tasks; a task that has not completed by then is
+ *  cancelled (its thread is interrupted), whether anyone waits for it or not,
+ *  and all tasks still running are cancelled when the fan-out is closed. Waiting
+ *  for the fan-out as a whole throws the failure of the task that failed
+ *  first, if any. The duration of every task is recorded so it can be
+ *  reported, eg. as a Server-Timing header.
+ * </p>
+ * <p>
+ *  Tasks run on threads of their own, so they must not use thread bound
+ *  state such as the FacesContext or request scoped beans; read what they
+ *  need before forking them.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class FanOut implements AutoCloseable {
+
+    /**
+     * Stores the deadline (in System.nanoTime terms).
+     */
+    private volatile long deadline;
+
+    /**
+     * Stores the failure of the task that failed first.
+     */
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * Stores whether there is a deadline.
+     */
+    private volatile boolean hasDeadline;
+
+    /**
+     * Stores the tasks.
+     */
+    private final List<Task<?>> tasks = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructor.
+     */
+    public FanOut() {
+        // nothing to do here.
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param timeout the timeout, counting from now (null for none).
+     */
+    public FanOut(Duration timeout) {
+        if (timeout != null) {
+            deadline = System.nanoTime() + timeout.toNanos();
+            hasDeadline = true;
+        }
+    }
+
+    /**
+     * Set the timeout.
+     *
+     * @param timeout the timeout, counting from now (null for none).
+     */
+    public void setTimeout(Duration timeout) {
+        if (timeout != null) {
+            deadline = System.nanoTime() + timeout.toNanos();
+            hasDeadline = true;
+            for (Task<?> task : tasks) {
+                scheduleDeadline(task);
+            }
+        } else {
+            hasDeadline = false;
+        }
+    }
+
+    /**
+     * Fork a task.
+     *
+     * @param <T> the type of the result.
+     * @param name the name (used for the timings).
+     * @param callable the callable.
+     * @return the task.
+     */
+    public <T> Task<T> fork(String name, Callable<T> callable) {
+        Task<T> task = new Task<>(this, name);
+        tasks.add(task);
+        Thread thread = Thread.ofVirtual().name("oyena-fan-out-" + name).unstarted(() -> task.run(callable));
+        task.thread = thread;
+        thread.start();
+        scheduleDeadline(task);
+        return task;
+    }
+
+    /**
+     * Fork a task named after its position.
+     *
+     * @param <T> the type of the result.
+     * @param callable the callable.
+     * @return the task.
+     */
+    public <T> Task<T> fork(Callable<T> callable) {
+        return fork("task" + tasks.size(), callable);
+    }
+
+    /**
+     * Wait for all tasks to complete, cancelling the ones that are still
+     * running at the deadline.
+     *
+     * <p>
+     *  A task that was cancelled is not a failure, its join method throws a
+     *  CancellationException.
+     * </p>
+     *
+     * @throws InterruptedException when the current thread is interrupted.
+     * @throws CompletionException when a task failed, with the failure of the
+     * task that failed first as its cause.
+     */
+    public void join() throws InterruptedException {
+        for (Task<?> task : tasks) {
+            task.await();
+        }
+        Throwable first = failure.get();
+        if (first != null) {
+            throw new CompletionException(first);
+        }
+    }
+
+    /**
+     * Cancel all tasks that are still running.
+     */
+    public void cancel() {
+        for (Task<?> task : tasks) {
+            task.cancel();
+        }
+    }
+
+    /**
+     * Close the fan-out by cancelling all tasks that are still running.
+     */
+    @Override
+    public void close() {
+        cancel();
+    }
+
+    /**
+     * Get the tasks.
+     *
+     * @return the tasks (in the order they were forked).
+     */
+    public List<Task<?>> getTasks() {
+        return List.copyOf(tasks);
+    }
+
+    /**
+     * Get the timings of the completed tasks in Server-Timing header format.
+     *
+     * @return the timings (eg. 'users;dur=12.5, orders;dur=40.1'), or an
+     * empty string if no task has completed.
+     */
+    public String toServerTiming() {
+        StringBuilder builder = new StringBuilder();
+        for (Task<?> task : tasks) {
+            Duration duration = task.getDuration();
+            if (duration != null) {
+                if (!builder.isEmpty()) {
+                    builder.append(", ");
+                }
+                for (int i = 0; i < task.getName().length(); i++) {
+                    char c = task.getName().charAt(i);
+                    builder.append(Character.isLetterOrDigit(c) || c == '-' || c == '.' || c == '_' ? c : '_');
+                }
+                builder.append(";dur=").append(String.format(Locale.ROOT, "%.1f", duration.toNanos() / 1e6));
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Schedule the cancellation of a task at the deadline (if any).
+     *
+     * <p>
+     *  When the deadline was moved in the meantime the cancellation is
+     *  scheduled again for the new deadline.
+     * </p>
+     *
+     * @param task the task.
+     */
+    private void scheduleDeadline(Task<?> task) {
+        long remaining = remaining();
+        if (remaining != Long.MAX_VALUE && !task.isDone()) {
+            CompletableFuture.delayedExecutor(Math.max(remaining, 0), TimeUnit.NANOSECONDS).execute(() -> {
+                if (remaining() <= 0) {
+                    task.cancel();
+                } else {
+                    scheduleDeadline(task);
+                }
+            });
+        }
+    }
+
+    /**
+     * Get the remaining time until the deadline.
+     *
+     * @return the remaining nanoseconds, or Long.MAX_VALUE if there is no
+     * deadline.
+     */
+    private long remaining() {
+        return hasDeadline ? deadline - System.nanoTime() : Long.MAX_VALUE;
+    }
+
+    /**
+     * A forked task.
+     *
+     * @param <T> the type of the result.
+     */
+    public static class Task<T> {
+
+        /**
+         * Stores the duration in nanoseconds (-1 while running).
+         */
+        private volatile long duration = -1;
+
+        /**
+         * Stores the fan-out.
+         */
+        private final FanOut fanOut;
+
+        /**
+         * Stores the future.
+         */
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        /**
+         * Stores the name.
+         */
+        private final String name;
+
+        /**
+         * Stores the thread.
+         */
+        private volatile Thread thread;
+
+        /**
+         * Constructor.
+         *
+         * @param fanOut the fan-out.
+         * @param name the name.
+         */
+        Task(FanOut fanOut, String name) {
+            this.fanOut = fanOut;
+            this.name = name;
+        }
+
+        /**
+         * Run the callable.
+         *
+         * @param callable the callable.
+         */
+        void run(Callable<T> callable) {
+            long start = System.nanoTime();
+            T result = null;
+            Throwable throwable = null;
+            try {
+                result = callable.call();
+            } catch (Throwable t) {
+                throwable = t;
+            }
+            duration = System.nanoTime() - start;
+            if (throwable == null) {
+                future.complete(result);
+            } else if (future.completeExceptionally(throwable)) {
+                fanOut.failure.compareAndSet(null, throwable);
+            }
+        }
+
+        /**
+         * Wait for the task until the deadline, cancelling it when the
+         * deadline passes.
+         *
+         * @throws InterruptedException when the current thread is interrupted.
+         */
+        void await() throws InterruptedException {
+            long remaining = fanOut.remaining();
+            try {
+                if (remaining == Long.MAX_VALUE) {
+                    future.get();
+                } else {
+                    future.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+                }
+            } catch (ExecutionException | CancellationException e) {
+                // thrown by join.
+            } catch (TimeoutException te) {
+                cancel();
+            }
+        }
+
+        /**
+         * Cancel the task (if still running).
+         */
+        public void cancel() {
+            if (future.cancel(false)) {
+                Thread current = thread;
+                if (current != null) {
+                    current.interrupt();
+                }
+            }
+        }
+
+        /**
+         * Wait for the result.
+         *
+         * @return the result.
+         * @throws CompletionException when the task failed.
+         * @throws CancellationException when the task was cancelled or did
+         * not complete before the deadline.
+         */
+        public T join() {
+            try {
+                await();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                cancel();
+            }
+            return future.join();
+        }
+
+        /**
+         * Get the duration.
+         *
+         * @return the duration, or null if the task is still running.
+         */
+        public Duration getDuration() {
+            long nanos = duration;
+            return nanos >= 0 ? Duration.ofNanos(nanos) : null;
+        }
+
+        /**
+         * Get the name.
+         *
+         * @return the name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Is the task done (completed, failed or cancelled).
+         *
+         * @return true if it is, false otherwise.
+         */
+        public boolean isDone() {
+            return future.isDone();
+        }
+    }
+}
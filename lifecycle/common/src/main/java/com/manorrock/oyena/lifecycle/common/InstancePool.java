@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of reusable instances.
+ *
+ * <p>
+ *  Acquiring takes an idle instance, or creates a new one when there is none,
+ *  so acquiring never blocks. Releasing puts the instance back unless the
+ *  pool already holds capacity idle instances, in which case the instance is
+ *  disposed of.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ * @param <T> the type of the instances.
+ */
+public class InstancePool<T> {
+
+    /**
+     * Stores the number of instances created.
+     */
+    private final LongAdder created = new LongAdder();
+
+    /**
+     * Stores the disposer.
+     */
+    private final Consumer<? super T> disposer;
+
+    /**
+     * Stores the factory.
+     */
+    private final Supplier<? extends T> factory;
+
+    /**
+     * Stores the idle instances.
+     */
+    private final ArrayBlockingQueue<T> idle;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity the maximum number of idle instances.
+     * @param factory the factory that creates an instance.
+     * @param disposer the disposer that disposes of an instance.
+     */
+    public InstancePool(int capacity, Supplier<? extends T> factory, Consumer<? super T> disposer) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        this.idle = new ArrayBlockingQueue<>(capacity);
+        this.factory = factory;
+        this.disposer = disposer;
+    }
+
+    /**
+     * Acquire an instance.
+     *
+     * @return the instance.
+     */
+    public T acquire() {
+        T instance = idle.poll();
+        if (instance == null) {
+            instance = factory.get();
+            created.increment();
+        }
+        return instance;
+    }
+
+    /**
+     * Release an instance.
+     *
+     * @param instance the instance.
+     */
+    public void release(T instance) {
+        if (!idle.offer(instance)) {
+            disposer.accept(instance);
+        }
+    }
+
+    /**
+     * Dispose of all idle instances.
+     */
+    public void clear() {
+        T instance;
+        while ((instance = idle.poll()) != null) {
+            disposer.accept(instance);
+        }
+    }
+
+    /**
+     * Get the capacity.
+     *
+     * @return the capacity.
+     */
+    public int getCapacity() {
+        return idle.size() + idle.remainingCapacity();
+    }
+
+    /**
+     * Get the number of instances created.
+     *
+     * @return the number of instances created.
+     */
+    public long getCreated() {
+        return created.sum();
+    }
+
+    /**
+     * Get the number of idle instances.
+     *
+     * @return the number of idle instances.
+     */
+    public int size() {
+        return idle.size();
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The regex set that uses java.util.regex.
+ *
+ * <p>
+ *  The regular expressions are compiled once into a single alternation where
+ *  every alternative is wrapped in a marker group that identifies it. Named
+ *  groups are renamed so the same group name can be used by more than one
+ *  regular expression. A regular expression that cannot be combined (eg. one
+ *  using a numeric back reference or comments mode) is matched on its own
+ *  while keeping its position in the set.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class JavaRegexSet implements RegexSet {
+
+    /**
+     * Stores the group names for every regular expression.
+     */
+    private final String[][] groupNames;
+
+    /**
+     * Stores the group numbers (within their segment) for every regular
+     * expression.
+     */
+    private final int[][] groupNumbers;
+
+    /**
+     * Stores the segments.
+     */
+    private final Segment[] segments;
+
+    /**
+     * Stores the number of regular expressions.
+     */
+    private final int size;
+
+    /**
+     * Constructor.
+     *
+     * @param regexes the regular expressions.
+     * @throws PatternSyntaxException when one of the regular expressions is
+     * invalid.
+     */
+    public JavaRegexSet(List<String> regexes) {
+        this.size = regexes.size();
+        this.groupNames = new String[size][];
+        this.groupNumbers = new int[size][];
+        List<Segment> segmentList = new ArrayList<>();
+        List<String> run = new ArrayList<>();
+        int runStart = 0;
+        for (int i = 0; i < size; i++) {
+            Pattern pattern = Pattern.compile(regexes.get(i));
+            List<String> names = new ArrayList<>();
+            String rewritten = rewrite(regexes.get(i), i, names);
+            groupNames[i] = names.toArray(String[]::new);
+            if (rewritten == null) {
+                addRun(segmentList, regexes, run, runStart);
+                addSingle(segmentList, pattern, i);
+                run.clear();
+                runStart = i + 1;
+            } else {
+                run.add(rewritten);
+            }
+        }
+        addRun(segmentList, regexes, run, runStart);
+        this.segments = segmentList.toArray(Segment[]::new);
+    }
+
+    /**
+     * Add the segment for a single regular expression.
+     *
+     * @param segmentList the segment list.
+     * @param pattern the compiled pattern.
+     * @param index the index of the regular expression.
+     */
+    private void addSingle(List<Segment> segmentList, Pattern pattern, int index) {
+        Map<String, Integer> namedGroups = pattern.namedGroups();
+        groupNames[index] = namedGroups.keySet().toArray(String[]::new);
+        groupNumbers[index] = new int[groupNames[index].length];
+        for (int i = 0; i < groupNames[index].length; i++) {
+            groupNumbers[index][i] = namedGroups.get(groupNames[index][i]);
+        }
+        segmentList.add(new Segment(pattern, index, null));
+    }
+
+    /**
+     * Add the segment(s) for a run of combinable regular expressions.
+     *
+     * @param segmentList the segment list.
+     * @param regexes the original regular expressions.
+     * @param run the rewritten regular expressions of the run.
+     * @param runStart the index of the first regular expression of the run.
+     */
+    private void addRun(List<Segment> segmentList, List<String> regexes,
+            List<String> run, int runStart) {
+        if (run.size() == 1) {
+            addSingle(segmentList, Pattern.compile(regexes.get(runStart)), runStart);
+        } else if (run.size() > 1) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < run.size(); i++) {
+                if (i > 0) {
+                    builder.append('|');
+                }
+                builder.append("(?<r").append(runStart + i).append('>')
+                        .append(run.get(i)).append(')');
+            }
+            try {
+                Pattern pattern = Pattern.compile(builder.toString());
+                Map<String, Integer> namedGroups = pattern.namedGroups();
+                int[] markers = new int[run.size()];
+                for (int i = 0; i < markers.length; i++) {
+                    int index = runStart + i;
+                    markers[i] = namedGroups.get("r" + index);
+                    groupNumbers[index] = new int[groupNames[index].length];
+                    for (int j = 0; j < groupNames[index].length; j++) {
+                        groupNumbers[index][j] = namedGroups.get("r" + index + "n" + j);
+                    }
+                }
+                segmentList.add(new Segment(pattern, runStart, markers));
+            } catch (PatternSyntaxException pse) {
+                for (int i = 0; i < run.size(); i++) {
+                    addSingle(segmentList, Pattern.compile(regexes.get(runStart + i)), runStart + i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rewrite a regular expression so it can be part of the combined pattern.
+     *
+     * @param regex the regular expression.
+     * @param index the index of the regular expression.
+     * @param groupNames the list the group names are added to (in order).
+     * @return the rewritten regular expression, or null if it cannot be
+     * combined.
+     */
+    private static String rewrite(String regex, int index, List<String> groupNames) {
+        StringBuilder builder = new StringBuilder(regex.length() + 16);
+        Map<String, String> names = new HashMap<>();
+        int length = regex.length();
+        int i = 0;
+        while (i < length) {
+            char c = regex.charAt(i);
+            if (c == '\\' && i + 1 < length) {
+                char next = regex.charAt(i + 1);
+                if (next == 'Q') {
+                    int end = regex.indexOf("\\E", i + 2);
+                    int stop = end == -1 ? length : end + 2;
+                    builder.append(regex, i, stop);
+                    i = stop;
+                } else if (next == 'k' && regex.startsWith("<", i + 2)) {
+                    int end = regex.indexOf('>', i + 3);
+                    String renamed = end == -1 ? null : names.get(regex.substring(i + 3, end));
+                    if (renamed == null) {
+                        return null;
+                    }
+                    builder.append("\\k<").append(renamed).append('>');
+                    i = end + 1;
+                } else if (next >= '1' && next <= '9') {
+                    return null;
+                } else {
+                    builder.append(c).append(next);
+                    i += 2;
+                }
+            } else if (c == '[') {
+                int end = skipCharacterClass(regex, i);
+                builder.append(regex, i, end);
+                i = end;
+            } else if (c == '(' && regex.startsWith("(?<", i)
+                    && i + 3 < length && Character.isLetter(regex.charAt(i + 3))) {
+                int end = regex.indexOf('>', i + 3);
+                if (end == -1) {
+                    return null;
+                }
+                String renamed = "r" + index + "n" + names.size();
+                names.put(regex.substring(i + 3, end), renamed);
+                groupNames.add(regex.substring(i + 3, end));
+                builder.append("(?<").append(renamed).append('>');
+                i = end + 1;
+            } else if (c == '(' && regex.startsWith("(?", i)) {
+                int end = i + 2;
+                while (end < length && (Character.isLetter(regex.charAt(end)) || regex.charAt(end) == '-')) {
+                    end++;
+                }
+                String flags = regex.substring(i + 2, end);
+                int minus = flags.indexOf('-');
+                if ((minus == -1 ? flags : flags.substring(0, minus)).indexOf('x') != -1) {
+                    return null;
+                }
+                builder.append(c);
+                i++;
+            } else {
+                builder.append(c);
+                i++;
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Skip a character class.
+     *
+     * @param regex the regular expression.
+     * @param start the index of the opening bracket.
+     * @return the index just after the closing bracket.
+     */
+    private static int skipCharacterClass(String regex, int start) {
+        int depth = 0;
+        int i = start;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                depth++;
+            } else if (c == ']') {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+        return regex.length();
+    }
+
+    @Override
+    public RegexSetMatch match(CharSequence input) {
+        for (Segment segment : segments) {
+            Matcher matcher = segment.pattern.matcher(input);
+            if (matcher.matches()) {
+                int index = segment.start;
+                if (segment.markers != null) {
+                    int i = 0;
+                    while (matcher.start(segment.markers[i]) == -1) {
+                        i++;
+                    }
+                    index += i;
+                }
+                int[] spans = new int[groupNumbers[index].length * 2];
+                for (int i = 0; i < groupNumbers[index].length; i++) {
+                    spans[2 * i] = matcher.start(groupNumbers[index][i]);
+                    spans[2 * i + 1] = matcher.end(groupNumbers[index][i]);
+                }
+                return new RegexSetMatch(index, input, groupNames[index], spans);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * A segment of the set.
+     */
+    private static class Segment {
+
+        /**
+         * Stores the marker group numbers (null if the segment only contains
+         * one regular expression).
+         */
+        private final int[] markers;
+
+        /**
+         * Stores the compiled pattern.
+         */
+        private final Pattern pattern;
+
+        /**
+         * Stores the index of the first regular expression in the segment.
+         */
+        private final int start;
+
+        /**
+         * Constructor.
+         *
+         * @param pattern the compiled pattern.
+         * @param start the index of the first regular expression.
+         * @param markers the marker group numbers, or null.
+         */
+        Segment(Pattern pattern, int start, int[] markers) {
+            this.pattern = pattern;
+            this.start = start;
+            this.markers = markers;
+        }
+    }
+}
@@ -0,0 +1,953 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The compiler for the linear-time regex engine.
+ *
+ * <p>
+ *  The compiler turns regular expressions into a program for a Thompson NFA
+ *  that is executed by the LinearRegexSet class. It supports literals, '.',
+ *  character classes (no nesting or intersection), the \d, \D, \s, \S, \w and
+ *  \W classes, \Q...\E quoting, capturing, named and non-capturing groups,
+ *  alternation, the greedy and lazy quantifiers and the '^' and '$' anchors.
+ *  Constructs that require backtracking (back references, look-around,
+ *  possessive quantifiers and atomic groups) and inline flags are rejected.
+ * </p>
+ *
+ * <p>
+ *  Like java.util.regex a repetition stops after an iteration that matched the
+ *  empty string, keeping the captures of that iteration. Repetitions whose
+ *  body can match the empty string get a loop level and MARK and PROGRESS
+ *  instructions to implement this. The one difference left is a repeated
+ *  capturing group that can only match the empty string, like (?&lt;x&gt;)*,
+ *  where java.util.regex does not capture the optional iterations.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class LinearRegexCompiler {
+
+    /**
+     * Matches a single character.
+     */
+    static final int CHAR = 0;
+
+    /**
+     * Matches any character except a line terminator.
+     */
+    static final int ANY = 1;
+
+    /**
+     * Matches a character class.
+     */
+    static final int CLASS = 2;
+
+    /**
+     * Continues at x (preferred) and at y.
+     */
+    static final int SPLIT = 3;
+
+    /**
+     * Continues at x.
+     */
+    static final int JUMP = 4;
+
+    /**
+     * Saves the position in capture slot x.
+     */
+    static final int SAVE = 5;
+
+    /**
+     * Matches regular expression x.
+     */
+    static final int MATCH = 6;
+
+    /**
+     * Asserts the position is the start of the input.
+     */
+    static final int BEGIN = 7;
+
+    /**
+     * Asserts the position is the end of the input.
+     */
+    static final int END = 8;
+
+    /**
+     * Records that an iteration of the loop at level x starts here.
+     */
+    static final int MARK = 9;
+
+    /**
+     * Continues at y if the iteration of the loop at level x matched the
+     * empty string, and at the next instruction otherwise.
+     */
+    static final int PROGRESS = 10;
+
+    /**
+     * Stores the maximum number of a counted repetition.
+     */
+    private static final int MAX_REPETITION = 1000;
+
+    /**
+     * Stores the maximum size of a program.
+     */
+    private static final int MAX_PROGRAM_SIZE = 1_000_000;
+
+    /**
+     * Stores the loop level of the repetition being emitted.
+     */
+    private int depth;
+
+    /**
+     * Stores the entry of the program.
+     */
+    private int entry = -1;
+
+    /**
+     * Stores the number of loop levels used.
+     */
+    private int levels;
+
+    /**
+     * Stores the instructions.
+     */
+    private final List<Instruction> program = new ArrayList<>();
+
+    /**
+     * Stores the number of capture slots used.
+     */
+    private int slots;
+
+    /**
+     * Stores the start instruction of every regular expression.
+     */
+    private final List<Integer> starts = new ArrayList<>();
+
+    /**
+     * Add a regular expression.
+     *
+     * @param regex the regular expression.
+     * @return the names of its named groups, their capture slots start at
+     * the value returned by getSlots before this call.
+     * @throws PatternSyntaxException when the regular expression is invalid
+     * or not supported by the linear-time engine.
+     */
+    String[] add(String regex) {
+        Parser parser = new Parser(regex, slots);
+        Node node = parser.parse();
+        starts.add(program.size());
+        emit(node, regex);
+        Instruction match = add(MATCH, regex);
+        match.x = starts.size() - 1;
+        slots += parser.names.size();
+        return parser.names.toArray(String[]::new);
+    }
+
+    /**
+     * Build the program.
+     *
+     * @return the program.
+     */
+    Instruction[] build() {
+        entry = starts.isEmpty() ? -1 : starts.get(starts.size() - 1);
+        for (int i = starts.size() - 2; i >= 0; i--) {
+            Instruction split = add(SPLIT, null);
+            split.x = starts.get(i);
+            split.y = entry;
+            entry = program.size() - 1;
+        }
+        return program.toArray(Instruction[]::new);
+    }
+
+    /**
+     * Get the entry of the program.
+     *
+     * <p>
+     *  The entry tries every regular expression in the order they were added.
+     * </p>
+     *
+     * @return the index of the entry instruction, or -1 if there are no
+     * regular expressions.
+     */
+    int getEntry() {
+        return entry;
+    }
+
+    /**
+     * Get the number of loop levels.
+     *
+     * @return the number of loop levels.
+     */
+    int getLevels() {
+        return levels;
+    }
+
+    /**
+     * Get the number of capture slots.
+     *
+     * @return the number of capture slots.
+     */
+    int getSlots() {
+        return slots;
+    }
+
+    /**
+     * Add an instruction.
+     *
+     * @param op the op code.
+     * @param regex the regular expression (for error reporting).
+     * @return the instruction.
+     */
+    private Instruction add(int op, String regex) {
+        if (program.size() >= MAX_PROGRAM_SIZE) {
+            throw new PatternSyntaxException("Regular expression is too large for the linear-time engine", regex, -1);
+        }
+        Instruction instruction = new Instruction();
+        instruction.op = op;
+        program.add(instruction);
+        return instruction;
+    }
+
+    /**
+     * Emit the instructions for a node.
+     *
+     * @param node the node.
+     * @param regex the regular expression (for error reporting).
+     */
+    private void emit(Node node, String regex) {
+        switch (node.type) {
+            case CHAR -> add(CHAR, regex).c = node.c;
+            case ANY, BEGIN, END -> add(node.type, regex);
+            case CLASS -> {
+                Instruction instruction = add(CLASS, regex);
+                instruction.ranges = node.ranges;
+            }
+            case Node.CONCATENATION -> {
+                for (Node child : node.children) {
+                    emit(child, regex);
+                }
+            }
+            case Node.ALTERNATION -> {
+                List<Instruction> jumps = new ArrayList<>();
+                for (int i = 0; i < node.children.size() - 1; i++) {
+                    Instruction split = add(SPLIT, regex);
+                    split.x = program.size();
+                    emit(node.children.get(i), regex);
+                    jumps.add(add(JUMP, regex));
+                    split.y = program.size();
+                }
+                emit(node.children.get(node.children.size() - 1), regex);
+                for (Instruction jump : jumps) {
+                    jump.x = program.size();
+                }
+            }
+            case Node.CAPTURE -> {
+                add(SAVE, regex).x = 2 * node.slot;
+                emit(node.children.get(0), regex);
+                add(SAVE, regex).x = 2 * node.slot + 1;
+            }
+            case Node.REPETITION -> emitRepetition(node, regex);
+            default -> throw new IllegalStateException();
+        }
+    }
+
+    /**
+     * Emit the instructions for a repetition.
+     *
+     * @param node the repetition node.
+     * @param regex the regular expression (for error reporting).
+     */
+    private void emitRepetition(Node node, String regex) {
+        Node child = node.children.get(0);
+        int level = 0;
+        if (isNullable(child)) {
+            level = ++depth;
+            levels = Math.max(levels, depth);
+        }
+        List<Instruction> exits = new ArrayList<>();
+        for (int i = 0; i < node.min; i++) {
+            emitIteration(child, level, exits, regex);
+        }
+        if (node.max == -1) {
+            int loop = program.size();
+            Instruction split = add(SPLIT, regex);
+            emitIteration(child, level, exits, regex);
+            add(JUMP, regex).x = loop;
+            setSplit(split, loop + 1, program.size(), node.greedy);
+        } else {
+            List<Instruction> splits = new ArrayList<>();
+            for (int i = node.min; i < node.max; i++) {
+                Instruction split = add(SPLIT, regex);
+                split.x = program.size();
+                splits.add(split);
+                emitIteration(child, level, exits, regex);
+            }
+            for (Instruction split : splits) {
+                setSplit(split, split.x, program.size(), node.greedy);
+            }
+        }
+        for (Instruction exit : exits) {
+            exit.y = program.size();
+        }
+        if (level != 0) {
+            depth--;
+        }
+    }
+
+    /**
+     * Emit the instructions for one iteration of a repetition.
+     *
+     * @param child the repeated node.
+     * @param level the loop level (0 if the node cannot match the empty
+     * string).
+     * @param exits the PROGRESS instructions that still need their exit.
+     * @param regex the regular expression (for error reporting).
+     */
+    private void emitIteration(Node child, int level, List<Instruction> exits, String regex) {
+        if (level == 0) {
+            emit(child, regex);
+        } else {
+            add(MARK, regex).x = level;
+            emit(child, regex);
+            Instruction progress = add(PROGRESS, regex);
+            progress.x = level;
+            exits.add(progress);
+        }
+    }
+
+    /**
+     * Can the node match the empty string.
+     *
+     * @param node the node.
+     * @return true if it can, false otherwise.
+     */
+    private static boolean isNullable(Node node) {
+        return switch (node.type) {
+            case CHAR, ANY, CLASS -> false;
+            case Node.CONCATENATION -> node.children.stream().allMatch(LinearRegexCompiler::isNullable);
+            case Node.ALTERNATION -> node.children.stream().anyMatch(LinearRegexCompiler::isNullable);
+            case Node.CAPTURE -> isNullable(node.children.get(0));
+            case Node.REPETITION -> node.min == 0 || isNullable(node.children.get(0));
+            default -> true;
+        };
+    }
+
+    /**
+     * Set the targets of a split.
+     *
+     * @param split the split.
+     * @param body the start of the repeated body.
+     * @param out the instruction after the repetition.
+     * @param greedy true if the body is preferred.
+     */
+    private static void setSplit(Instruction split, int body, int out, boolean greedy) {
+        split.x = greedy ? body : out;
+        split.y = greedy ? out : body;
+    }
+
+    /**
+     * An instruction.
+     */
+    static class Instruction {
+
+        /**
+         * Stores the character.
+         */
+        char c;
+
+        /**
+         * Stores the op code.
+         */
+        int op;
+
+        /**
+         * Stores the character ranges (pairs of inclusive bounds).
+         */
+        int[] ranges;
+
+        /**
+         * Stores the first operand.
+         */
+        int x;
+
+        /**
+         * Stores the second operand.
+         */
+        int y;
+
+        /**
+         * Does the instruction match the character.
+         *
+         * @param ch the character.
+         * @return true if it does, false otherwise.
+         */
+        boolean matches(char ch) {
+            return switch (op) {
+                case CHAR -> ch == c;
+                case ANY -> ch != '\n' && ch != '\r' && ch != 0x85 && ch != 0x2028 && ch != 0x2029;
+                case CLASS -> {
+                    for (int i = 0; i < ranges.length; i += 2) {
+                        if (ch >= ranges[i] && ch <= ranges[i + 1]) {
+                            yield true;
+                        }
+                    }
+                    yield false;
+                }
+                default -> false;
+            };
+        }
+    }
+
+    /**
+     * A node of the syntax tree.
+     */
+    private static class Node {
+
+        /**
+         * A concatenation.
+         */
+        static final int CONCATENATION = 100;
+
+        /**
+         * An alternation.
+         */
+        static final int ALTERNATION = 101;
+
+        /**
+         * A capturing group.
+         */
+        static final int CAPTURE = 102;
+
+        /**
+         * A repetition.
+         */
+        static final int REPETITION = 103;
+
+        /**
+         * Stores the character.
+         */
+        char c;
+
+        /**
+         * Stores the children.
+         */
+        List<Node> children = new ArrayList<>();
+
+        /**
+         * Stores the greedy flag.
+         */
+        boolean greedy;
+
+        /**
+         * Stores the maximum repetition (-1 for unbounded).
+         */
+        int max;
+
+        /**
+         * Stores the minimum repetition.
+         */
+        int min;
+
+        /**
+         * Stores the character ranges.
+         */
+        int[] ranges;
+
+        /**
+         * Stores the capture slot.
+         */
+        int slot;
+
+        /**
+         * Stores the type.
+         */
+        final int type;
+
+        /**
+         * Constructor.
+         *
+         * @param type the type.
+         */
+        Node(int type) {
+            this.type = type;
+        }
+    }
+
+    /**
+     * The parser.
+     */
+    private static class Parser {
+
+        /**
+         * Stores the first capture slot.
+         */
+        private final int firstSlot;
+
+        /**
+         * Stores the group names.
+         */
+        private final List<String> names = new ArrayList<>();
+
+        /**
+         * Stores the position.
+         */
+        private int position;
+
+        /**
+         * Stores the regular expression.
+         */
+        private final String regex;
+
+        /**
+         * Constructor.
+         *
+         * @param regex the regular expression.
+         * @param firstSlot the first capture slot.
+         */
+        Parser(String regex, int firstSlot) {
+            this.regex = regex;
+            this.firstSlot = firstSlot;
+        }
+
+        /**
+         * Parse the regular expression.
+         *
+         * @return the syntax tree.
+         */
+        Node parse() {
+            Node node = parseAlternation();
+            if (position < regex.length()) {
+                throw error("Unmatched closing ')'");
+            }
+            return node;
+        }
+
+        /**
+         * Parse an alternation.
+         *
+         * @return the node.
+         */
+        private Node parseAlternation() {
+            Node node = new Node(Node.ALTERNATION);
+            node.children.add(parseConcatenation());
+            while (position < regex.length() && regex.charAt(position) == '|') {
+                position++;
+                node.children.add(parseConcatenation());
+            }
+            return node.children.size() == 1 ? node.children.get(0) : node;
+        }
+
+        /**
+         * Parse a concatenation.
+         *
+         * @return the node.
+         */
+        private Node parseConcatenation() {
+            Node node = new Node(Node.CONCATENATION);
+            while (position < regex.length()
+                    && regex.charAt(position) != '|' && regex.charAt(position) != ')') {
+                node.children.add(parseRepetition());
+            }
+            return node;
+        }
+
+        /**
+         * Parse a repetition.
+         *
+         * @return the node.
+         */
+        private Node parseRepetition() {
+            Node node = parseAtom();
+            while (position < regex.length()) {
+                char c = regex.charAt(position);
+                int min;
+                int max;
+                if (c == '*') {
+                    min = 0;
+                    max = -1;
+                    position++;
+                } else if (c == '+') {
+                    min = 1;
+                    max = -1;
+                    position++;
+                } else if (c == '?') {
+                    min = 0;
+                    max = 1;
+                    position++;
+                } else if (c == '{') {
+                    int end = regex.indexOf('}', position);
+                    if (end == -1) {
+                        throw error("Illegal repetition");
+                    }
+                    String[] bounds = regex.substring(position + 1, end).split(",", -1);
+                    try {
+                        min = Integer.parseInt(bounds[0]);
+                        max = bounds.length == 1 ? min : bounds[1].isEmpty() ? -1 : Integer.parseInt(bounds[1]);
+                    } catch (NumberFormatException nfe) {
+                        throw error("Illegal repetition");
+                    }
+                    if (bounds.length > 2 || min < 0 || (max != -1 && max < min)) {
+                        throw error("Illegal repetition range");
+                    }
+                    if (min > MAX_REPETITION || max > MAX_REPETITION) {
+                        throw error("Repetition too large for the linear-time engine");
+                    }
+                    position = end + 1;
+                } else {
+                    break;
+                }
+                boolean greedy = true;
+                if (position < regex.length() && regex.charAt(position) == '?') {
+                    greedy = false;
+                    position++;
+                } else if (position < regex.length() && regex.charAt(position) == '+') {
+                    throw error("Possessive quantifiers are not supported by the linear-time engine");
+                }
+                Node repetition = new Node(Node.REPETITION);
+                repetition.children.add(node);
+                repetition.min = min;
+                repetition.max = max;
+                repetition.greedy = greedy;
+                node = repetition;
+            }
+            return node;
+        }
+
+        /**
+         * Parse an atom.
+         *
+         * @return the node.
+         */
+        private Node parseAtom() {
+            char c = regex.charAt(position);
+            switch (c) {
+                case '(' -> {
+                    return parseGroup();
+                }
+                case '[' -> {
+                    return parseCharacterClass();
+                }
+                case '.' -> {
+                    position++;
+                    return new Node(ANY);
+                }
+                case '^' -> {
+                    position++;
+                    return new Node(BEGIN);
+                }
+                case '$' -> {
+                    position++;
+                    return new Node(END);
+                }
+                case '*', '+', '?', '{' -> throw error("Dangling meta character '" + c + "'");
+                case '\\' -> {
+                    if (regex.startsWith("\\Q", position)) {
+                        int end = regex.indexOf("\\E", position + 2);
+                        String quoted = regex.substring(position + 2, end == -1 ? regex.length() : end);
+                        position = end == -1 ? regex.length() : end + 2;
+                        Node node = new Node(Node.CONCATENATION);
+                        for (int i = 0; i < quoted.length(); i++) {
+                            node.children.add(character(quoted.charAt(i)));
+                        }
+                        return node;
+                    }
+                    int[] ranges = parseEscape();
+                    if (ranges.length == 2 && ranges[0] == ranges[1]) {
+                        return character((char) ranges[0]);
+                    }
+                    Node node = new Node(CLASS);
+                    node.ranges = ranges;
+                    return node;
+                }
+                default -> {
+                    position++;
+                    return character(c);
+                }
+            }
+        }
+
+        /**
+         * Parse a group.
+         *
+         * @return the node.
+         */
+        private Node parseGroup() {
+            position++;
+            Node node;
+            if (regex.startsWith("?:", position)) {
+                position += 2;
+                node = parseAlternation();
+            } else if (regex.startsWith("?<", position)
+                    && position + 2 < regex.length()
+                    && Character.isLetter(regex.charAt(position + 2))) {
+                int end = regex.indexOf('>', position);
+                if (end == -1) {
+                    throw error("Named capturing group is missing trailing '>'");
+                }
+                String name = regex.substring(position + 2, end);
+                for (int i = 0; i < name.length(); i++) {
+                    if (!Character.isLetterOrDigit(name.charAt(i))) {
+                        throw error("Named capturing group has an invalid name");
+                    }
+                }
+                if (names.contains(name)) {
+                    throw error("Named capturing group <" + name + "> is already defined");
+                }
+                names.add(name);
+                position = end + 1;
+                node = new Node(Node.CAPTURE);
+                node.slot = firstSlot + names.size() - 1;
+                node.children.add(parseAlternation());
+            } else if (regex.startsWith("?", position)) {
+                throw error("Group construct is not supported by the linear-time engine");
+            } else {
+                node = parseAlternation();
+            }
+            if (position >= regex.length() || regex.charAt(position) != ')') {
+                throw error("Unclosed group");
+            }
+            position++;
+            return node;
+        }
+
+        /**
+         * Parse a character class.
+         *
+         * @return the node.
+         */
+        private Node parseCharacterClass() {
+            position++;
+            boolean negated = false;
+            if (position < regex.length() && regex.charAt(position) == '^') {
+                negated = true;
+                position++;
+            }
+            List<int[]> ranges = new ArrayList<>();
+            boolean first = true;
+            while (true) {
+                if (position >= regex.length()) {
+                    throw error("Unclosed character class");
+                }
+                char c = regex.charAt(position);
+                if (c == ']' && !first) {
+                    position++;
+                    break;
+                }
+                if (c == '[' || regex.startsWith("&&", position)) {
+                    throw error("Nested character classes are not supported by the linear-time engine");
+                }
+                int low;
+                if (c == '\\') {
+                    int[] escape = parseEscape();
+                    if (escape.length != 2 || escape[0] != escape[1]) {
+                        ranges.add(escape);
+                        first = false;
+                        continue;
+                    }
+                    low = escape[0];
+                } else {
+                    low = c;
+                    position++;
+                }
+                int high = low;
+                if (position + 1 < regex.length() && regex.charAt(position) == '-'
+                        && regex.charAt(position + 1) != ']') {
+                    position++;
+                    if (regex.charAt(position) == '\\') {
+                        int[] escape = parseEscape();
+                        if (escape.length != 2 || escape[0] != escape[1]) {
+                            throw error("Illegal character range");
+                        }
+                        high = escape[0];
+                    } else {
+                        high = regex.charAt(position);
+                        position++;
+                    }
+                    if (high < low) {
+                        throw error("Illegal character range");
+                    }
+                }
+                ranges.add(new int[]{low, high});
+                first = false;
+            }
+            int[] merged = merge(ranges);
+            Node node = new Node(CLASS);
+            node.ranges = negated ? complement(merged) : merged;
+            return node;
+        }
+
+        /**
+         * Parse an escape.
+         *
+         * @return the character ranges the escape matches.
+         */
+        private int[] parseEscape() {
+            if (position + 1 >= regex.length()) {
+                throw error("Unexpected internal error");
+            }
+            char c = regex.charAt(position + 1);
+            position += 2;
+            switch (c) {
+                case 'd' -> {
+                    return new int[]{'0', '9'};
+                }
+                case 'D' -> {
+                    return complement(new int[]{'0', '9'});
+                }
+                case 's' -> {
+                    return new int[]{'\t', '\r', ' ', ' '};
+                }
+                case 'S' -> {
+                    return complement(new int[]{'\t', '\r', ' ', ' '});
+                }
+                case 'w' -> {
+                    return new int[]{'0', '9', 'A', 'Z', '_', '_', 'a', 'z'};
+                }
+                case 'W' -> {
+                    return complement(new int[]{'0', '9', 'A', 'Z', '_', '_', 'a', 'z'});
+                }
+                case 't' -> {
+                    return new int[]{'\t', '\t'};
+                }
+                case 'n' -> {
+                    return new int[]{'\n', '\n'};
+                }
+                case 'r' -> {
+                    return new int[]{'\r', '\r'};
+                }
+                case 'f' -> {
+                    return new int[]{'\f', '\f'};
+                }
+                case 'a' -> {
+                    return new int[]{7, 7};
+                }
+                case 'e' -> {
+                    return new int[]{27, 27};
+                }
+                case 'x', 'u' -> {
+                    int digits = c == 'x' ? 2 : 4;
+                    if (position + digits > regex.length()) {
+                        throw error("Illegal hexadecimal escape sequence");
+                    }
+                    try {
+                        int value = Integer.parseInt(regex.substring(position, position + digits), 16);
+                        position += digits;
+                        return new int[]{value, value};
+                    } catch (NumberFormatException nfe) {
+                        throw error("Illegal hexadecimal escape sequence");
+                    }
+                }
+                default -> {
+                    if (Character.isLetterOrDigit(c)) {
+                        position -= 2;
+                        throw error("Escape sequence '\\" + c + "' is not supported by the linear-time engine");
+                    }
+                    return new int[]{c, c};
+                }
+            }
+        }
+
+        /**
+         * Create a character node.
+         *
+         * @param c the character.
+         * @return the node.
+         */
+        private static Node character(char c) {
+            Node node = new Node(CHAR);
+            node.c = c;
+            return node;
+        }
+
+        /**
+         * Create a syntax error.
+         *
+         * @param description the description.
+         * @return the exception.
+         */
+        private PatternSyntaxException error(String description) {
+            return new PatternSyntaxException(description, regex, position);
+        }
+
+        /**
+         * Merge the character ranges.
+         *
+         * @param ranges the ranges.
+         * @return the sorted and merged ranges.
+         */
+        private static int[] merge(List<int[]> ranges) {
+            List<int[]> pairs = new ArrayList<>();
+            for (int[] range : ranges) {
+                for (int i = 0; i < range.length; i += 2) {
+                    pairs.add(new int[]{range[i], range[i + 1]});
+                }
+            }
+            pairs.sort((a, b) -> Integer.compare(a[0], b[0]));
+            int[] result = new int[pairs.size() * 2];
+            int size = 0;
+            for (int[] pair : pairs) {
+                if (size > 0 && pair[0] <= result[size - 1] + 1) {
+                    result[size - 1] = Math.max(result[size - 1], pair[1]);
+                } else {
+                    result[size++] = pair[0];
+                    result[size++] = pair[1];
+                }
+            }
+            return Arrays.copyOf(result, size);
+        }
+
+        /**
+         * Complement the (sorted and merged) character ranges.
+         *
+         * @param ranges the ranges.
+         * @return the complement.
+         */
+        private static int[] complement(int[] ranges) {
+            int[] result = new int[ranges.length + 2];
+            int size = 0;
+            int next = 0;
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (ranges[i] > next) {
+                    result[size++] = next;
+                    result[size++] = ranges[i] - 1;
+                }
+                next = ranges[i + 1] + 1;
+            }
+            if (next <= Character.MAX_VALUE) {
+                result[size++] = next;
+                result[size++] = Character.MAX_VALUE;
+            }
+            return Arrays.copyOf(result, size);
+        }
+    }
+}
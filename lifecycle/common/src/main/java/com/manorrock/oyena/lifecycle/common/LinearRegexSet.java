@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import com.manorrock.oyena.lifecycle.common.LinearRegexCompiler.Instruction;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
+import static com.manorrock.oyena.lifecycle.common.LinearRegexCompiler.ANY;
+import static com.manorrock.oyena.lifecycle.common.LinearRegexCompiler.BEGIN;
+import static com.manorrock.oyena.lifecycle.common.LinearRegexCompiler.CHAR;
+import static com.manorrock.oyena.lifecycle.common.LinearRegexCompiler.CLASS;
+import static com.manorrock.oyena.lifecycle.common.LinearRegexCompiler.END;
+import static com.manorrock.oyena.lifecycle.common.LinearRegexCompiler.JUMP;
+import static com.manorrock.oyena.lifecycle.common.LinearRegexCompiler.MARK;
+import static com.manorrock.oyena.lifecycle.common.LinearRegexCompiler.MATCH;
+import static com.manorrock.oyena.lifecycle.common.LinearRegexCompiler.PROGRESS;
+import static com.manorrock.oyena.lifecycle.common.LinearRegexCompiler.SAVE;
+import static com.manorrock.oyena.lifecycle.common.LinearRegexCompiler.SPLIT;
+
+/**
+ * The regex set that uses a linear-time engine.
+ *
+ * <p>
+ *  The regular expressions are compiled into a single Thompson NFA that is
+ *  simulated with a Pike VM. Every input character is looked at once per NFA
+ *  state, so matching takes time proportional to the length of the input times
+ *  the size of the program (and the nesting of repetitions that can match the
+ *  empty string) no matter what the regular expressions look like.
+ *  This makes it safe to use with untrusted input, at the price of not
+ *  supporting the constructs that require backtracking. See
+ *  LinearRegexCompiler for the supported syntax.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class LinearRegexSet implements RegexSet {
+
+    /**
+     * Stores the entry of the program.
+     */
+    private final int entry;
+
+    /**
+     * Stores the group names for every regular expression.
+     */
+    private final String[][] groupNames;
+
+    /**
+     * Stores the number of loop levels.
+     */
+    private final int levels;
+
+    /**
+     * Stores the program.
+     */
+    private final Instruction[] program;
+
+    /**
+     * Stores the first capture slot for every regular expression.
+     */
+    private final int[] slotStarts;
+
+    /**
+     * Stores the number of capture slots.
+     */
+    private final int slots;
+
+    /**
+     * Constructor.
+     *
+     * @param regexes the regular expressions.
+     * @throws PatternSyntaxException when one of the regular expressions is
+     * invalid or uses a construct the linear-time engine does not support.
+     */
+    public LinearRegexSet(List<String> regexes) {
+        LinearRegexCompiler compiler = new LinearRegexCompiler();
+        this.groupNames = new String[regexes.size()][];
+        this.slotStarts = new int[regexes.size()];
+        for (int i = 0; i < regexes.size(); i++) {
+            slotStarts[i] = compiler.getSlots();
+            groupNames[i] = compiler.add(regexes.get(i));
+        }
+        this.program = compiler.build();
+        this.entry = compiler.getEntry();
+        this.levels = compiler.getLevels();
+        this.slots = compiler.getSlots();
+    }
+
+    @Override
+    public RegexSetMatch match(CharSequence input) {
+        if (entry == -1) {
+            return null;
+        }
+        int length = input.length();
+        Threads current = new Threads(program.length);
+        Threads next = new Threads(program.length);
+        int[] visited = new int[program.length * (levels + 1)];
+        Stack stack = new Stack(visited.length * 2 + 1);
+        int[] captures = new int[slots * 2];
+        Arrays.fill(captures, -1);
+        int generation = 1;
+        addThread(current, entry, captures, 0, length, visited, generation, stack);
+        for (int position = 0; position <= length; position++) {
+            if (current.size == 0) {
+                return null;
+            }
+            generation++;
+            next.size = 0;
+            char c = position < length ? input.charAt(position) : 0;
+            for (int i = 0; i < current.size; i++) {
+                Instruction instruction = program[current.pcs[i]];
+                if (instruction.op == MATCH) {
+                    if (position == length) {
+                        return toMatch(instruction.x, input, current.captures[i]);
+                    }
+                } else if (position < length && instruction.matches(c)) {
+                    addThread(next, current.pcs[i] + 1, current.captures[i], position + 1,
+                            length, visited, generation, stack);
+                }
+            }
+            Threads swap = current;
+            current = next;
+            next = swap;
+        }
+        return null;
+    }
+
+    /**
+     * Add a thread and follow its non-consuming instructions.
+     *
+     * <p>
+     *  The instructions are visited depth-first in priority order and every
+     *  instruction is visited at most once per position and loop level, which
+     *  is what keeps the simulation linear. The loop level is the outermost
+     *  loop (that can match the empty string) whose current iteration started
+     *  at this position, as that decides what its PROGRESS instructions do.
+     * </p>
+     *
+     * @param threads the thread list.
+     * @param pc the program counter.
+     * @param captures the captures.
+     * @param position the input position.
+     * @param length the input length.
+     * @param visited the generation an instruction was last visited in.
+     * @param generation the current generation.
+     * @param stack the stack.
+     */
+    private void addThread(Threads threads, int pc, int[] captures, int position,
+            int length, int[] visited, int generation, Stack stack) {
+        stack.push(pc, captures, levels + 1);
+        while (stack.size > 0) {
+            int top = --stack.size;
+            int current = stack.pcs[top];
+            int[] currentCaptures = stack.captures[top];
+            int level = stack.levels[top];
+            stack.captures[top] = null;
+            Instruction instruction = program[current];
+            int state = switch (instruction.op) {
+                case CHAR, ANY, CLASS, MATCH -> current * (levels + 1);
+                default -> current * (levels + 1) + level - 1;
+            };
+            if (visited[state] == generation) {
+                continue;
+            }
+            visited[state] = generation;
+            switch (instruction.op) {
+                case JUMP -> stack.push(instruction.x, currentCaptures, level);
+                case SPLIT -> {
+                    stack.push(instruction.y, currentCaptures, level);
+                    stack.push(instruction.x, currentCaptures, level);
+                }
+                case SAVE -> {
+                    int[] copy = currentCaptures.clone();
+                    copy[instruction.x] = position;
+                    stack.push(current + 1, copy, level);
+                }
+                case MARK -> stack.push(current + 1, currentCaptures, Math.min(level, instruction.x));
+                case PROGRESS -> stack.push(level <= instruction.x ? instruction.y : current + 1,
+                        currentCaptures, level);
+                case BEGIN -> {
+                    if (position == 0) {
+                        stack.push(current + 1, currentCaptures, level);
+                    }
+                }
+                case END -> {
+                    if (position == length) {
+                        stack.push(current + 1, currentCaptures, level);
+                    }
+                }
+                case CHAR, ANY, CLASS, MATCH -> {
+                    threads.pcs[threads.size] = current;
+                    threads.captures[threads.size++] = currentCaptures;
+                }
+                default -> throw new IllegalStateException();
+            }
+        }
+    }
+
+    /**
+     * Convert the captures of the winning thread to a match.
+     *
+     * @param index the index of the regular expression that matched.
+     * @param input the input.
+     * @param captures the captures.
+     * @return the match.
+     */
+    private RegexSetMatch toMatch(int index, CharSequence input, int[] captures) {
+        int[] spans = new int[groupNames[index].length * 2];
+        System.arraycopy(captures, slotStarts[index] * 2, spans, 0, spans.length);
+        for (int i = 0; i < spans.length; i += 2) {
+            if (spans[i] == -1 || spans[i + 1] == -1) {
+                spans[i] = -1;
+                spans[i + 1] = -1;
+            }
+        }
+        return new RegexSetMatch(index, input, groupNames[index], spans);
+    }
+
+    @Override
+    public int size() {
+        return groupNames.length;
+    }
+
+    /**
+     * The stack used to follow the non-consuming instructions.
+     */
+    private static class Stack {
+
+        /**
+         * Stores the captures of every entry.
+         */
+        private final int[][] captures;
+
+        /**
+         * Stores the loop level of every entry.
+         */
+        private final int[] levels;
+
+        /**
+         * Stores the program counter of every entry.
+         */
+        private final int[] pcs;
+
+        /**
+         * Stores the number of entries.
+         */
+        private int size;
+
+        /**
+         * Constructor.
+         *
+         * @param capacity the capacity.
+         */
+        Stack(int capacity) {
+            this.pcs = new int[capacity];
+            this.captures = new int[capacity][];
+            this.levels = new int[capacity];
+        }
+
+        /**
+         * Push an entry.
+         *
+         * @param pc the program counter.
+         * @param captures the captures.
+         * @param level the loop level.
+         */
+        void push(int pc, int[] captures, int level) {
+            this.pcs[size] = pc;
+            this.captures[size] = captures;
+            this.levels[size++] = level;
+        }
+    }
+
+    /**
+     * A list of threads in priority order.
+     */
+    private static class Threads {
+
+        /**
+         * Stores the captures of every thread.
+         */
+        private final int[][] captures;
+
+        /**
+         * Stores the program counter of every thread.
+         */
+        private final int[] pcs;
+
+        /**
+         * Stores the number of threads.
+         */
+        private int size;
+
+        /**
+         * Constructor.
+         *
+         * @param capacity the capacity.
+         */
+        Threads(int capacity) {
+            this.pcs = new int[capacity];
+            this.captures = new int[capacity][];
+        }
+    }
+}
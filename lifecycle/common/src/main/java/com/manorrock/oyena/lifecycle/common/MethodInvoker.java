@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * The precompiled invoker of a route method.
+ *
+ * <p>
+ *  The invoker adapts the method to a MethodHandle with a fixed
+ *  (Object, Object[]) signature once, so invoking it does not go through the
+ *  access checks of Method.invoke. The argument array is still allocated for
+ *  every call.
+ * </p>
+ * <p>
+ *  The parameter types and annotations of the method are read once as well,
+ *  as Method returns a copy of them on every call. If the method cannot be
+ *  looked up with the public lookup (eg. a method that is not public) the
+ *  invoker falls back to Method.invoke, with its usual access checks.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class MethodInvoker {
+
+    /**
+     * Stores the empty arguments.
+     */
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+
+    /**
+     * Stores the method handle (null when falling back to reflection).
+     */
+    private final MethodHandle handle;
+
+    /**
+     * Stores the generic parameter types.
+     */
+    private final Type[] genericParameterTypes;
+
+    /**
+     * Stores the method.
+     */
+    private final Method method;
+
+    /**
+     * Stores the parameter annotations.
+     */
+    private final Annotation[][] parameterAnnotations;
+
+    /**
+     * Stores the parameter types.
+     */
+    private final Class<?>[] parameterTypes;
+
+    /**
+     * Constructor.
+     *
+     * @param method the method.
+     */
+    public MethodInvoker(Method method) {
+        this.method = method;
+        this.parameterTypes = method.getParameterTypes();
+        this.genericParameterTypes = method.getGenericParameterTypes();
+        this.parameterAnnotations = method.getParameterAnnotations();
+        this.handle = toHandle(method);
+    }
+
+    /**
+     * Create the method handle.
+     *
+     * @param method the method.
+     * @return the method handle, or null if the method cannot be looked up.
+     */
+    private static MethodHandle toHandle(Method method) {
+        MethodHandle result;
+        try {
+            result = MethodHandles.publicLookup().unreflect(method);
+        } catch (IllegalAccessException iae) {
+            return null;
+        }
+        if (Modifier.isStatic(method.getModifiers())) {
+            result = MethodHandles.dropArguments(result, 0, Object.class);
+        }
+        return result
+                .asSpreader(Object[].class, method.getParameterCount())
+                .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+    }
+
+    /**
+     * Get the generic parameter types.
+     *
+     * <p>
+     *  The returned array is shared and must not be modified.
+     * </p>
+     *
+     * @return the generic parameter types.
+     */
+    public Type[] getGenericParameterTypes() {
+        return genericParameterTypes;
+    }
+
+    /**
+     * Get the method.
+     *
+     * @return the method.
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Get the parameter annotations.
+     *
+     * <p>
+     *  The returned array is shared and must not be modified.
+     * </p>
+     *
+     * @return the parameter annotations.
+     */
+    public Annotation[][] getParameterAnnotations() {
+        return parameterAnnotations;
+    }
+
+    /**
+     * Get the parameter count.
+     *
+     * @return the parameter count.
+     */
+    public int getParameterCount() {
+        return parameterTypes.length;
+    }
+
+    /**
+     * Get the parameter types.
+     *
+     * <p>
+     *  The returned array is shared and must not be modified.
+     * </p>
+     *
+     * @return the parameter types.
+     */
+    public Class<?>[] getParameterTypes() {
+        return parameterTypes;
+    }
+
+    /**
+     * Invoke the method.
+     *
+     * @param target the target instance.
+     * @param arguments the arguments (null if the method has no parameters).
+     * @return the result (null for a void method).
+     * @throws Exception when the method throws it.
+     */
+    public Object invoke(Object target, Object[] arguments) throws Exception {
+        Object[] actual = arguments != null ? arguments : NO_ARGUMENTS;
+        if (handle == null) {
+            try {
+                return method.invoke(target, actual);
+            } catch (InvocationTargetException ite) {
+                if (ite.getCause() instanceof Exception exception) {
+                    throw exception;
+                }
+                throw ite;
+            }
+        }
+        try {
+            return (Object) handle.invokeExact(target, actual);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable throwable) {
+            throw new UndeclaredThrowableException(throwable);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+/**
+ * The exception thrown when a request value cannot be converted to the type
+ * of a method parameter.
+ *
+ * <p>
+ *  The lifecycles answer a request that fails with this exception (anywhere
+ *  in the cause chain) with a 400 instead of a 500, as the client sent a
+ *  value the method cannot take. The message may contain the request value,
+ *  so the response only names the parameter (see getParameter).
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class ParameterConversionException extends IllegalArgumentException {
+
+    /**
+     * Stores the serial version UID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Stores the name of the parameter (if known).
+     */
+    private final String parameter;
+
+    /**
+     * Constructor.
+     *
+     * @param message the message.
+     */
+    public ParameterConversionException(String message) {
+        super(message);
+        this.parameter = null;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param message the message.
+     * @param cause the cause.
+     */
+    public ParameterConversionException(String message, Throwable cause) {
+        super(message, cause);
+        this.parameter = null;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param parameter the name of the parameter.
+     * @param message the message.
+     * @param cause the cause.
+     */
+    public ParameterConversionException(String parameter, String message, Throwable cause) {
+        super(message, cause);
+        this.parameter = parameter;
+    }
+
+    /**
+     * Get the name of the parameter.
+     *
+     * @return the name of the parameter, or null if not known.
+     */
+    public String getParameter() {
+        return parameter;
+    }
+
+    /**
+     * Find the parameter conversion exception in the cause chain of a
+     * throwable.
+     *
+     * @param throwable the throwable.
+     * @return the parameter conversion exception, or null if there is none.
+     */
+    public static ParameterConversionException find(Throwable throwable) {
+        Throwable current = throwable;
+        for (int depth = 0; current != null && depth < 16; depth++) {
+            if (current instanceof ParameterConversionException exception) {
+                return exception;
+            }
+            current = current.getCause();
+        }
+        return null;
+    }
+}
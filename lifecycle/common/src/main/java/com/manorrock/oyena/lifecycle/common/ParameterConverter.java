@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.MonthDay;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.Period;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * The converter of a textual (header, path or query) parameter value to the
+ * type of the method parameter.
+ *
+ * <p>
+ *  A converter is chosen once per parameter with forType. The supported types
+ *  are String, CharSequence, the primitive types and their wrappers,
+ *  BigDecimal, BigInteger, enums, UUID, the java.time value types (LocalDate,
+ *  LocalTime, LocalDateTime, OffsetTime, OffsetDateTime, ZonedDateTime,
+ *  Instant, Duration, Period, Year, YearMonth and MonthDay) and Optional,
+ *  OptionalInt, OptionalLong and OptionalDouble of those.
+ * </p>
+ * <p>
+ *  Values are read from a CharSequence. The int, long, short, byte, boolean,
+ *  char and UUID conversions work on the characters directly so a slice of a
+ *  larger string can be converted without copying it first. A missing value
+ *  (null, or empty for a non textual type) converts to the default value of
+ *  a primitive type, to an empty optional or to null. A value that cannot be
+ *  converted fails with a ParameterConversionException, and so does a
+ *  numeric or UUID value with non-ASCII digits.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public final class ParameterConverter {
+
+    /**
+     * Stores the parsers per type.
+     */
+    private static final Map<Class<?>, Function<CharSequence, Object>> PARSERS = new HashMap<>();
+
+    /**
+     * Stores the missing values of the primitive types.
+     */
+    private static final Map<Class<?>, Object> PRIMITIVE_DEFAULTS = Map.of(
+            int.class, 0, long.class, 0L, short.class, (short) 0, byte.class, (byte) 0,
+            double.class, 0d, float.class, 0f, boolean.class, false, char.class, '\0');
+
+    static {
+        PARSERS.put(String.class, CharSequence::toString);
+        PARSERS.put(CharSequence.class, value -> value);
+        PARSERS.put(Object.class, CharSequence::toString);
+        PARSERS.put(int.class, ParameterConverter::parseInt);
+        PARSERS.put(Integer.class, ParameterConverter::parseInt);
+        PARSERS.put(long.class, ParameterConverter::parseLong);
+        PARSERS.put(Long.class, ParameterConverter::parseLong);
+        PARSERS.put(short.class, ParameterConverter::parseShort);
+        PARSERS.put(Short.class, ParameterConverter::parseShort);
+        PARSERS.put(byte.class, ParameterConverter::parseByte);
+        PARSERS.put(Byte.class, ParameterConverter::parseByte);
+        PARSERS.put(double.class, value -> Double.parseDouble(ascii(value).toString()));
+        PARSERS.put(Double.class, value -> Double.parseDouble(ascii(value).toString()));
+        PARSERS.put(float.class, value -> Float.parseFloat(ascii(value).toString()));
+        PARSERS.put(Float.class, value -> Float.parseFloat(ascii(value).toString()));
+        PARSERS.put(boolean.class, ParameterConverter::parseBoolean);
+        PARSERS.put(Boolean.class, ParameterConverter::parseBoolean);
+        PARSERS.put(char.class, ParameterConverter::parseChar);
+        PARSERS.put(Character.class, ParameterConverter::parseChar);
+        PARSERS.put(BigDecimal.class, value -> new BigDecimal(ascii(value).toString()));
+        PARSERS.put(BigInteger.class, value -> new BigInteger(ascii(value).toString()));
+        PARSERS.put(UUID.class, ParameterConverter::parseUUID);
+        PARSERS.put(LocalDate.class, LocalDate::parse);
+        PARSERS.put(LocalTime.class, LocalTime::parse);
+        PARSERS.put(LocalDateTime.class, LocalDateTime::parse);
+        PARSERS.put(OffsetTime.class, OffsetTime::parse);
+        PARSERS.put(OffsetDateTime.class, OffsetDateTime::parse);
+        PARSERS.put(ZonedDateTime.class, ZonedDateTime::parse);
+        PARSERS.put(Instant.class, Instant::parse);
+        PARSERS.put(Duration.class, Duration::parse);
+        PARSERS.put(Period.class, Period::parse);
+        PARSERS.put(Year.class, Year::parse);
+        PARSERS.put(YearMonth.class, YearMonth::parse);
+        PARSERS.put(MonthDay.class, MonthDay::parse);
+    }
+
+    /**
+     * Stores the value for a missing parameter.
+     */
+    private final Object missing;
+
+    /**
+     * Stores the parser.
+     */
+    private final Function<CharSequence, Object> parser;
+
+    /**
+     * Stores whether an empty value is a value (true for textual types).
+     */
+    private final boolean textual;
+
+    /**
+     * Constructor.
+     *
+     * @param parser the parser.
+     * @param missing the value for a missing parameter.
+     * @param textual whether an empty value is a value.
+     */
+    private ParameterConverter(Function<CharSequence, Object> parser, Object missing, boolean textual) {
+        this.parser = parser;
+        this.missing = missing;
+        this.textual = textual;
+    }
+
+    /**
+     * Get the converter for a type.
+     *
+     * @param type the type (a Class or a parameterized Optional).
+     * @return the converter, or null if the type is not supported.
+     */
+    public static ParameterConverter forType(Type type) {
+        if (type instanceof ParameterizedType parameterized) {
+            if (parameterized.getRawType() == Optional.class) {
+                ParameterConverter element = forType(parameterized.getActualTypeArguments()[0]);
+                if (element == null || element.missing instanceof Optional) {
+                    return null;
+                }
+                return new ParameterConverter(value -> Optional.ofNullable(element.convert(value)),
+                        Optional.empty(), element.textual);
+            }
+            return null;
+        }
+        if (!(type instanceof Class<?> clazz)) {
+            return null;
+        }
+        if (clazz == Optional.class) {
+            return new ParameterConverter(value -> Optional.of(value.toString()), Optional.empty(), true);
+        }
+        if (clazz == OptionalInt.class) {
+            return new ParameterConverter(value -> OptionalInt.of((Integer) parseInt(value)),
+                    OptionalInt.empty(), false);
+        }
+        if (clazz == OptionalLong.class) {
+            return new ParameterConverter(value -> OptionalLong.of((Long) parseLong(value)),
+                    OptionalLong.empty(), false);
+        }
+        if (clazz == OptionalDouble.class) {
+            return new ParameterConverter(value -> OptionalDouble.of(Double.parseDouble(ascii(value).toString())),
+                    OptionalDouble.empty(), false);
+        }
+        if (clazz.isEnum()) {
+            Object[] constants = clazz.getEnumConstants();
+            return new ParameterConverter(value -> parseEnum(clazz, constants, value), null, false);
+        }
+        Function<CharSequence, Object> parser = PARSERS.get(clazz);
+        if (parser == null) {
+            return null;
+        }
+        boolean textual = clazz == String.class || clazz == CharSequence.class || clazz == Object.class;
+        return new ParameterConverter(parser, PRIMITIVE_DEFAULTS.get(clazz), textual);
+    }
+
+    /**
+     * Convert a value.
+     *
+     * @param value the value (may be null).
+     * @return the converted value.
+     * @throws ParameterConversionException when the value cannot be
+     * converted.
+     */
+    public Object convert(CharSequence value) {
+        if (value == null || (!textual && value.length() == 0)) {
+            return missing;
+        }
+        try {
+            return parser.apply(value);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ParameterConversionException("Unable to convert '" + value + "': " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Require a numeric value to be ASCII only.
+     *
+     * <p>
+     *  The JDK number parsers also take the digits of other scripts (eg.
+     *  Arabic-Indic digits), a request value must use ASCII digits like a
+     *  path segment does.
+     * </p>
+     *
+     * @param value the value.
+     * @return the value.
+     * @throws NumberFormatException when the value has a non-ASCII character.
+     */
+    private static CharSequence ascii(CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0x7F) {
+                throw new NumberFormatException("Non-ASCII character in numeric value");
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Parse an int.
+     *
+     * @param value the value.
+     * @return the int.
+     */
+    private static Object parseInt(CharSequence value) {
+        return Integer.parseInt(ascii(value), 0, value.length(), 10);
+    }
+
+    /**
+     * Parse a long.
+     *
+     * @param value the value.
+     * @return the long.
+     */
+    private static Object parseLong(CharSequence value) {
+        return Long.parseLong(ascii(value), 0, value.length(), 10);
+    }
+
+    /**
+     * Parse a short.
+     *
+     * @param value the value.
+     * @return the short.
+     */
+    private static Object parseShort(CharSequence value) {
+        int result = (Integer) parseInt(value);
+        if (result < Short.MIN_VALUE || result > Short.MAX_VALUE) {
+            throw new NumberFormatException("Value out of range for short: " + value);
+        }
+        return (short) result;
+    }
+
+    /**
+     * Parse a byte.
+     *
+     * @param value the value.
+     * @return the byte.
+     */
+    private static Object parseByte(CharSequence value) {
+        int result = (Integer) parseInt(value);
+        if (result < Byte.MIN_VALUE || result > Byte.MAX_VALUE) {
+            throw new NumberFormatException("Value out of range for byte: " + value);
+        }
+        return (byte) result;
+    }
+
+    /**
+     * Parse a boolean ('true' in any case is true, anything else false).
+     *
+     * @param value the value.
+     * @return the boolean.
+     */
+    private static Object parseBoolean(CharSequence value) {
+        if (value.length() != 4) {
+            return Boolean.FALSE;
+        }
+        return Character.toLowerCase(value.charAt(0)) == 't'
+                && Character.toLowerCase(value.charAt(1)) == 'r'
+                && Character.toLowerCase(value.charAt(2)) == 'u'
+                && Character.toLowerCase(value.charAt(3)) == 'e';
+    }
+
+    /**
+     * Parse a char.
+     *
+     * @param value the value.
+     * @return the char.
+     */
+    private static Object parseChar(CharSequence value) {
+        if (value.length() != 1) {
+            throw new IllegalArgumentException("Not a single character: " + value);
+        }
+        return value.charAt(0);
+    }
+
+    /**
+     * Parse an enum constant by name.
+     *
+     * @param type the enum type.
+     * @param constants the enum constants.
+     * @param value the value.
+     * @return the enum constant.
+     */
+    private static Object parseEnum(Class<?> type, Object[] constants, CharSequence value) {
+        for (Object constant : constants) {
+            if (((Enum<?>) constant).name().contentEquals(value)) {
+                return constant;
+            }
+        }
+        throw new IllegalArgumentException("No enum constant " + type.getName() + "." + value);
+    }
+
+    /**
+     * Parse a UUID.
+     *
+     * @param value the value.
+     * @return the UUID.
+     */
+    private static Object parseUUID(CharSequence value) {
+        if (value.length() != 36 || value.charAt(8) != '-' || value.charAt(13) != '-'
+                || value.charAt(18) != '-' || value.charAt(23) != '-') {
+            return UUID.fromString(ascii(value).toString());
+        }
+        long mostSignificantBits = parseHex(value, 0, 8) << 32
+                | parseHex(value, 9, 13) << 16 | parseHex(value, 14, 18);
+        long leastSignificantBits = parseHex(value, 19, 23) << 48 | parseHex(value, 24, 36);
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+
+    /**
+     * Parse hexadecimal digits.
+     *
+     * @param value the value.
+     * @param start the start index.
+     * @param end the end index.
+     * @return the number.
+     */
+    private static long parseHex(CharSequence value, int start, int end) {
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            int digit = c >= '0' && c <= '9' ? c - '0'
+                    : c >= 'a' && c <= 'f' ? c - 'a' + 10
+                    : c >= 'A' && c <= 'F' ? c - 'A' + 10 : -1;
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid UUID: " + value);
+            }
+            result = result << 4 | digit;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.util.Arrays;
+
+/**
+ * The radix tree used to find the longest prefix of a path.
+ *
+ * <p>
+ *  Finding the longest prefix of a path only walks the characters of the path
+ *  once, no matter how many prefixes there are.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ * @param <T> the type of the values.
+ */
+public class PrefixTree<T> {
+
+    /**
+     * Stores the root node.
+     */
+    private final Node<T> root = new Node<>("", null);
+
+    /**
+     * Constructor.
+     */
+    public PrefixTree() {
+        // nothing to do here.
+    }
+
+    /**
+     * Add a prefix.
+     *
+     * <p>
+     *  If a value was already added for the same prefix the first value is
+     *  kept.
+     * </p>
+     *
+     * @param prefix the prefix.
+     * @param value the value.
+     */
+    public void add(String prefix, T value) {
+        Node<T> node = root;
+        int index = 0;
+        while (index < prefix.length()) {
+            Node<T> child = node.getChild(prefix.charAt(index));
+            if (child == null) {
+                node.addChild(new Node<>(prefix.substring(index), value));
+                return;
+            }
+            int common = 0;
+            while (common < child.label.length()
+                    && index + common < prefix.length()
+                    && child.label.charAt(common) == prefix.charAt(index + common)) {
+                common++;
+            }
+            if (common < child.label.length()) {
+                Node<T> middle = new Node<>(child.label.substring(0, common), null);
+                child.label = child.label.substring(common);
+                node.replaceChild(middle);
+                middle.addChild(child);
+                child = middle;
+            }
+            node = child;
+            index += common;
+        }
+        if (node.value == null) {
+            node.value = value;
+        }
+    }
+
+    /**
+     * Find the value of the longest prefix of the given path.
+     *
+     * @param path the path.
+     * @return the value, or null if no prefix matches.
+     */
+    public T longestMatch(String path) {
+        T result = root.value;
+        Node<T> node = root;
+        int index = 0;
+        while (index < path.length()) {
+            Node<T> child = node.getChild(path.charAt(index));
+            if (child == null || !path.startsWith(child.label, index)) {
+                break;
+            }
+            index += child.label.length();
+            node = child;
+            if (node.value != null) {
+                result = node.value;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A node in the radix tree.
+     *
+     * @param <T> the type of the value.
+     */
+    private static class Node<T> {
+
+        /**
+         * Stores the first characters of the children.
+         */
+        private char[] keys = new char[0];
+
+        /**
+         * Stores the children.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"}) // generic array creation, the array never leaves the node
+        private Node<T>[] children = new Node[0];
+
+        /**
+         * Stores the label.
+         */
+        private String label;
+
+        /**
+         * Stores the value (null if no prefix ends at this node).
+         */
+        private T value;
+
+        /**
+         * Constructor.
+         *
+         * @param label the label.
+         * @param value the value.
+         */
+        Node(String label, T value) {
+            this.label = label;
+            this.value = value;
+        }
+
+        /**
+         * Add a child.
+         *
+         * @param child the child.
+         */
+        void addChild(Node<T> child) {
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            keys[keys.length - 1] = child.label.charAt(0);
+            children[children.length - 1] = child;
+        }
+
+        /**
+         * Get the child starting with the given character.
+         *
+         * @param c the character.
+         * @return the child, or null if there is none.
+         */
+        Node<T> getChild(char c) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Replace the child starting with the same character.
+         *
+         * @param child the child.
+         */
+        void replaceChild(Node<T> child) {
+            char c = child.label.charAt(0);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == c) {
+                    children[i] = child;
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.net.URLDecoder;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The lazy lookup of parameters in a raw query string.
+ *
+ * <p>
+ *  Instead of decoding the whole query string into a map up front a lookup
+ *  scans the raw string for the one name that is asked for. A value without
+ *  escapes is returned as a view on the query string, only a value (or name)
+ *  that contains '%' or '+' is decoded (as UTF-8 unless another charset is
+ *  given).
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public final class QueryString {
+
+    /**
+     * Constructor.
+     */
+    private QueryString() {
+    }
+
+    /**
+     * Get the first value of a parameter.
+     *
+     * @param query the raw query string (may be null).
+     * @param name the (decoded) name of the parameter.
+     * @return the value, an empty value if the parameter has no '=', or null
+     * if the parameter is not present.
+     */
+    public static CharSequence getParameter(String query, String name) {
+        return getParameter(query, name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the first value of a parameter, decoding with the given charset.
+     *
+     * @param query the raw query string (may be null).
+     * @param name the (decoded) name of the parameter.
+     * @param charset the charset of the escaped octets.
+     * @return the value, an empty value if the parameter has no '=', or null
+     * if the parameter is not present.
+     */
+    public static CharSequence getParameter(String query, String name, Charset charset) {
+        if (query == null) {
+            return null;
+        }
+        int length = query.length();
+        int start = 0;
+        while (start <= length) {
+            int end = query.indexOf('&', start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end > start) {
+                int equals = query.indexOf('=', start, end);
+                int nameEnd = equals < 0 ? end : equals;
+                if (nameEquals(query, start, nameEnd, name, charset)) {
+                    return equals < 0 ? "" : decode(query, equals + 1, end, charset);
+                }
+            }
+            start = end + 1;
+        }
+        return null;
+    }
+
+    /**
+     * Compare an encoded name to a decoded one.
+     *
+     * @param query the query string.
+     * @param start the start of the encoded name.
+     * @param end the end of the encoded name.
+     * @param name the decoded name.
+     * @param charset the charset.
+     * @return true if they are equal, false otherwise.
+     */
+    private static boolean nameEquals(String query, int start, int end, String name, Charset charset) {
+        if (isEncoded(query, start, end)) {
+            return name.contentEquals(decode(query, start, end, charset));
+        }
+        return end - start == name.length() && query.regionMatches(start, name, 0, name.length());
+    }
+
+    /**
+     * Decode a part of the query string.
+     *
+     * @param query the query string.
+     * @param start the start.
+     * @param end the end.
+     * @param charset the charset.
+     * @return the decoded part.
+     */
+    private static CharSequence decode(String query, int start, int end, Charset charset) {
+        if (!isEncoded(query, start, end)) {
+            return start == 0 && end == query.length() ? query : CharBuffer.wrap(query, start, end);
+        }
+        String encoded = query.substring(start, end);
+        try {
+            return URLDecoder.decode(encoded, charset);
+        } catch (IllegalArgumentException iae) {
+            return encoded;
+        }
+    }
+
+    /**
+     * Is a part of the query string encoded.
+     *
+     * @param query the query string.
+     * @param start the start.
+     * @param end the end.
+     * @return true if it contains '%' or '+', false otherwise.
+     */
+    private static boolean isEncoded(String query, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = query.charAt(i);
+            if (c == '%' || c == '+') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.util.List;
+
+/**
+ * The regex set API.
+ *
+ * <p>
+ *  A regex set matches an input against a list of regular expressions in one
+ *  pass. When more than one regular expression matches the entire input the
+ *  one that comes first in the list wins.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public interface RegexSet {
+
+    /**
+     * Compile the regular expressions into a regex set.
+     *
+     * @param regexes the regular expressions.
+     * @param engine the regex engine to use.
+     * @return the regex set.
+     */
+    static RegexSet compile(List<String> regexes, RegexEngine engine) {
+        return switch (engine) {
+            case JAVA -> new JavaRegexSet(regexes);
+            case LINEAR -> new LinearRegexSet(regexes);
+        };
+    }
+
+    /**
+     * Match the input against the set.
+     *
+     * @param input the input.
+     * @return the match of the first regular expression that matches the
+     * entire input, or null if none matches.
+     */
+    RegexSetMatch match(CharSequence input);
+
+    /**
+     * Get the number of regular expressions.
+     *
+     * @return the number of regular expressions.
+     */
+    int size();
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The match of a regex set.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class RegexSetMatch {
+
+    /**
+     * Stores the index of the regular expression that matched.
+     */
+    private final int index;
+
+    /**
+     * Stores the input.
+     */
+    private final CharSequence input;
+
+    /**
+     * Stores the group names.
+     */
+    private final String[] names;
+
+    /**
+     * Stores the start and end of every named group (-1 if the group did not
+     * participate in the match).
+     */
+    private final int[] spans;
+
+    /**
+     * Constructor.
+     *
+     * @param index the index of the regular expression that matched.
+     * @param input the input.
+     * @param names the group names.
+     * @param spans the start and end of every named group.
+     */
+    public RegexSetMatch(int index, CharSequence input, String[] names, int[] spans) {
+        this.index = index;
+        this.input = input;
+        this.names = names;
+        this.spans = spans;
+    }
+
+    /**
+     * Get the value of a named group.
+     *
+     * @param name the group name.
+     * @return the value, or null if the group does not exist or did not
+     * participate in the match.
+     */
+    public String getGroup(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return spans[2 * i] != -1
+                        ? input.subSequence(spans[2 * i], spans[2 * i + 1]).toString()
+                        : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the values of all the named groups.
+     *
+     * @return the values keyed by group name (a value is null if the group
+     * did not participate in the match).
+     */
+    public Map<String, String> getGroups() {
+        if (names.length == 0) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> groups = new LinkedHashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            groups.put(names[i], spans[2 * i] != -1
+                    ? input.subSequence(spans[2 * i], spans[2 * i + 1]).toString()
+                    : null);
+        }
+        return Collections.unmodifiableMap(groups);
+    }
+
+    /**
+     * Get the index of the regular expression that matched.
+     *
+     * @return the index.
+     */
+    public int getIndex() {
+        return index;
+    }
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import jakarta.enterprise.context.ContextNotActiveException;
+import jakarta.enterprise.context.spi.AlterableContext;
+import jakarta.enterprise.context.spi.Contextual;
+import jakarta.enterprise.context.spi.CreationalContext;
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The context for a request scope bound to the current thread.
+ *
+ * <p>
+ *  Every bean gets a slot, normally while the beans are discovered. The
+ *  instances of the current request are kept in arrays indexed by that slot
+ *  and bound to the current thread, so getting an instance is a map lookup
+ *  for the slot and an array read.
+ * </p>
+ *
+ * <p>
+ *  The instances of a request can be detached from one thread and attached
+ *  to another, so a request that continues on a virtual thread or in an
+ *  asynchronous dispatch keeps its instances.
+ * </p>
+ *
+ * <p>
+ *  Each lifecycle extends it for its own scope annotation.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class RequestContext implements AlterableContext {
+
+    /**
+     * Stores the instances of the current request.
+     */
+    private final ThreadLocal<Instances> current = new ThreadLocal<>();
+
+    /**
+     * Stores the scope.
+     */
+    private final Class<? extends Annotation> scope;
+
+    /**
+     * Stores the slots.
+     */
+    private final Map<Contextual<?>, Integer> slots = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param scope the scope annotation.
+     */
+    protected RequestContext(Class<? extends Annotation> scope) {
+        this.scope = scope;
+    }
+
+    /**
+     * Get the scope.
+     *
+     * @return the scope.
+     */
+    @Override
+    public Class<? extends Annotation> getScope() {
+        return scope;
+    }
+
+    /**
+     * Get the instance, creating it if needed.
+     *
+     * @param <T> the type.
+     * @param contextual the contextual.
+     * @param creationalContext the creational context.
+     * @return the instance.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Contextual<T> contextual, CreationalContext<T> creationalContext) {
+        Instances instances = getInstances();
+        int slot = getSlot(contextual);
+        Object instance = instances.get(slot);
+        if (instance == null && creationalContext != null) {
+            instance = contextual.create(creationalContext);
+            instances.put(slot, contextual, instance, creationalContext);
+        }
+        return (T) instance;
+    }
+
+    /**
+     * Get the instance.
+     *
+     * @param <T> the type.
+     * @param contextual the contextual.
+     * @return the instance, or null if it does not exist.
+     */
+    @Override
+    public <T> T get(Contextual<T> contextual) {
+        return get(contextual, null);
+    }
+
+    /**
+     * Destroy the instance.
+     *
+     * @param contextual the contextual.
+     */
+    @Override
+    public void destroy(Contextual<?> contextual) {
+        getInstances().destroy(getSlot(contextual));
+    }
+
+    /**
+     * Is the context active.
+     *
+     * @return true if it is, false otherwise.
+     */
+    @Override
+    public boolean isActive() {
+        return current.get() != null;
+    }
+
+    /**
+     * Activate the context for the current thread.
+     *
+     * <p>
+     *  Instances left behind by an earlier request on this thread are
+     *  destroyed first. Nothing is done if no bean has this scope.
+     * </p>
+     */
+    public void activate() {
+        if (!slots.isEmpty()) {
+            deactivate();
+            current.set(new Instances(slots.size()));
+        }
+    }
+
+    /**
+     * Deactivate the context for the current thread and destroy its
+     * instances.
+     */
+    public void deactivate() {
+        Instances instances = current.get();
+        if (instances != null) {
+            current.remove();
+            instances.destroyAll();
+        }
+    }
+
+    /**
+     * Detach the instances of the current request from the current thread
+     * without destroying them.
+     *
+     * @return the instances, or null if the context is not active.
+     */
+    public Instances detach() {
+        Instances instances = current.get();
+        current.remove();
+        return instances;
+    }
+
+    /**
+     * Attach the instances of a request to the current thread, eg. to
+     * continue the request on another thread.
+     *
+     * @param instances the instances (as returned by detach).
+     */
+    public void attach(Instances instances) {
+        deactivate();
+        if (instances != null) {
+            current.set(instances);
+        }
+    }
+
+    /**
+     * Get the fan-out of the current request.
+     *
+     * @return the fan-out, or null if the context is not active or the
+     * request did not use one.
+     */
+    public FanOut getFanOut() {
+        Instances instances = current.get();
+        return instances != null ? instances.getFanOut() : null;
+    }
+
+    /**
+     * Set the fan-out of the current request.
+     *
+     * @param fanOut the fan-out.
+     */
+    public void setFanOut(FanOut fanOut) {
+        getInstances().setFanOut(fanOut);
+    }
+
+    /**
+     * Get the slot of a contextual, assigning one if needed.
+     *
+     * @param contextual the contextual.
+     * @return the slot.
+     */
+    public int getSlot(Contextual<?> contextual) {
+        Integer slot = slots.get(contextual);
+        if (slot == null) {
+            synchronized (slots) {
+                slot = slots.computeIfAbsent(contextual, key -> slots.size());
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Get the instances of the current request.
+     *
+     * @return the instances.
+     * @throws ContextNotActiveException when the context is not active.
+     */
+    private Instances getInstances() {
+        Instances instances = current.get();
+        if (instances == null) {
+            throw new ContextNotActiveException("@" + scope.getSimpleName() + " is not active");
+        }
+        return instances;
+    }
+
+    /**
+     * The instances of one request.
+     */
+    public static class Instances {
+
+        /**
+         * Stores the contextuals.
+         */
+        private Contextual<?>[] contextuals;
+
+        /**
+         * Stores the creational contexts.
+         */
+        private CreationalContext<?>[] creationalContexts;
+
+        /**
+         * Stores the fan-out of the request (if used).
+         */
+        private volatile FanOut fanOut;
+
+        /**
+         * Stores the instances.
+         */
+        private Object[] instances;
+
+        /**
+         * Constructor.
+         *
+         * @param size the initial number of slots.
+         */
+        Instances(int size) {
+            contextuals = new Contextual<?>[size];
+            creationalContexts = new CreationalContext<?>[size];
+            instances = new Object[size];
+        }
+
+        /**
+         * Get the fan-out.
+         *
+         * @return the fan-out, or null if the request did not use one.
+         */
+        public FanOut getFanOut() {
+            return fanOut;
+        }
+
+        /**
+         * Set the fan-out.
+         *
+         * @param fanOut the fan-out.
+         */
+        void setFanOut(FanOut fanOut) {
+            this.fanOut = fanOut;
+        }
+
+        /**
+         * Get an instance.
+         *
+         * @param slot the slot.
+         * @return the instance, or null if there is none.
+         */
+        Object get(int slot) {
+            return slot < instances.length ? instances[slot] : null;
+        }
+
+        /**
+         * Put an instance.
+         *
+         * @param slot the slot.
+         * @param contextual the contextual.
+         * @param instance the instance.
+         * @param creationalContext the creational context.
+         */
+        void put(int slot, Contextual<?> contextual, Object instance, CreationalContext<?> creationalContext) {
+            if (slot >= instances.length) {
+                int size = Math.max(slot + 1, instances.length * 2);
+                contextuals = Arrays.copyOf(contextuals, size);
+                creationalContexts = Arrays.copyOf(creationalContexts, size);
+                instances = Arrays.copyOf(instances, size);
+            }
+            contextuals[slot] = contextual;
+            creationalContexts[slot] = creationalContext;
+            instances[slot] = instance;
+        }
+
+        /**
+         * Destroy an instance.
+         *
+         * @param slot the slot.
+         */
+        @SuppressWarnings("unchecked")
+        void destroy(int slot) {
+            if (slot < instances.length && instances[slot] != null) {
+                Contextual<Object> contextual = (Contextual<Object>) contextuals[slot];
+                CreationalContext<Object> creationalContext = (CreationalContext<Object>) creationalContexts[slot];
+                Object instance = instances[slot];
+                contextuals[slot] = null;
+                creationalContexts[slot] = null;
+                instances[slot] = null;
+                contextual.destroy(instance, creationalContext);
+            }
+        }
+
+        /**
+         * Destroy all instances.
+         */
+        public void destroyAll() {
+            for (int i = 0; i < instances.length; i++) {
+                destroy(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded least recently used cache of route lookups.
+ *
+ * <p>
+ *  The cache maps a lookup key (eg. the path info) to the route it resolved to
+ *  together with the path parameters that were captured.
+ * </p>
+ * <p>
+ *  A route that resolves many distinct keys (eg. '/users/{id}') would push
+ *  the hot keys out of the cache without ever being hit itself. The number of
+ *  distinct keys every route resolved is estimated with a small bitmap of key
+ *  hashes, so a hot key that is evicted and admitted again is not counted
+ *  twice. A route that resolved more than a quarter of the capacity distinct
+ *  keys is considered high-cardinality and its lookups bypass the cache. The
+ *  estimates are cleared after every window of twice the capacity puts, so a
+ *  route is only bypassed while it keeps resolving many distinct keys.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ * @param <R> the type of the route.
+ */
+public class RouteCache<R> {
+
+    /**
+     * Stores the number of bits of a key set.
+     */
+    private final int bitCount;
+
+    /**
+     * Stores the number of bits of a key set above which a route is bypassed.
+     */
+    private final int bitLimit;
+
+    /**
+     * Stores the number of lookups that bypassed the cache.
+     */
+    private final LongAdder bypasses = new LongAdder();
+
+    /**
+     * Stores the capacity.
+     */
+    private final int capacity;
+
+    /**
+     * Stores the entries.
+     */
+    private final StripedLruMap<ResolvedRoute<R>> entries;
+
+    /**
+     * Stores the number of hits.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Stores the sets of distinct keys per route (of the current window).
+     */
+    private final Map<R, KeySet> keySets = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the number of misses.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Stores the number of puts of the current window.
+     */
+    private final AtomicInteger puts = new AtomicInteger();
+
+    /**
+     * Stores the number of puts after which the key sets are cleared.
+     */
+    private final int window;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity the maximum number of entries.
+     * @throws IllegalArgumentException when the capacity is not positive.
+     */
+    public RouteCache(int capacity) {
+        this.entries = new StripedLruMap<>(capacity);
+        this.capacity = capacity;
+        this.window = capacity > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : capacity * 2;
+        int keyLimit = Math.max(1, capacity / 4);
+        this.bitCount = Math.min(1 << 15, Math.max(1024, Integer.highestOneBit(keyLimit) * 32));
+        this.bitLimit = (int) Math.ceil(bitCount * (1 - Math.exp(-(double) keyLimit / bitCount)));
+    }
+
+    /**
+     * Get the cached entry.
+     *
+     * @param key the key.
+     * @return the entry, or null if not cached.
+     */
+    public ResolvedRoute<R> get(String key) {
+        ResolvedRoute<R> entry = entries.get(key);
+        if (entry != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return entry;
+    }
+
+    /**
+     * Get the number of lookups that bypassed the cache because their route
+     * is high-cardinality.
+     *
+     * @return the number of bypasses.
+     */
+    public long getBypasses() {
+        return bypasses.sum();
+    }
+
+    /**
+     * Get the capacity.
+     *
+     * @return the capacity.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the number of hits.
+     *
+     * @return the number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of misses.
+     *
+     * @return the number of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Is the route high-cardinality.
+     *
+     * @param route the route.
+     * @return true if it is, false otherwise.
+     */
+    public boolean isBypassed(R route) {
+        KeySet keySet = keySets.get(route);
+        return keySet != null && keySet.size() > bitLimit;
+    }
+
+    /**
+     * Put an entry in the cache (unless its route is high-cardinality).
+     *
+     * @param key the key.
+     * @param route the route.
+     * @param parameters the path parameters.
+     */
+    public void put(String key, R route, Map<String, String> parameters) {
+        if (puts.incrementAndGet() >= window) {
+            puts.set(0);
+            keySets.clear();
+        }
+        if (keySets.computeIfAbsent(route, r -> new KeySet(bitCount)).add(key) > bitLimit) {
+            bypasses.increment();
+            return;
+        }
+        entries.put(key, new ResolvedRoute<>(route, parameters));
+    }
+
+    /**
+     * Get the number of entries.
+     *
+     * @return the number of entries.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * A set of key hashes.
+     *
+     * <p>
+     *  The set is a bitmap indexed by key hash, so the number of bits that are
+     *  set estimates the number of distinct keys (linear counting) in a fixed
+     *  amount of memory.
+     * </p>
+     */
+    private static class KeySet {
+
+        /**
+         * Stores the number of bits that are set.
+         */
+        private final AtomicInteger size = new AtomicInteger();
+
+        /**
+         * Stores the bits.
+         */
+        private final AtomicLongArray words;
+
+        /**
+         * Constructor.
+         *
+         * @param bitCount the number of bits (a power of two).
+         */
+        KeySet(int bitCount) {
+            this.words = new AtomicLongArray(bitCount / 64);
+        }
+
+        /**
+         * Add a key.
+         *
+         * @param key the key.
+         * @return the number of bits that are set.
+         */
+        int add(String key) {
+            int hash = key.hashCode() * 0x9E3779B9;
+            int index = (hash ^ (hash >>> 16)) & (words.length() * 64 - 1);
+            long mask = 1L << index;
+            int word = index >>> 6;
+            long bits = words.get(word);
+            while ((bits & mask) == 0) {
+                if (words.compareAndSet(word, bits, bits | mask)) {
+                    return size.incrementAndGet();
+                }
+                bits = words.get(word);
+            }
+            return size.get();
+        }
+
+        /**
+         * Get the number of bits that are set.
+         *
+         * @return the number of bits that are set.
+         */
+        int size() {
+            return size.get();
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The negative filter of a route table.
+ *
+ * <p>
+ *  Every route has a root, the literal text every path it matches starts with
+ *  (eg. '/users/' for '/users/{id}'). The roots are stored in a prefix tree,
+ *  so a path that does not start with any root is rejected by walking its
+ *  characters once. A route that matches on the end of a path instead (eg. an
+ *  extension mapping like '*.do') has a suffix; a path that does not start
+ *  with a root and does not end with a suffix is rejected. The suffixes are
+ *  indexed by their last character so most paths are rejected by a single
+ *  character lookup. Optionally the keys of recent lookups that passed the
+ *  prefix tree but still did not match are remembered in a bounded miss
+ *  cache so a repeated unknown path is rejected with a single lookup as well.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class RouteFilter {
+
+    /**
+     * Stores the characters that end the literal part of a regular expression.
+     */
+    private static final String REGEX_CHARACTERS = ".[]{}()*+?^$|";
+
+    /**
+     * Stores the miss cache (null when disabled).
+     */
+    private final StripedLruMap<Boolean> misses;
+
+    /**
+     * Stores the number of rejected lookups.
+     */
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * Stores the roots.
+     */
+    private final PrefixTree<String> roots = new PrefixTree<>();
+
+    /**
+     * Stores the last characters of the suffixes.
+     */
+    private final String suffixEnds;
+
+    /**
+     * Stores the suffixes.
+     */
+    private final String[] suffixes;
+
+    /**
+     * Constructor.
+     *
+     * @param roots the roots of the routes.
+     * @param missCacheSize the size of the miss cache (0 to disable it).
+     */
+    public RouteFilter(Collection<String> roots, int missCacheSize) {
+        this(roots, List.of(), missCacheSize);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param roots the roots of the routes.
+     * @param suffixes the suffixes of the routes that match on the end of a
+     * path.
+     * @param missCacheSize the size of the miss cache (0 to disable it).
+     */
+    public RouteFilter(Collection<String> roots, Collection<String> suffixes, int missCacheSize) {
+        for (String root : roots) {
+            this.roots.add(root, root);
+        }
+        StringBuilder ends = new StringBuilder();
+        for (String suffix : suffixes) {
+            if (suffix.isEmpty()) {
+                this.roots.add("", "");
+            } else if (ends.indexOf(suffix.substring(suffix.length() - 1)) == -1) {
+                ends.append(suffix.charAt(suffix.length() - 1));
+            }
+        }
+        this.suffixEnds = ends.toString();
+        this.suffixes = suffixes.stream().filter(suffix -> !suffix.isEmpty()).toArray(String[]::new);
+        this.misses = missCacheSize > 0 ? new StripedLruMap<>(missCacheSize) : null;
+    }
+
+    /**
+     * Get the number of rejected lookups.
+     *
+     * @return the number of rejected lookups.
+     */
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    /**
+     * Is the lookup known to miss.
+     *
+     * @param key the key of the lookup.
+     * @return true if it is, false otherwise.
+     */
+    public boolean isKnownMiss(String key) {
+        if (misses != null && misses.get(key) != null) {
+            rejections.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Can the path match a route.
+     *
+     * @param path the path.
+     * @return false if the path does not start with the root of any route
+     * and does not end with the suffix of any route, true otherwise.
+     */
+    public boolean mayMatch(String path) {
+        if (roots.longestMatch(path) == null && !endsWithSuffix(path)) {
+            rejections.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Does the path end with a suffix.
+     *
+     * @param path the path.
+     * @return true if it does, false otherwise.
+     */
+    private boolean endsWithSuffix(String path) {
+        if (path.isEmpty() || suffixEnds.indexOf(path.charAt(path.length() - 1)) == -1) {
+            return false;
+        }
+        for (String suffix : suffixes) {
+            if (path.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Record a lookup that did not match.
+     *
+     * @param key the key of the lookup.
+     */
+    public void recordMiss(String key) {
+        if (misses != null) {
+            misses.put(key, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Get the root of a regular expression.
+     *
+     * <p>
+     *  The root is the literal text at the start of the regular expression,
+     *  without the last character when that one is quantified. It is empty
+     *  when the regular expression has a top level alternation.
+     * </p>
+     *
+     * @param regex the regular expression.
+     * @return the root.
+     */
+    public static String regexRoot(String regex) {
+        if (hasTopLevelAlternation(regex)) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder();
+        int last = 0;
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    break;
+                }
+                last = builder.length();
+                builder.append(regex.charAt(i + 1));
+                i += 2;
+            } else if (REGEX_CHARACTERS.indexOf(c) != -1) {
+                break;
+            } else {
+                last = builder.length();
+                builder.append(c);
+                i++;
+            }
+        }
+        if (i < regex.length() && "*+?{".indexOf(regex.charAt(i)) != -1) {
+            builder.setLength(last);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Get the root of a path template.
+     *
+     * @param template the path template.
+     * @return the text before the first placeholder, or the template itself
+     * if it has no placeholders.
+     */
+    public static String templateRoot(String template) {
+        int index = template.indexOf('{');
+        return index == -1 ? template : template.substring(0, index);
+    }
+
+    /**
+     * Does the regular expression have a top level alternation.
+     *
+     * @param regex the regular expression.
+     * @return true if it does, false otherwise.
+     */
+    private static boolean hasTopLevelAlternation(String regex) {
+        int depth = 0;
+        boolean inClass = false;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (inClass) {
+                inClass = c != ']';
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
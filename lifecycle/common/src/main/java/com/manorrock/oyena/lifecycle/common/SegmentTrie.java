@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A trie of path templates.
+ *
+ * <p>
+ *  A path template is a path where a segment can be a placeholder, eg.
+ *  '/users/{id:long}/orders/{orderId}'. A placeholder matches exactly one
+ *  non-empty segment and can be constrained to an 'int' or a 'long', which
+ *  only match unsigned decimal digits (so '/users/-1' and '/users/+1' do not
+ *  match '/users/{id:long}') that fit the type. The
+ *  templates are stored segment by segment so matching a path and extracting
+ *  its parameters only takes string comparisons. A literal segment is
+ *  preferred over a placeholder and an 'int' or 'long' placeholder is
+ *  preferred over an unconstrained one. When two templates are identical the
+ *  one that was added first wins.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ * @param <T> the type of the values.
+ */
+public class SegmentTrie<T> {
+
+    /**
+     * Stores the characters that make a path without placeholders a regular
+     * expression.
+     */
+    private static final String REGEX_CHARACTERS = "\\.[]{}()*+?^$|";
+
+    /**
+     * Stores the maximum number of placeholders of a template.
+     */
+    private int maxParameters;
+
+    /**
+     * Stores the root node.
+     */
+    private final Node<T> root = new Node<>();
+
+    /**
+     * Stores the number of templates.
+     */
+    private int size;
+
+    /**
+     * Constructor.
+     */
+    public SegmentTrie() {
+        // nothing to do here.
+    }
+
+    /**
+     * Is the path a path template.
+     *
+     * <p>
+     *  A path is a path template when it has at least one placeholder, or when
+     *  it has no characters that have a special meaning in a regular
+     *  expression (in which case the path matches exactly the same as it
+     *  would as a regular expression). In a path template a '.' is a literal
+     *  character, any other regular expression syntax is rejected.
+     * </p>
+     *
+     * @param path the path.
+     * @return true if it is, false otherwise.
+     * @throws IllegalArgumentException when the path mixes placeholders with
+     * regular expression syntax, or has a placeholder that does not span a
+     * whole segment.
+     */
+    public static boolean isTemplate(String path) {
+        boolean placeholder = false;
+        boolean regex = false;
+        for (String segment : path.split("/", -1)) {
+            if (isPlaceholder(segment)) {
+                placeholder = true;
+                continue;
+            }
+            for (int i = 0; i < segment.length(); i++) {
+                char c = segment.charAt(i);
+                if (c == '{' && i + 1 < segment.length() && Character.isLetter(segment.charAt(i + 1))) {
+                    throw new IllegalArgumentException(
+                            "A placeholder must span a whole segment in path: " + path);
+                }
+                if (c != '.' && REGEX_CHARACTERS.indexOf(c) != -1) {
+                    regex = true;
+                }
+            }
+        }
+        if (placeholder && regex) {
+            throw new IllegalArgumentException(
+                    "Path template mixes placeholders with regular expression syntax: " + path);
+        }
+        return placeholder || (!regex && path.indexOf('.') == -1);
+    }
+
+    /**
+     * Is the segment a placeholder.
+     *
+     * @param segment the segment.
+     * @return true if it is, false otherwise.
+     */
+    private static boolean isPlaceholder(String segment) {
+        if (segment.length() < 3 || segment.charAt(0) != '{'
+                || segment.charAt(segment.length() - 1) != '}'
+                || !Character.isLetter(segment.charAt(1))) {
+            return false;
+        }
+        int colon = segment.indexOf(':');
+        int end = colon == -1 ? segment.length() - 1 : colon;
+        for (int i = 1; i < end; i++) {
+            char c = segment.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                return false;
+            }
+        }
+        for (int i = end + 1; i < segment.length() - 1; i++) {
+            if (!Character.isLetter(segment.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Add a template.
+     *
+     * @param template the template.
+     * @param value the value.
+     * @throws IllegalArgumentException when the template is not a valid path
+     * template.
+     */
+    public void add(String template, T value) {
+        if (!isTemplate(template)) {
+            throw new IllegalArgumentException("Not a path template: " + template);
+        }
+        Node<T> node = root;
+        List<String> names = new ArrayList<>();
+        for (String segment : template.split("/", -1)) {
+            if (isPlaceholder(segment)) {
+                int colon = segment.indexOf(':');
+                String name = segment.substring(1, colon == -1 ? segment.length() - 1 : colon);
+                SegmentType type = colon == -1
+                        ? SegmentType.STRING : SegmentType.of(segment.substring(colon + 1, segment.length() - 1), template);
+                if (names.contains(name)) {
+                    throw new IllegalArgumentException("Duplicate placeholder '" + name + "' in path template: " + template);
+                }
+                names.add(name);
+                node = node.parameterChild(type);
+            } else {
+                node = node.literalChild(segment);
+            }
+        }
+        if (node.value == null) {
+            node.value = value;
+            node.names = names.toArray(String[]::new);
+            maxParameters = Math.max(maxParameters, names.size());
+        }
+        size++;
+    }
+
+    /**
+     * Is the trie empty.
+     *
+     * @return true if it is, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Match a path.
+     *
+     * @param path the path.
+     * @return the match, or null if no template matches.
+     */
+    public SegmentTrieMatch<T> match(String path) {
+        if (size == 0) {
+            return null;
+        }
+        int[] spans = new int[maxParameters * 2];
+        Node<T> node = find(root, path, 0, spans, 0);
+        if (node == null) {
+            return null;
+        }
+        Map<String, String> parameters = Collections.emptyMap();
+        if (node.names.length > 0) {
+            parameters = new LinkedHashMap<>(node.names.length * 2);
+            for (int i = 0; i < node.names.length; i++) {
+                parameters.put(node.names[i], path.substring(spans[2 * i], spans[2 * i + 1]));
+            }
+            parameters = Collections.unmodifiableMap(parameters);
+        }
+        return new SegmentTrieMatch<>(node.value, parameters);
+    }
+
+    /**
+     * Find the node for the remainder of the path.
+     *
+     * @param node the current node.
+     * @param path the path.
+     * @param start the start of the current segment.
+     * @param spans the start and end of the parameter segments.
+     * @param depth the number of parameter segments so far.
+     * @return the node, or null if not found.
+     */
+    private Node<T> find(Node<T> node, String path, int start, int[] spans, int depth) {
+        int end = path.indexOf('/', start);
+        boolean last = end == -1;
+        if (last) {
+            end = path.length();
+        }
+        if (node.literals != null) {
+            Node<T> child = node.literals.get(path.substring(start, end));
+            if (child != null) {
+                Node<T> result = last ? child.terminal() : find(child, path, end + 1, spans, depth);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+        for (int i = 0; i < node.parameterTypes.length; i++) {
+            if (node.parameterTypes[i].matches(path, start, end)) {
+                spans[2 * depth] = start;
+                spans[2 * depth + 1] = end;
+                Node<T> child = node.parameters[i];
+                Node<T> result = last ? child.terminal() : find(child, path, end + 1, spans, depth + 1);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A node of the trie.
+     *
+     * @param <T> the type of the value.
+     */
+    private static class Node<T> {
+
+        /**
+         * Stores the literal children.
+         */
+        private Map<String, Node<T>> literals;
+
+        /**
+         * Stores the placeholder names of the template that ends here.
+         */
+        private String[] names;
+
+        /**
+         * Stores the placeholder children.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"}) // generic array creation, the array never leaves the node
+        private Node<T>[] parameters = new Node[0];
+
+        /**
+         * Stores the types of the placeholder children.
+         */
+        private SegmentType[] parameterTypes = new SegmentType[0];
+
+        /**
+         * Stores the value of the template that ends here.
+         */
+        private T value;
+
+        /**
+         * Get (or create) the literal child.
+         *
+         * @param segment the segment.
+         * @return the child.
+         */
+        Node<T> literalChild(String segment) {
+            if (literals == null) {
+                literals = new HashMap<>();
+            }
+            return literals.computeIfAbsent(segment, key -> new Node<>());
+        }
+
+        /**
+         * Get (or create) the placeholder child.
+         *
+         * <p>
+         *  The children are kept in the order of the segment types so the
+         *  most constrained type is tried first.
+         * </p>
+         *
+         * @param type the segment type.
+         * @return the child.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"}) // generic array creation, the array never leaves the node
+        Node<T> parameterChild(SegmentType type) {
+            int index = 0;
+            while (index < parameterTypes.length && parameterTypes[index].ordinal() < type.ordinal()) {
+                index++;
+            }
+            if (index < parameterTypes.length && parameterTypes[index] == type) {
+                return parameters[index];
+            }
+            SegmentType[] types = new SegmentType[parameterTypes.length + 1];
+            Node<T>[] children = new Node[parameters.length + 1];
+            System.arraycopy(parameterTypes, 0, types, 0, index);
+            System.arraycopy(parameters, 0, children, 0, index);
+            types[index] = type;
+            children[index] = new Node<>();
+            System.arraycopy(parameterTypes, index, types, index + 1, parameterTypes.length - index);
+            System.arraycopy(parameters, index, children, index + 1, parameters.length - index);
+            parameterTypes = types;
+            parameters = children;
+            return children[index];
+        }
+
+        /**
+         * Get the node if a template ends here.
+         *
+         * @return the node, or null if no template ends here.
+         */
+        Node<T> terminal() {
+            return value != null ? this : null;
+        }
+    }
+
+    /**
+     * The type of a placeholder segment.
+     */
+    private enum SegmentType {
+
+        /**
+         * A segment that is an int.
+         */
+        INT,
+
+        /**
+         * A segment that is a long.
+         */
+        LONG,
+
+        /**
+         * Any non-empty segment.
+         */
+        STRING;
+
+        /**
+         * Get the segment type for a name.
+         *
+         * @param name the name.
+         * @param template the template (for error reporting).
+         * @return the segment type.
+         * @throws IllegalArgumentException when the name is unknown.
+         */
+        static SegmentType of(String name, String template) {
+            return switch (name) {
+                case "int" -> INT;
+                case "long" -> LONG;
+                case "string" -> STRING;
+                default -> throw new IllegalArgumentException(
+                        "Unknown placeholder type '" + name + "' in path template: " + template);
+            };
+        }
+
+        /**
+         * Does the segment match the type.
+         *
+         * @param path the path.
+         * @param start the start of the segment.
+         * @param end the end of the segment.
+         * @return true if it does, false otherwise.
+         */
+        boolean matches(String path, int start, int end) {
+            if (start == end) {
+                return false;
+            }
+            if (this == STRING) {
+                return true;
+            }
+            for (int i = start; i < end; i++) {
+                char c = path.charAt(i);
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+            }
+            try {
+                if (this == INT) {
+                    Integer.parseInt(path, start, end, 10);
+                } else {
+                    Long.parseLong(path, start, end, 10);
+                }
+                return true;
+            } catch (NumberFormatException nfe) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, thread-safe least recently used map.
+ *
+ * <p>
+ *  The map is split into stripes, every stripe is an access ordered
+ *  LinkedHashMap guarded by its own lock, so concurrent lookups of different
+ *  keys rarely contend.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ * @param <V> the type of the values.
+ */
+class StripedLruMap<V> {
+
+    /**
+     * Stores the stripes.
+     */
+    private final Stripe<V>[] stripes;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity the maximum number of entries.
+     * @throws IllegalArgumentException when the capacity is not positive.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"}) // generic array creation, the array never leaves the map
+    StripedLruMap(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int stripeCount = Math.max(1, Math.min(16, Integer.highestOneBit(capacity / 8)));
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe<>((capacity + stripeCount - 1) / stripeCount);
+        }
+    }
+
+    /**
+     * Get the value.
+     *
+     * @param key the key.
+     * @return the value, or null if not present.
+     */
+    V get(String key) {
+        Stripe<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+
+    /**
+     * Put the value.
+     *
+     * @param key the key.
+     * @param value the value.
+     */
+    void put(String key, V value) {
+        Stripe<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            stripe.put(key, value);
+        }
+    }
+
+    /**
+     * Get the number of entries.
+     *
+     * @return the number of entries.
+     */
+    int size() {
+        int size = 0;
+        for (Stripe<V> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Get the stripe for a key.
+     *
+     * @param key the key.
+     * @return the stripe.
+     */
+    private Stripe<V> stripeFor(String key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    /**
+     * A stripe of the map.
+     *
+     * @param <V> the type of the values.
+     */
+    private static class Stripe<V> extends LinkedHashMap<String, V> {
+
+        /**
+         * Stores the serial version UID.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Stores the capacity.
+         */
+        private final int capacity;
+
+        /**
+         * Constructor.
+         *
+         * @param capacity the capacity.
+         */
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Dependent;
+import jakarta.enterprise.inject.Instance;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the BeanInstances class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class BeanInstancesTest {
+
+    /**
+     * Test acquire method with a bean of a normal scope.
+     */
+    @Test
+    void testAcquire() {
+        List<Object> destroyed = new ArrayList<>();
+        BeanInstances instances = new BeanInstances(CommonStubs.bean(Object.class, ApplicationScoped.class),
+                CommonStubs.instance(Object::new, destroyed), -1);
+        Instance.Handle<?> first = instances.acquire();
+        instances.release(first);
+        assertSame(first, instances.acquire());
+        instances.destroy();
+        assertTrue(destroyed.isEmpty());
+    }
+
+    /**
+     * Test acquire method with a @Dependent bean.
+     */
+    @Test
+    void testAcquire2() {
+        List<Object> destroyed = new ArrayList<>();
+        BeanInstances instances = new BeanInstances(CommonStubs.bean(Object.class, Dependent.class),
+                CommonStubs.instance(Object::new, destroyed), -1);
+        Instance.Handle<?> first = instances.acquire();
+        instances.release(first);
+        Instance.Handle<?> second = instances.acquire();
+        assertNotSame(first.get(), second.get());
+        assertEquals(List.of(first.get()), destroyed);
+    }
+
+    /**
+     * Test acquire method with a pooled @Dependent bean.
+     */
+    @Test
+    void testAcquire3() {
+        List<Object> destroyed = new ArrayList<>();
+        BeanInstances instances = new BeanInstances(CommonStubs.bean(Object.class, Dependent.class),
+                CommonStubs.instance(Object::new, destroyed), 2);
+        Instance.Handle<?> first = instances.acquire();
+        Instance.Handle<?> second = instances.acquire();
+        Instance.Handle<?> third = instances.acquire();
+        instances.release(first);
+        instances.release(second);
+        instances.release(third);
+        assertEquals(List.of(third.get()), destroyed);
+        assertSame(first, instances.acquire());
+        instances.destroy();
+        assertEquals(List.of(third.get(), second.get()), destroyed);
+    }
+
+    /**
+     * Create a pooled @Dependent bean instances.
+     *
+     * @param destroyed the list the destroyed instances are added to.
+     * @return the bean instances.
+     */
+    private static BeanInstances pooled(List<Object> destroyed) {
+        return new BeanInstances(CommonStubs.bean(Object.class, Dependent.class),
+                CommonStubs.instance(Object::new, destroyed), 2);
+    }
+
+    /**
+     * Test release method with a CompletionStage result.
+     */
+    @Test
+    void testRelease() {
+        BeanInstances instances = pooled(new ArrayList<>());
+        Instance.Handle<?> first = instances.acquire();
+        CompletableFuture<String> stage = new CompletableFuture<>();
+        assertSame(stage, instances.release(first, stage));
+        Instance.Handle<?> second = instances.acquire();
+        assertNotSame(first.get(), second.get());
+        stage.complete("done");
+        assertSame(first, instances.acquire());
+    }
+
+    /**
+     * Test release method with a Stream result.
+     */
+    @Test
+    void testRelease2() {
+        BeanInstances instances = pooled(new ArrayList<>());
+        Instance.Handle<?> first = instances.acquire();
+        Stream<?> stream = (Stream<?>) instances.release(first, Stream.of("a", "b"));
+        assertEquals(2, stream.count());
+        assertNotSame(first, instances.acquire());
+        stream.close();
+        assertSame(first, instances.acquire());
+    }
+
+    /**
+     * Test release method with an Iterator result.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testRelease3() throws Exception {
+        BeanInstances instances = pooled(new ArrayList<>());
+        Instance.Handle<?> first = instances.acquire();
+        Iterator<?> iterator = (Iterator<?>) instances.release(first, List.of("a").iterator());
+        assertEquals("a", iterator.next());
+        assertNotSame(first, instances.acquire());
+        assertFalse(iterator.hasNext());
+        assertSame(first, instances.acquire());
+        Instance.Handle<?> second = instances.acquire();
+        AutoCloseable unused = (AutoCloseable) instances.release(second, List.of("a").iterator());
+        assertNotSame(second, instances.acquire());
+        unused.close();
+        assertSame(second, instances.acquire());
+    }
+
+    /**
+     * Test release method with a Flow.Publisher result.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRelease4() {
+        BeanInstances instances = pooled(new ArrayList<>());
+        Instance.Handle<?> first = instances.acquire();
+        Flow.Publisher<String> publisher = subscriber -> {
+            subscriber.onSubscribe(CommonStubs.stub(Flow.Subscription.class, Map.of()));
+            subscriber.onComplete();
+        };
+        Flow.Publisher<String> result = (Flow.Publisher<String>) instances.release(first, publisher);
+        assertNotSame(first, instances.acquire());
+        List<String> signals = new ArrayList<>();
+        result.subscribe(CommonStubs.stub(Flow.Subscriber.class, Map.of(
+                "onSubscribe", arguments -> signals.add("subscribe"),
+                "onComplete", arguments -> signals.add("complete"))));
+        assertEquals(List.of("subscribe", "complete"), signals);
+        assertSame(first, instances.acquire());
+    }
+
+    /**
+     * Test release method with a CompletionStage result of a @Dependent bean.
+     */
+    @Test
+    void testRelease5() {
+        List<Object> destroyed = new ArrayList<>();
+        BeanInstances instances = new BeanInstances(CommonStubs.bean(Object.class, Dependent.class),
+                CommonStubs.instance(Object::new, destroyed), -1);
+        Instance.Handle<?> handle = instances.acquire();
+        CompletableFuture<String> stage = new CompletableFuture<>();
+        instances.release(handle, stage);
+        assertTrue(destroyed.isEmpty());
+        stage.complete("done");
+        assertEquals(List.of(handle.get()), destroyed);
+    }
+}
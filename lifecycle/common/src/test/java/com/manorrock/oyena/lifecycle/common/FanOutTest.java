@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the FanOut class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class FanOutTest {
+
+    /**
+     * Test fork method.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testFork() throws Exception {
+        CountDownLatch latch = new CountDownLatch(2);
+        try (FanOut fanOut = new FanOut()) {
+            FanOut.Task<String> first = fanOut.fork("first", () -> {
+                latch.countDown();
+                latch.await();
+                return "a";
+            });
+            FanOut.Task<String> second = fanOut.fork("second", () -> {
+                latch.countDown();
+                latch.await();
+                return "b";
+            });
+            fanOut.join();
+            assertEquals("a", first.join());
+            assertEquals("b", second.join());
+            assertTrue(fanOut.toServerTiming().matches("first;dur=[0-9.]+, second;dur=[0-9.]+"));
+        }
+    }
+
+    /**
+     * Test join method of a failed task.
+     */
+    @Test
+    void testJoin() {
+        try (FanOut fanOut = new FanOut()) {
+            FanOut.Task<String> task = fanOut.fork(() -> {
+                throw new IllegalStateException();
+            });
+            CompletionException exception = assertThrows(CompletionException.class, task::join);
+            assertTrue(exception.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    /**
+     * Test join method of the fan-out throwing the first failure.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testJoin3() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        try (FanOut fanOut = new FanOut()) {
+            fanOut.fork("first", () -> {
+                throw new IllegalStateException("first");
+            });
+            fanOut.fork("second", () -> {
+                latch.await();
+                throw new IllegalArgumentException("second");
+            });
+            fanOut.fork("third", () -> "c");
+            while (!fanOut.getTasks().get(0).isDone()) {
+                Thread.sleep(1);
+            }
+            latch.countDown();
+            CompletionException exception = assertThrows(CompletionException.class, fanOut::join);
+            assertEquals("first", exception.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Test join method cancelling a task at the deadline.
+     */
+    @Test
+    void testJoin2() {
+        try (FanOut fanOut = new FanOut(Duration.ofMillis(50))) {
+            FanOut.Task<String> task = fanOut.fork("slow", () -> {
+                Thread.sleep(10_000);
+                return "late";
+            });
+            assertThrows(CancellationException.class, task::join);
+            assertTrue(task.isDone());
+        }
+    }
+
+    /**
+     * Test fork method cancelling a task nobody joins at the deadline.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testFork2() throws Exception {
+        try (FanOut fanOut = new FanOut(Duration.ofMillis(50))) {
+            FanOut.Task<String> task = fanOut.fork("slow", () -> {
+                Thread.sleep(10_000);
+                return "late";
+            });
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!task.isDone() && System.nanoTime() < end) {
+                Thread.sleep(10);
+            }
+            assertTrue(task.isDone());
+            assertThrows(CancellationException.class, task::join);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the InstancePool class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class InstancePoolTest {
+
+    /**
+     * Test acquire method.
+     */
+    @Test
+    void testAcquire() {
+        AtomicInteger counter = new AtomicInteger();
+        InstancePool<Integer> pool = new InstancePool<>(2, counter::incrementAndGet, instance -> {});
+        Integer first = pool.acquire();
+        Integer second = pool.acquire();
+        assertNotSame(first, second);
+        pool.release(first);
+        assertSame(first, pool.acquire());
+        assertEquals(2, pool.getCreated());
+    }
+
+    /**
+     * Test release method disposing of the instances that do not fit.
+     */
+    @Test
+    void testRelease() {
+        List<Object> disposed = new ArrayList<>();
+        InstancePool<Object> pool = new InstancePool<>(1, Object::new, disposed::add);
+        Object first = pool.acquire();
+        Object second = pool.acquire();
+        pool.release(first);
+        pool.release(second);
+        assertEquals(1, pool.size());
+        assertEquals(List.of(second), disposed);
+        pool.clear();
+        assertEquals(0, pool.size());
+        assertEquals(List.of(second, first), disposed);
+    }
+}
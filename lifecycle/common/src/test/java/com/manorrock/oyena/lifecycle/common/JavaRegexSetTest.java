@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the JavaRegexSet class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class JavaRegexSetTest {
+
+    /**
+     * Test match method.
+     */
+    @Test
+    void testMatch() {
+        JavaRegexSet set = new JavaRegexSet(List.of("/page[A-Z]", "/mypath/(?<path>.*)", "/(?<path>.*)"));
+        assertEquals(0, set.match("/pageB").getIndex());
+        assertEquals(1, set.match("/mypath/a/b").getIndex());
+        assertEquals(2, set.match("/other").getIndex());
+        assertEquals("a/b", set.match("/mypath/a/b").getGroup("path"));
+        assertEquals("other", set.match("/other").getGroup("path"));
+        assertEquals(Map.of("path", "x"), set.match("/mypath/x").getGroups());
+        assertEquals(Map.of(), set.match("/pageB").getGroups());
+        assertNull(set.match("other"));
+    }
+
+    /**
+     * Test match method with a back reference.
+     */
+    @Test
+    void testMatch2() {
+        JavaRegexSet set = new JavaRegexSet(List.of("/a(b)\\1", "/(?<x>c)\\k<x>", "/(?<x>.*)"));
+        assertEquals(0, set.match("/abb").getIndex());
+        assertEquals(1, set.match("/cc").getIndex());
+        assertEquals("c", set.match("/cc").getGroup("x"));
+        assertEquals(2, set.match("/ab").getIndex());
+        assertEquals("ab", set.match("/ab").getGroup("x"));
+    }
+
+    /**
+     * Test match method with quoting and character classes.
+     */
+    @Test
+    void testMatch3() {
+        JavaRegexSet set = new JavaRegexSet(List.of("\\Q/(?<a>)\\E", "/[(?<b>]+", "/(?i)upper"));
+        assertEquals(0, set.match("/(?<a>)").getIndex());
+        assertEquals(1, set.match("/((<").getIndex());
+        assertEquals(2, set.match("/UPPER").getIndex());
+        assertEquals(3, set.size());
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the LinearRegexSet class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class LinearRegexSetTest {
+
+    /**
+     * Stores the atoms used by the random regular expressions.
+     */
+    private static final String[] ATOMS = {"a", "b", "/", ".", "[ab]", "[^a/]", "\\d"};
+
+    /**
+     * Stores the quantifiers used by the random regular expressions.
+     */
+    private static final String[] QUANTIFIERS = {
+        "", "", "", "?", "??", "*", "+", "*?", "+?", "{2}", "{0,2}", "{1,3}", "{1,}", "{0,2}?"
+    };
+
+    /**
+     * Test match method.
+     */
+    @Test
+    void testMatch() {
+        LinearRegexSet set = new LinearRegexSet(List.of("/page[A-Z]", "/mypath/(?<path>.*)", "/(?<path>.*)"));
+        assertEquals(0, set.match("/pageB").getIndex());
+        assertEquals(1, set.match("/mypath/a/b").getIndex());
+        assertEquals("a/b", set.match("/mypath/a/b").getGroup("path"));
+        assertEquals(2, set.match("/other").getIndex());
+        assertEquals("other", set.match("/other").getGroup("path"));
+        assertNull(set.match("other"));
+        assertEquals(3, set.size());
+    }
+
+    /**
+     * Test match method with quantifiers, classes and alternation.
+     */
+    @Test
+    void testMatch2() {
+        LinearRegexSet set = new LinearRegexSet(List.of(
+                "/item/(?<id>\\d{1,4})", "/(?<a>[^/]+?)(?<b>/.*)?", "\\Q//(?<x>)\\E|//x{2,}"));
+        assertEquals("42", set.match("/item/42").getGroup("id"));
+        assertEquals(1, set.match("/item/12345").getIndex());
+        assertEquals("item", set.match("/item/12345").getGroup("a"));
+        assertEquals("/12345", set.match("/item/12345").getGroup("b"));
+        assertNull(set.match("/single").getGroup("b"));
+        assertEquals(2, set.match("//(?<x>)").getIndex());
+        assertEquals(2, set.match("//xxx").getIndex());
+        assertNull(set.match("//x"));
+    }
+
+    /**
+     * Test match method against input that makes a backtracking engine blow
+     * up.
+     */
+    @Test
+    void testMatch3() {
+        LinearRegexSet set = new LinearRegexSet(List.of("(a+)+b", "(a|aa)*c"));
+        assertNull(set.match("a".repeat(10000)));
+        assertEquals(1, set.match("a".repeat(10000) + "c").getIndex());
+    }
+
+    /**
+     * Test constructor with unsupported constructs.
+     */
+    @Test
+    void testConstructor() {
+        assertThrows(PatternSyntaxException.class, () -> new LinearRegexSet(List.of("(a)\\1")));
+        assertThrows(PatternSyntaxException.class, () -> new LinearRegexSet(List.of("a(?=b)")));
+        assertThrows(PatternSyntaxException.class, () -> new LinearRegexSet(List.of("a++")));
+        assertThrows(PatternSyntaxException.class, () -> new LinearRegexSet(List.of("(a")));
+    }
+
+    /**
+     * Test constructor with inline flags, Unicode classes and nested classes.
+     */
+    @Test
+    void testConstructor2() {
+        assertThrows(PatternSyntaxException.class, () -> new LinearRegexSet(List.of("(?i)/page")));
+        assertThrows(PatternSyntaxException.class, () -> new LinearRegexSet(List.of("/(?i:page)")));
+        assertThrows(PatternSyntaxException.class, () -> new LinearRegexSet(List.of("/\\p{L}+")));
+        assertThrows(PatternSyntaxException.class, () -> new LinearRegexSet(List.of("/[\\p{L}]")));
+        assertThrows(PatternSyntaxException.class, () -> new LinearRegexSet(List.of("/[a[b]]")));
+        assertThrows(PatternSyntaxException.class, () -> new LinearRegexSet(List.of("/[a-z&&[^b]]")));
+    }
+
+    /**
+     * Test match method with repetitions that match the empty string.
+     */
+    @Test
+    void testMatch4() {
+        LinearRegexSet set = new LinearRegexSet(List.of("/(?<x>a*)*"));
+        assertEquals("", set.match("/").getGroup("x"));
+        assertEquals("", set.match("/a").getGroup("x"));
+        set = new LinearRegexSet(List.of("(?<x>a??){2}", "(?<y>a|)*b"));
+        assertEquals("", set.match("a").getGroup("x"));
+        assertEquals("", set.match("ab").getGroup("y"));
+    }
+
+    /**
+     * Test match method against java.util.regex with random regular
+     * expressions.
+     *
+     * <p>
+     *  The first alternative is never empty, so no group can only match the
+     *  empty string (see LinearRegexCompiler). A group that contains a
+     *  capturing group and has a body without choices is only made optional,
+     *  as java.util.regex repeats those without restoring the captures when it
+     *  backtracks, and for example reports b and 1 for
+     *  (?:(?&lt;x&gt;.)(?&lt;y&gt;.))*.+? on "b1" where both should be null.
+     * </p>
+     */
+    @Test
+    void testMatch5() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            int[] groups = new int[1];
+            String regex = randomAlternation(random, 2, groups);
+            LinearRegexSet set = new LinearRegexSet(List.of(regex));
+            Pattern pattern = Pattern.compile(regex);
+            for (int j = 0; j < 20; j++) {
+                StringBuilder input = new StringBuilder();
+                int length = random.nextInt(7);
+                for (int k = 0; k < length; k++) {
+                    input.append("ab1/".charAt(random.nextInt(4)));
+                }
+                Matcher matcher = pattern.matcher(input);
+                RegexSetMatch match = set.match(input);
+                String message = regex + " on '" + input + "'";
+                assertEquals(matcher.matches(), match != null, message);
+                for (int k = 0; match != null && k < groups[0]; k++) {
+                    assertEquals(matcher.group("g" + k), match.getGroup("g" + k), message);
+                }
+            }
+        }
+    }
+
+    /**
+     * Create a random alternation.
+     *
+     * @param random the random.
+     * @param depth the remaining nesting depth.
+     * @param groups the number of named groups created so far.
+     * @return the regular expression.
+     */
+    private static String randomAlternation(Random random, int depth, int[] groups) {
+        StringBuilder regex = new StringBuilder();
+        int alternatives = 1 + random.nextInt(depth > 1 ? 3 : 2);
+        for (int i = 0; i < alternatives; i++) {
+            if (i > 0) {
+                regex.append('|');
+            }
+            int pieces = i == 0 ? 1 + random.nextInt(3) : random.nextInt(4);
+            for (int j = 0; j < pieces; j++) {
+                String atom = randomAtom(random, depth, groups);
+                regex.append(atom);
+                boolean restricted = atom.contains("(?<") && isDeterministic(atom);
+                regex.append(QUANTIFIERS[random.nextInt(restricted ? 5 : QUANTIFIERS.length)]);
+            }
+        }
+        return regex.toString();
+    }
+
+    /**
+     * Is the regular expression without choices (no alternation and no
+     * variable repetition).
+     *
+     * @param regex the regular expression.
+     * @return true if it is, false otherwise.
+     */
+    private static boolean isDeterministic(String regex) {
+        String stripped = regex.replace("(?<", "(").replace("(?:", "(");
+        return stripped.chars().noneMatch(c -> c == '|' || c == '*' || c == '+' || c == '?')
+                && !stripped.contains("{0,") && !stripped.contains("{1,");
+    }
+
+    /**
+     * Create a random atom.
+     *
+     * @param random the random.
+     * @param depth the remaining nesting depth.
+     * @param groups the number of named groups created so far.
+     * @return the regular expression.
+     */
+    private static String randomAtom(Random random, int depth, int[] groups) {
+        int choice = random.nextInt(depth > 0 ? 10 : 7);
+        if (choice < 7) {
+            return ATOMS[choice];
+        } else if (choice < 9) {
+            String name = "g" + groups[0]++;
+            return "(?<" + name + ">" + randomAlternation(random, depth - 1, groups) + ")";
+        } else {
+            return "(?:" + randomAlternation(random, depth - 1, groups) + ")";
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the MethodInvoker class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class MethodInvokerTest {
+
+    /**
+     * Test invoke method.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testInvoke() throws Exception {
+        MethodInvoker invoker = new MethodInvoker(String.class.getMethod("substring", int.class, int.class));
+        assertEquals("ell", invoker.invoke("hello", new Object[]{1, 4}));
+        assertEquals(2, invoker.getParameterCount());
+        MethodInvoker length = new MethodInvoker(String.class.getMethod("length"));
+        assertEquals(5, length.invoke("hello", null));
+        MethodInvoker valueOf = new MethodInvoker(String.class.getMethod("valueOf", int.class));
+        assertEquals("42", valueOf.invoke(null, new Object[]{42}));
+    }
+
+    /**
+     * Test invoke method on a method that is not public (falls back to
+     * Method.invoke).
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testInvoke2() throws Exception {
+        MethodInvoker invoker = new MethodInvoker(MethodInvokerTest.class.getDeclaredMethod("hidden", String.class));
+        assertEquals("hidden x", invoker.invoke(new MethodInvokerTest(), new Object[]{"x"}));
+    }
+
+    /**
+     * Test invoke method with a method that throws.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testInvoke3() throws Exception {
+        MethodInvoker invoker = new MethodInvoker(Integer.class.getMethod("parseInt", String.class));
+        assertThrows(NumberFormatException.class, () -> invoker.invoke(null, new Object[]{"x"}));
+    }
+
+    /**
+     * Test invoke method with several invokers alive at the same time.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testInvoke4() throws Exception {
+        MethodInvoker upper = new MethodInvoker(String.class.getMethod("toUpperCase"));
+        MethodInvoker lower = new MethodInvoker(String.class.getMethod("toLowerCase"));
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals("ABC", upper.invoke("aBc", null));
+            assertEquals("abc", lower.invoke("aBc", null));
+        }
+    }
+
+    /**
+     * A method that is not public.
+     *
+     * @param value the value.
+     * @return the value prefixed with 'hidden '.
+     */
+    String hidden(String value) {
+        return "hidden " + value;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.lang.annotation.ElementType;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.UUID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the ParameterConverter class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class ParameterConverterTest {
+
+    /**
+     * Stores an Optional&lt;Long&gt; for its generic type.
+     */
+    private Optional<Long> optionalLong;
+
+    /**
+     * Test convert method.
+     */
+    @Test
+    void testConvert() {
+        assertEquals(42, ParameterConverter.forType(int.class).convert("/items/42".subSequence(7, 9)));
+        assertEquals(-7L, ParameterConverter.forType(Long.class).convert("-7"));
+        assertEquals(true, ParameterConverter.forType(boolean.class).convert("TRUE"));
+        assertEquals(ElementType.FIELD, ParameterConverter.forType(ElementType.class).convert("FIELD"));
+        assertEquals(LocalDate.of(2024, 2, 29), ParameterConverter.forType(LocalDate.class).convert("2024-02-29"));
+        UUID uuid = UUID.randomUUID();
+        assertEquals(uuid, ParameterConverter.forType(UUID.class).convert(uuid.toString()));
+        assertEquals("", ParameterConverter.forType(String.class).convert(""));
+    }
+
+    /**
+     * Test convert method with a missing value.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testConvert2() throws Exception {
+        assertEquals(0, ParameterConverter.forType(int.class).convert(null));
+        assertEquals(0, ParameterConverter.forType(int.class).convert(""));
+        assertNull(ParameterConverter.forType(Integer.class).convert(null));
+        ParameterConverter converter = ParameterConverter.forType(
+                getClass().getDeclaredField("optionalLong").getGenericType());
+        assertEquals(Optional.empty(), converter.convert(null));
+        assertEquals(Optional.of(5L), converter.convert("5"));
+    }
+
+    /**
+     * Test convert method with an invalid value.
+     */
+    @Test
+    void testConvert3() {
+        assertThrows(ParameterConversionException.class, () -> ParameterConverter.forType(int.class).convert("x"));
+        assertThrows(ParameterConversionException.class, () -> ParameterConverter.forType(byte.class).convert("300"));
+        assertThrows(ParameterConversionException.class,
+                () -> ParameterConverter.forType(LocalDate.class).convert("2024-13-01"));
+        assertNull(ParameterConverter.forType(Thread.class));
+    }
+
+    /**
+     * Test convert method keeps the failure findable in a cause chain.
+     */
+    @Test
+    void testConvert4() {
+        ParameterConversionException exception = assertThrows(ParameterConversionException.class,
+                () -> ParameterConverter.forType(UUID.class).convert("not-a-uuid"));
+        RuntimeException wrapper = new RuntimeException(new RuntimeException(exception));
+        assertSame(exception, ParameterConversionException.find(wrapper));
+        assertNull(ParameterConversionException.find(new RuntimeException()));
+    }
+
+    /**
+     * Test convert method rejects non-ASCII digits.
+     */
+    @Test
+    void testConvert5() {
+        String arabicIndic = "\u0661\u0662";
+        assertThrows(ParameterConversionException.class,
+                () -> ParameterConverter.forType(int.class).convert(arabicIndic));
+        assertThrows(ParameterConversionException.class,
+                () -> ParameterConverter.forType(Long.class).convert(arabicIndic));
+        assertThrows(ParameterConversionException.class,
+                () -> ParameterConverter.forType(BigInteger.class).convert(arabicIndic));
+        assertThrows(ParameterConversionException.class,
+                () -> ParameterConverter.forType(UUID.class).convert("\u0661" + "2345678-1234-1234-1234-123456789abc"));
+        assertEquals(12, ParameterConverter.forType(int.class).convert("12"));
+    }
+}
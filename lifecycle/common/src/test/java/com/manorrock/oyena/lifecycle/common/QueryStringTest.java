@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.nio.charset.StandardCharsets;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the QueryString class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class QueryStringTest {
+
+    /**
+     * Test getParameter method.
+     */
+    @Test
+    void testGetParameter() {
+        String query = "a=1&bb=22&flag&a=3&empty=";
+        assertEquals("1", QueryString.getParameter(query, "a").toString());
+        assertEquals("22", QueryString.getParameter(query, "bb").toString());
+        assertEquals("", QueryString.getParameter(query, "flag").toString());
+        assertEquals("", QueryString.getParameter(query, "empty").toString());
+        assertNull(QueryString.getParameter(query, "b"));
+        assertNull(QueryString.getParameter(null, "a"));
+    }
+
+    /**
+     * Test getParameter method with encoded names and values.
+     */
+    @Test
+    void testGetParameter2() {
+        String query = "first+name=J%C3%BCrgen&x%3Dy=a+b&bad=%zz";
+        assertEquals("J\u00fcrgen", QueryString.getParameter(query, "first name").toString());
+        assertEquals("a b", QueryString.getParameter(query, "x=y").toString());
+        assertEquals("%zz", QueryString.getParameter(query, "bad").toString());
+    }
+
+    /**
+     * Test getParameter method with another charset.
+     */
+    @Test
+    void testGetParameter3() {
+        String query = "name=J%FCrgen&J%FC=1";
+        assertEquals("J\u00fcrgen", QueryString.getParameter(query, "name", StandardCharsets.ISO_8859_1).toString());
+        assertEquals("1", QueryString.getParameter(query, "J\u00fc", StandardCharsets.ISO_8859_1).toString());
+        assertEquals("J\ufffdrgen", QueryString.getParameter(query, "name").toString());
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import jakarta.enterprise.context.ContextNotActiveException;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.enterprise.context.spi.Contextual;
+import jakarta.enterprise.context.spi.CreationalContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the RequestContext class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class RequestContextTest {
+
+    /**
+     * Create a contextual that creates a new Object every time.
+     *
+     * @param destroyed the list the destroyed instances are added to.
+     * @return the contextual.
+     */
+    @SuppressWarnings("unchecked")
+    private static Contextual<Object> contextual(List<Object> destroyed) {
+        return CommonStubs.stub(Contextual.class, Map.of(
+                "create", arguments -> new Object(),
+                "destroy", arguments -> destroyed.add(arguments[0])));
+    }
+
+    /**
+     * Test get method within one request.
+     */
+    @Test
+    void testGet() {
+        List<Object> destroyed = new ArrayList<>();
+        Contextual<Object> contextual = contextual(destroyed);
+        CreationalContext<Object> creationalContext = CommonStubs.creationalContext();
+        RequestContext context = new RequestContext(RequestScoped.class);
+        context.getSlot(contextual);
+        assertFalse(context.isActive());
+        assertThrows(ContextNotActiveException.class, () -> context.get(contextual));
+        context.activate();
+        assertTrue(context.isActive());
+        assertNull(context.get(contextual));
+        Object instance = context.get(contextual, creationalContext);
+        assertSame(instance, context.get(contextual, creationalContext));
+        assertSame(instance, context.get(contextual));
+        context.deactivate();
+        assertFalse(context.isActive());
+        assertEquals(List.of(instance), destroyed);
+    }
+
+    /**
+     * Test get method across requests.
+     */
+    @Test
+    void testGet2() {
+        List<Object> destroyed = new ArrayList<>();
+        Contextual<Object> contextual = contextual(destroyed);
+        CreationalContext<Object> creationalContext = CommonStubs.creationalContext();
+        RequestContext context = new RequestContext(RequestScoped.class);
+        context.getSlot(contextual);
+        context.activate();
+        Object first = context.get(contextual, creationalContext);
+        context.activate();
+        assertEquals(List.of(first), destroyed);
+        Object second = context.get(contextual, creationalContext);
+        assertNotSame(first, second);
+        context.destroy(contextual);
+        assertEquals(List.of(first, second), destroyed);
+        assertNull(context.get(contextual));
+        context.deactivate();
+        assertEquals(2, destroyed.size());
+    }
+
+    /**
+     * Test get method on another thread.
+     */
+    @Test
+    void testGet3() {
+        Contextual<Object> contextual = contextual(new ArrayList<>());
+        RequestContext context = new RequestContext(RequestScoped.class);
+        context.getSlot(contextual);
+        context.activate();
+        Object instance = context.get(contextual, CommonStubs.creationalContext());
+        assertFalse(CompletableFuture.supplyAsync(context::isActive).join());
+        assertSame(instance, context.get(contextual));
+        context.deactivate();
+    }
+
+    /**
+     * Test get method with a contextual that got its slot after the request
+     * started.
+     */
+    @Test
+    void testGet4() {
+        List<Object> destroyed = new ArrayList<>();
+        RequestContext context = new RequestContext(RequestScoped.class);
+        context.getSlot(contextual(destroyed));
+        context.activate();
+        Contextual<Object> late = contextual(destroyed);
+        Object instance = context.get(late, CommonStubs.creationalContext());
+        assertSame(instance, context.get(late));
+        context.deactivate();
+        assertEquals(List.of(instance), destroyed);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the RouteCache class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class RouteCacheTest {
+
+    /**
+     * Test get method.
+     */
+    @Test
+    void testGet() {
+        RouteCache<String> cache = new RouteCache<>(8);
+        assertNull(cache.get("/a"));
+        cache.put("/a", "a", Map.of("x", "1"));
+        assertEquals("a", cache.get("/a").getRoute());
+        assertEquals(Map.of("x", "1"), cache.get("/a").getParameters());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    /**
+     * Test put method evicting the least recently used entry.
+     */
+    @Test
+    void testPut() {
+        RouteCache<String> cache = new RouteCache<>(2);
+        cache.put("/a", "a", Map.of());
+        cache.put("/b", "b", Map.of());
+        cache.get("/a");
+        cache.put("/c", "c", Map.of());
+        assertEquals(2, cache.size());
+        assertEquals("a", cache.get("/a").getRoute());
+        assertNull(cache.get("/b"));
+    }
+
+    /**
+     * Test put method bypassing a high-cardinality route.
+     */
+    @Test
+    void testPut2() {
+        RouteCache<String> cache = new RouteCache<>(16);
+        for (int i = 0; i < 10; i++) {
+            cache.put("/users/" + i, "users", Map.of("id", String.valueOf(i)));
+        }
+        cache.put("/about", "about", Map.of());
+        assertTrue(cache.isBypassed("users"));
+        assertFalse(cache.isBypassed("about"));
+        assertEquals(5, cache.size());
+        assertEquals(6, cache.getBypasses());
+    }
+
+    /**
+     * Test put method not bypassing a hot route that is evicted over and over.
+     */
+    @Test
+    void testPut3() {
+        RouteCache<String> cache = new RouteCache<>(8);
+        for (int i = 0; i < 100; i++) {
+            cache.put("/about", "about", Map.of());
+            for (int j = 0; j < 8; j++) {
+                cache.put("/page" + i + "-" + j, "page" + i + "-" + j, Map.of());
+            }
+            assertNull(cache.get("/about"));
+        }
+        cache.put("/about", "about", Map.of());
+        assertFalse(cache.isBypassed("about"));
+        assertEquals("about", cache.get("/about").getRoute());
+        assertEquals(0, cache.getBypasses());
+    }
+
+    /**
+     * Test put method caching a high-cardinality route again in a later
+     * window.
+     */
+    @Test
+    void testPut4() {
+        RouteCache<String> cache = new RouteCache<>(8);
+        for (int i = 0; i < 5; i++) {
+            cache.put("/users/" + i, "users", Map.of());
+        }
+        assertTrue(cache.isBypassed("users"));
+        for (int i = 0; i < 11; i++) {
+            cache.put("/page" + i, "page" + i, Map.of());
+        }
+        assertFalse(cache.isBypassed("users"));
+        cache.put("/users/5", "users", Map.of());
+        assertEquals("users", cache.get("/users/5").getRoute());
+    }
+}
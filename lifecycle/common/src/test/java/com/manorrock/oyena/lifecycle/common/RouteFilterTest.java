@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the RouteFilter class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class RouteFilterTest {
+
+    /**
+     * Test mayMatch method.
+     */
+    @Test
+    void testMayMatch() {
+        RouteFilter filter = new RouteFilter(List.of("/users/", "/about"), 0);
+        assertTrue(filter.mayMatch("/users/42"));
+        assertTrue(filter.mayMatch("/about/team"));
+        assertFalse(filter.mayMatch("/wp-login.php"));
+        assertFalse(filter.mayMatch("/user"));
+        assertEquals(2, filter.getRejections());
+        assertFalse(new RouteFilter(List.of(), 0).mayMatch("/"));
+        assertTrue(new RouteFilter(List.of(""), 0).mayMatch("/anything"));
+    }
+
+    /**
+     * Test mayMatch method with suffixes.
+     */
+    @Test
+    void testMayMatch2() {
+        RouteFilter filter = new RouteFilter(List.of("/users/"), List.of(".do", "/list.action"), 0);
+        assertTrue(filter.mayMatch("/users/42"));
+        assertTrue(filter.mayMatch("/orders/show.do"));
+        assertTrue(filter.mayMatch("/orders/list.action"));
+        assertFalse(filter.mayMatch("/orders/show.action"));
+        assertFalse(filter.mayMatch("/orders/show.d"));
+        assertFalse(filter.mayMatch("/wp-login.php"));
+        assertFalse(filter.mayMatch(""));
+        assertEquals(4, filter.getRejections());
+    }
+
+    /**
+     * Test isKnownMiss method.
+     */
+    @Test
+    void testIsKnownMiss() {
+        RouteFilter filter = new RouteFilter(List.of("/"), 4);
+        assertFalse(filter.isKnownMiss("/missing"));
+        filter.recordMiss("/missing");
+        assertTrue(filter.isKnownMiss("/missing"));
+        RouteFilter disabled = new RouteFilter(List.of("/"), 0);
+        disabled.recordMiss("/missing");
+        assertFalse(disabled.isKnownMiss("/missing"));
+    }
+
+    /**
+     * Test regexRoot method.
+     */
+    @Test
+    void testRegexRoot() {
+        assertEquals("/path/", RouteFilter.regexRoot("/path/(?<path>.*)"));
+        assertEquals("/page", RouteFilter.regexRoot("/page[A-Z]"));
+        assertEquals("/item", RouteFilter.regexRoot("/items?"));
+        assertEquals("/a.b/", RouteFilter.regexRoot("/a\\.b/\\d+"));
+        assertEquals("", RouteFilter.regexRoot("/a|/b"));
+        assertEquals("/x", RouteFilter.regexRoot("/x(a|b)"));
+        assertEquals("", RouteFilter.regexRoot("(?<path>.*)"));
+        assertEquals("/users/", RouteFilter.templateRoot("/users/{id}"));
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.common;
+
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the SegmentTrie class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class SegmentTrieTest {
+
+    /**
+     * Test isTemplate method.
+     */
+    @Test
+    void testIsTemplate() {
+        assertTrue(SegmentTrie.isTemplate("/users/{id:long}/orders/{orderId}"));
+        assertTrue(SegmentTrie.isTemplate("/helloWorld"));
+        assertTrue(SegmentTrie.isTemplate("/files/{name}/v1.0"));
+        assertFalse(SegmentTrie.isTemplate("/path/(?<path>.*)"));
+        assertFalse(SegmentTrie.isTemplate("/page.xhtml"));
+        assertFalse(SegmentTrie.isTemplate("/a{2}"));
+        assertFalse(SegmentTrie.isTemplate("/page[A-Z]"));
+    }
+
+    /**
+     * Test isTemplate method with placeholders mixed with regex syntax.
+     */
+    @Test
+    void testIsTemplate2() {
+        assertThrows(IllegalArgumentException.class,
+                () -> SegmentTrie.isTemplate("/users/{id}/(?<rest>.*)"));
+        assertThrows(IllegalArgumentException.class,
+                () -> SegmentTrie.isTemplate("/users/{id}/items+"));
+        assertThrows(IllegalArgumentException.class,
+                () -> SegmentTrie.isTemplate("/users/{id}.json"));
+    }
+
+    /**
+     * Test match method.
+     */
+    @Test
+    void testMatch() {
+        SegmentTrie<String> trie = new SegmentTrie<>();
+        trie.add("/users/{id:long}/orders/{orderId}", "orders");
+        trie.add("/users/{name}", "name");
+        trie.add("/users/{id:int}", "int");
+        trie.add("/users/me", "me");
+        trie.add("/users/{userId}/profile", "profile");
+        assertEquals("me", trie.match("/users/me").getValue());
+        assertEquals("int", trie.match("/users/42").getValue());
+        assertEquals(Map.of("id", "42"), trie.match("/users/42").getParameters());
+        assertEquals("name", trie.match("/users/99999999999").getValue());
+        assertEquals("name", trie.match("/users/bob").getValue());
+        assertEquals(Map.of("id", "7", "orderId", "x1"), trie.match("/users/7/orders/x1").getParameters());
+        assertEquals(Map.of("userId", "me"), trie.match("/users/me/profile").getParameters());
+        assertNull(trie.match("/users/bob/orders/x1"));
+        assertNull(trie.match("/users/"));
+        assertNull(trie.match("/users"));
+    }
+
+    /**
+     * Test match method with signed numbers.
+     */
+    @Test
+    void testMatch2() {
+        SegmentTrie<String> trie = new SegmentTrie<>();
+        trie.add("/users/{id:long}", "long");
+        trie.add("/items/{id:int}", "int");
+        assertEquals("long", trie.match("/users/1").getValue());
+        assertNull(trie.match("/users/-1"));
+        assertNull(trie.match("/users/+1"));
+        assertNull(trie.match("/items/-1"));
+        assertNull(trie.match("/items/2147483648"));
+        assertNull(trie.match("/items/\u0661"));
+    }
+
+    /**
+     * Test add method with an invalid template.
+     */
+    @Test
+    void testAdd() {
+        SegmentTrie<String> trie = new SegmentTrie<>();
+        assertThrows(IllegalArgumentException.class, () -> trie.add("/users/{id:uuid}", "uuid"));
+        assertThrows(IllegalArgumentException.class, () -> trie.add("/{id}/{id}", "duplicate"));
+        assertThrows(IllegalArgumentException.class, () -> trie.add("/path/(?<path>.*)", "regex"));
+        assertTrue(trie.isEmpty());
+    }
+}
@@ -31,12 +31,45 @@ import jakarta.faces.FacesException;
 import jakarta.faces.context.FacesContext;
 import jakarta.json.bind.Jsonb;
 import jakarta.json.bind.JsonbBuilder;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.io.Writer;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
 
 /**
  * The JSON (application/json) response writer.
  *
+ * <p>
+ *  The result is serialized straight into the response output stream (as
+ *  UTF-8) through a fixed size buffer, so the JSON text is never held in
+ *  memory as a whole and the first bytes go out while the rest is still
+ *  being serialized.
+ * </p>
+ *
+ * <p>
+ *  A Stream or Iterator result is written element by element as a JSON array,
+ *  or as newline delimited JSON when the request accepts
+ *  application/x-ndjson, and the response is flushed every
+ *  STREAM_FLUSH_INTERVAL elements (100 by default). A result that is
+ *  AutoCloseable (eg. a Stream over a database cursor) is closed once it has
+ *  been written or writing failed, eg. because the client disconnected, and
+ *  removed from the Faces context attributes so the lifecycle does not close
+ *  it again. Other Iterables (including Collections) are serialized as a
+ *  whole.
+ * </p>
+ *
+ * <p>
+ *  A Flow.Publisher result is written the same way, but asynchronously with
+ *  Servlet non-blocking I/O, see RestPublisherWriter. The asynchronous
+ *  request that is started for it has no timeout.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 @ApplicationScoped
@@ -44,23 +77,48 @@ import java.io.Writer;
 public class DefaultJsonResponseWriter implements RestResponseWriter {
 
     /**
-     * Stores the JSON-B builder.
+     * Stores the name of the context parameter with the number of elements
+     * after which a streamed result is flushed.
      */
-    private final JsonbBuilder jsonbBuilder;
-    
+    public static final String STREAM_FLUSH_INTERVAL = "com.manorrock.oyena.lifecycle.rest.STREAM_FLUSH_INTERVAL";
+
     /**
-     * Stores the JSON-B context.
+     * Stores the size of the output buffer.
      */
-    private Jsonb jsonb;
-    
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Stores the default flush interval.
+     */
+    private static final int DEFAULT_FLUSH_INTERVAL = 100;
+
+    /**
+     * Stores the NDJSON content type.
+     */
+    private static final String NDJSON = "application/x-ndjson";
+
+    /**
+     * Stores the JSON null literal.
+     */
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Stores the flush interval (0 until read).
+     */
+    private volatile int flushInterval;
+
+    /**
+     * Stores the JSON-B context (created when first needed).
+     */
+    private volatile Jsonb jsonb;
+
     /**
      * Constructor.
      */
     public DefaultJsonResponseWriter() {
-        jsonbBuilder = JsonbBuilder.newBuilder();
-        jsonb = jsonbBuilder.build();
+        // nothing to do here.
     }
-    
+
     /**
      * Write the response.
      *
@@ -68,8 +126,9 @@ public class DefaultJsonResponseWriter implements RestResponseWriter {
      */
     @Override
     public void writeResponse(FacesContext facesContext) {
-        Object result = facesContext.getAttributes().get(
-                RestLifecycle.class.getPackage().getName() + ".RestResult");
+        String resultName = RestLifecycle.class.getPackage().getName() + ".RestResult";
+        Object result = facesContext.getAttributes().get(resultName);
+        Iterator<?> elements = toIterator(result);
         if (result == null) {
             try {
                 facesContext.getExternalContext().responseSendError(204, "No content");
@@ -77,15 +136,231 @@ public class DefaultJsonResponseWriter implements RestResponseWriter {
             } catch (IOException ioe) {
                 throw new FacesException(ioe);
             }
+        } else if (result instanceof Flow.Publisher<?> publisher) {
+            try {
+                writePublisher(facesContext, publisher);
+            } catch (IOException ioe) {
+                throw new FacesException(ioe);
+            }
+        } else if (elements != null) {
+            try {
+                writeElements(facesContext, elements);
+                facesContext.responseComplete();
+            } catch (IOException ioe) {
+                throw new FacesException(ioe);
+            } finally {
+                facesContext.getAttributes().remove(resultName);
+                close(result);
+            }
         } else {
-            try { 
-               Writer writer = facesContext.getExternalContext().getResponseOutputWriter();
-                writer.write(jsonb.toJson(result));
-                writer.flush();
+            try {
+                facesContext.getExternalContext().setResponseCharacterEncoding("UTF-8");
+                OutputStream outputStream = new UncloseableOutputStream(new BufferedOutputStream(
+                        facesContext.getExternalContext().getResponseOutputStream(), BUFFER_SIZE));
+                getJsonb().toJson(result, outputStream);
+                outputStream.flush();
                 facesContext.responseComplete();
             } catch (IOException ioe) {
                 throw new FacesException(ioe);
             }
         }
     }
+
+    /**
+     * Close a streamed result (if it is AutoCloseable).
+     *
+     * @param result the result.
+     */
+    private static void close(Object result) {
+        if (result instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (RuntimeException re) {
+                throw re;
+            } catch (Exception e) {
+                throw new FacesException(e);
+            }
+        }
+    }
+
+    /**
+     * Start writing a Flow.Publisher result.
+     *
+     * @param facesContext the Faces context.
+     * @param publisher the publisher.
+     * @throws IOException when an I/O error occurs.
+     */
+    private void writePublisher(FacesContext facesContext, Flow.Publisher<?> publisher) throws IOException {
+        HttpServletRequest request = (HttpServletRequest) facesContext.getExternalContext().getRequest();
+        AsyncContext asyncContext;
+        if (request.isAsyncStarted()) {
+            asyncContext = request.getAsyncContext();
+        } else if (request.isAsyncSupported()) {
+            asyncContext = request.startAsync();
+            asyncContext.setTimeout(0);
+        } else {
+            throw new FacesException("A Flow.Publisher result needs a request that supports asynchronous mode");
+        }
+        boolean ndjson = isNdjsonAccepted(request);
+        if (ndjson) {
+            facesContext.getExternalContext().setResponseContentType(NDJSON);
+        }
+        facesContext.getExternalContext().setResponseCharacterEncoding("UTF-8");
+        facesContext.responseComplete();
+        facesContext.getAttributes().remove(RestLifecycle.class.getPackage().getName() + ".RestResult");
+        new RestPublisherWriter(asyncContext, getJsonb(), ndjson).start(publisher);
+    }
+
+    /**
+     * Does the request accept newline delimited JSON.
+     *
+     * @param request the request.
+     * @return true if it does, false otherwise.
+     */
+    private static boolean isNdjsonAccepted(HttpServletRequest request) {
+        String accept = request.getHeader("Accept");
+        return accept != null && accept.contains(NDJSON);
+    }
+
+    /**
+     * Write the elements of a streamed result.
+     *
+     * @param facesContext the Faces context.
+     * @param elements the elements.
+     * @throws IOException when an I/O error occurs.
+     */
+    private void writeElements(FacesContext facesContext, Iterator<?> elements) throws IOException {
+        HttpServletRequest request = (HttpServletRequest) facesContext.getExternalContext().getRequest();
+        boolean ndjson = isNdjsonAccepted(request);
+        if (ndjson) {
+            facesContext.getExternalContext().setResponseContentType(NDJSON);
+        }
+        facesContext.getExternalContext().setResponseCharacterEncoding("UTF-8");
+        int interval = getFlushInterval(facesContext);
+        Jsonb jsonb = getJsonb();
+        OutputStream outputStream = new UncloseableOutputStream(new BufferedOutputStream(
+                facesContext.getExternalContext().getResponseOutputStream(), BUFFER_SIZE));
+        if (!ndjson) {
+            outputStream.write('[');
+        }
+        int count = 0;
+        while (elements.hasNext()) {
+            Object element = elements.next();
+            if (!ndjson && count > 0) {
+                outputStream.write(',');
+            }
+            if (element != null) {
+                jsonb.toJson(element, outputStream);
+            } else {
+                outputStream.write(NULL);
+            }
+            if (ndjson) {
+                outputStream.write('\n');
+            }
+            if (++count % interval == 0) {
+                outputStream.flush();
+            }
+        }
+        if (!ndjson) {
+            outputStream.write(']');
+        }
+        outputStream.flush();
+    }
+
+    /**
+     * Get the JSON-B context.
+     *
+     * @return the JSON-B context.
+     */
+    private Jsonb getJsonb() {
+        Jsonb result = jsonb;
+        if (result == null) {
+            synchronized (this) {
+                result = jsonb;
+                if (result == null) {
+                    result = JsonbBuilder.newBuilder().build();
+                    jsonb = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the iterator of a streamed result.
+     *
+     * @param result the result.
+     * @return the iterator, or null if the result is not streamed.
+     */
+    private static Iterator<?> toIterator(Object result) {
+        if (result instanceof Stream<?> stream) {
+            return stream.iterator();
+        }
+        if (result instanceof Iterator<?> iterator) {
+            return iterator;
+        }
+        return null;
+    }
+
+    /**
+     * Get the flush interval.
+     *
+     * @param facesContext the Faces context.
+     * @return the flush interval.
+     */
+    private int getFlushInterval(FacesContext facesContext) {
+        int result = flushInterval;
+        if (result == 0) {
+            String value = facesContext.getExternalContext().getInitParameter(STREAM_FLUSH_INTERVAL);
+            result = DEFAULT_FLUSH_INTERVAL;
+            if (value != null && !value.isBlank()) {
+                try {
+                    result = Math.max(1, Integer.parseInt(value.trim()));
+                } catch (NumberFormatException nfe) {
+                    throw new FacesException("Invalid value for " + STREAM_FLUSH_INTERVAL + ": " + value, nfe);
+                }
+            }
+            flushInterval = result;
+        }
+        return result;
+    }
+
+    /**
+     * An output stream that does not close the underlying stream, as JSON-B
+     * closes the stream it writes to.
+     */
+    private static class UncloseableOutputStream extends FilterOutputStream {
+
+        /**
+         * Constructor.
+         *
+         * @param outputStream the underlying output stream.
+         */
+        UncloseableOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        /**
+         * Write bytes.
+         *
+         * @param bytes the bytes.
+         * @param offset the offset.
+         * @param length the length.
+         * @throws IOException when an I/O error occurs.
+         */
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+        }
+
+        /**
+         * Flush instead of closing.
+         *
+         * @throws IOException when an I/O error occurs.
+         */
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
 }
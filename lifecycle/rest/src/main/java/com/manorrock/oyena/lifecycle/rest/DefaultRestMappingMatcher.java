@@ -26,48 +26,88 @@
  */
 package com.manorrock.oyena.lifecycle.rest;
 
+import com.manorrock.oyena.lifecycle.common.RegexEngine;
+import com.manorrock.oyena.lifecycle.common.RouteCache;
+import com.manorrock.oyena.lifecycle.common.RouteFilter;
 import jakarta.enterprise.context.ApplicationScoped;
-import jakarta.enterprise.inject.Any;
-import jakarta.enterprise.inject.spi.AnnotatedMethod;
-import jakarta.enterprise.inject.spi.AnnotatedType;
-import jakarta.enterprise.inject.spi.Bean;
-import jakarta.enterprise.inject.spi.CDI;
+import jakarta.faces.FacesException;
+import jakarta.faces.context.ExternalContext;
 import jakarta.faces.context.FacesContext;
-import java.util.Iterator;
+import jakarta.inject.Inject;
+import jakarta.servlet.http.HttpServletRequest;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 /**
  * The default REST mapping matcher.
  *
+ * <p>
+ *  This matcher uses a route table built from the REST routes that were
+ *  collected at deployment time by the REST extension. The route table is
+ *  built on the first request so it can use the regex engine configured with
+ *  the com.manorrock.oyena.lifecycle.rest.REGEX_ENGINE context parameter
+ *  ('java' or 'linear', defaults to 'java'). The
+ *  com.manorrock.oyena.lifecycle.rest.MATCH_CACHE_SIZE context parameter
+ *  enables a bounded cache of resolved routes of the given size (defaults to
+ *  0, which disables the cache). The
+ *  com.manorrock.oyena.lifecycle.rest.MISS_CACHE_SIZE context parameter enables
+ *  a bounded cache of paths that did not match (defaults to 0, which disables
+ *  the cache).
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 @ApplicationScoped
 public class DefaultRestMappingMatcher implements RestMappingMatcher {
 
     /**
-     * Find the REST mapping for the given bean.
+     * Stores the name of the context parameter that sets the match cache size.
+     */
+    public static final String MATCH_CACHE_SIZE = "com.manorrock.oyena.lifecycle.rest.MATCH_CACHE_SIZE";
+
+    /**
+     * Stores the name of the context parameter that sets the miss cache size.
+     */
+    public static final String MISS_CACHE_SIZE = "com.manorrock.oyena.lifecycle.rest.MISS_CACHE_SIZE";
+
+    /**
+     * Stores the name of the context parameter that selects the regex engine.
+     */
+    public static final String REGEX_ENGINE = "com.manorrock.oyena.lifecycle.rest.REGEX_ENGINE";
+
+    /**
+     * Stores the REST extension.
+     */
+    @Inject
+    private RestExtension restExtension;
+
+    /**
+     * Stores the route table.
+     */
+    private volatile RestRouteTable routeTable;
+
+    /**
+     * Get the route table.
      *
      * @param facesContext the Faces context.
-     * @param bean the bean.
-     * @return the REST mapping match, or null if not found.
+     * @return the route table.
+     * @throws FacesException when the configuration is invalid.
      */
-    private RestMappingMatch determineRestMappingMatch(FacesContext facesContext, Bean<?> bean) {
-        RestMappingMatch result = null;
-        Class clazz = bean.getBeanClass();
-        AnnotatedType annotatedType = CDI.current().getBeanManager().createAnnotatedType(clazz);
-        Set<AnnotatedMethod> annotatedMethodSet = annotatedType.getMethods();
-        for (AnnotatedMethod method : annotatedMethodSet) {
-            if (method.isAnnotationPresent(RestPath.class)) {
-                RestPath restPath = method.getAnnotation(RestPath.class);
-                String path = restPath.value();
-                String pathInfo = facesContext.getExternalContext().getRequestPathInfo();
-                if (Pattern.matches(path, pathInfo)) {
-                    result = new RestMappingMatch();
-                    result.setBean(bean);
-                    result.setMethod(method.getJavaMember());
-                    result.setPathInfo(pathInfo);
-                    result.setRestPath(path);
+    private RestRouteTable getRouteTable(FacesContext facesContext) {
+        RestRouteTable result = routeTable;
+        if (result == null) {
+            synchronized (this) {
+                result = routeTable;
+                if (result == null) {
+                    String value = facesContext.getExternalContext().getInitParameter(REGEX_ENGINE);
+                    RegexEngine regexEngine;
+                    try {
+                        regexEngine = RegexEngine.fromValue(value);
+                    } catch (IllegalArgumentException iae) {
+                        throw new FacesException("Unknown regex engine: " + value, iae);
+                    }
+                    result = new RestRouteTable(restExtension.getRoutes(), regexEngine,
+                            getSize(facesContext, MATCH_CACHE_SIZE), getSize(facesContext, MISS_CACHE_SIZE));
+                    routeTable = result;
                 }
             }
         }
@@ -75,14 +115,52 @@ public class DefaultRestMappingMatcher implements RestMappingMatcher {
     }
 
     /**
-     * Get the beans.
+     * Get the match cache.
+     *
+     * <p>
+     *  The match cache exposes the hit and miss counters.
+     * </p>
+     *
+     * @return the match cache, or null if it is disabled or no request has
+     * been matched yet.
+     */
+    public RouteCache<RestRoute> getMatchCache() {
+        RestRouteTable table = routeTable;
+        return table != null ? table.getMatchCache() : null;
+    }
+
+    /**
+     * Get a size from a context parameter.
+     *
+     * @param facesContext the Faces context.
+     * @param name the name of the context parameter.
+     * @return the size, or 0 if the context parameter is not set.
+     * @throws FacesException when the value is not a number.
+     */
+    private int getSize(FacesContext facesContext, String name) {
+        String value = facesContext.getExternalContext().getInitParameter(name);
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException nfe) {
+            throw new FacesException("Invalid value for " + name + ": " + value, nfe);
+        }
+    }
+
+    /**
+     * Get the route filter.
      *
-     * @return the beans.
+     * <p>
+     *  The route filter exposes the number of rejected lookups.
+     * </p>
+     *
+     * @return the route filter, or null if no request has been matched yet.
      */
-    private Iterator<Bean<?>> getBeans() {
-        Set<Bean<?>> beans = CDI.current().getBeanManager().getBeans(
-                Object.class, Any.Literal.INSTANCE);
-        return beans.iterator();
+    public RouteFilter getRouteFilter() {
+        RestRouteTable table = routeTable;
+        return table != null ? table.getFilter() : null;
     }
 
     /**
@@ -93,15 +171,21 @@ public class DefaultRestMappingMatcher implements RestMappingMatcher {
      */
     @Override
     public RestMappingMatch match(FacesContext facesContext) {
-        RestMappingMatch match = null;
-        Iterator<Bean<?>> beans = getBeans();
-        while (beans.hasNext()) {
-            Bean<?> bean = beans.next();
-            RestMappingMatch candidate = determineRestMappingMatch(facesContext, bean);
-            if (match == null || (candidate != null && candidate.getLength() > match.getLength())) {
-                match = candidate;
-            }
-        }
-        return match;
+        ExternalContext externalContext = facesContext.getExternalContext();
+        HttpServletRequest request = (HttpServletRequest) externalContext.getRequest();
+        return getRouteTable(facesContext).match(
+                request.getMethod(), externalContext.getRequestPathInfo());
+    }
+
+    /**
+     * Get the HTTP methods that are allowed for the request path.
+     *
+     * @param facesContext the Faces context.
+     * @return the allowed HTTP methods.
+     */
+    @Override
+    public Set<String> getAllowedMethods(FacesContext facesContext) {
+        return getRouteTable(facesContext).getAllowedMethods(
+                facesContext.getExternalContext().getRequestPathInfo());
     }
 }
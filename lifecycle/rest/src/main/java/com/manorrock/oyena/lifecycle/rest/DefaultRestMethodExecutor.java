@@ -26,28 +26,104 @@
  */
 package com.manorrock.oyena.lifecycle.rest;
 
+import com.manorrock.oyena.lifecycle.common.MethodInvoker;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.RequestContextController;
 import jakarta.enterprise.inject.Any;
 import jakarta.enterprise.inject.Instance;
-import jakarta.enterprise.inject.spi.CDI;
+import jakarta.enterprise.inject.spi.Bean;
+import jakarta.enterprise.inject.spi.BeanManager;
 import jakarta.faces.FacesException;
 import jakarta.faces.context.FacesContext;
 import jakarta.inject.Inject;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The default REST method executor.
  *
+ * <p>
+ *  The parameters of a method are resolved with a plan, an array with one
+ *  parameter resolver per parameter, that is created by the parameter
+ *  producer the first time the method is executed.
+ * </p>
+ *
+ * <p>
+ *  The instance of the REST bean comes from a RestBeanInstances that is
+ *  created once per bean, see there for the scope handling and the
+ *  @RestPooled opt-in pool. The instance is released once the result is
+ *  done with, which for a Stream, Iterator or Flow.Publisher result is after
+ *  it has been written.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 @ApplicationScoped
 public class DefaultRestMethodExecutor implements RestMethodExecutor {
 
+    /**
+     * Stores the bean manager.
+     */
+    @Inject
+    private BeanManager beanManager;
+
     /**
      * Stores the REST parameter producer.
      */
     @Inject
     private RestParameterProducer restParameterProducer;
 
+    /**
+     * Stores the Instance the bean instances are selected from.
+     */
+    @Inject
+    @Any
+    private Instance<Object> instance;
+
+    /**
+     * Stores the Instance the request context controllers are selected from.
+     */
+    @Inject
+    private Instance<RequestContextController> requestContextController;
+
+    /**
+     * Stores the instances for every bean.
+     */
+    private final Map<Bean<?>, RestBeanInstances> beanInstances = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the method invokers for matches that do not carry one.
+     */
+    private final Map<Method, MethodInvoker> invokers = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the parameter resolution plan for every method invoker.
+     */
+    private final Map<MethodInvoker, RestParameterResolver[]> plans = new ConcurrentHashMap<>();
+
+    /**
+     * Create the parameter resolution plan for a method.
+     *
+     * @param invoker the method invoker.
+     * @return the parameter resolvers, one per parameter.
+     */
+    private RestParameterResolver[] createPlan(MethodInvoker invoker) {
+        Class<?>[] parameterTypes = invoker.getParameterTypes();
+        Type[] genericParameterTypes = invoker.getGenericParameterTypes();
+        Annotation[][] parameterAnnotations = invoker.getParameterAnnotations();
+        RestParameterResolver[] plan = new RestParameterResolver[parameterTypes.length];
+        for (int i = 0; i < plan.length; i++) {
+            plan[i] = restParameterProducer.getResolver(
+                    parameterTypes[i], genericParameterTypes[i], parameterAnnotations[i]);
+        }
+        return plan;
+    }
+
     /**
      * Execute the method.
      *
@@ -56,24 +132,177 @@ public class DefaultRestMethodExecutor implements RestMethodExecutor {
      */
     @Override
     public Object execute(FacesContext facesContext, RestMappingMatch restMappingMatch) {
-        Instance<? extends Object> instance = CDI.current().select(
-                restMappingMatch.getBean().getBeanClass(), Any.Literal.INSTANCE);
-        Object result;
+        RestBeanInstances instances = getBeanInstances(restMappingMatch);
+        MethodInvoker invoker = getInvoker(restMappingMatch);
         try {
-            Object[] parameters = new Object[restMappingMatch.getMethod().getParameterCount()];
-            if (parameters.length > 0) {
-                for (int i = 0; i < parameters.length; i++) {
-                    parameters[i] = restParameterProducer.produce(
-                            facesContext,
-                            restMappingMatch,
-                            restMappingMatch.getMethod().getParameterTypes()[i],
-                            restMappingMatch.getMethod().getParameterAnnotations()[i]);
-                }
+            return invoke(instances, invoker, resolveParameters(facesContext, restMappingMatch, invoker));
+        } catch (Exception e) {
+            throw new FacesException(e);
+        }
+    }
+
+    /**
+     * Prepare the method to be executed on another thread.
+     *
+     * <p>
+     *  The parameters are resolved on the calling thread. For a bean with a
+     *  normal scope the contextual instance is looked up on the calling
+     *  thread as well, so the callable does not go through the client proxy.
+     *  A @Dependent bean instance is created by the callable.
+     * </p>
+     *
+     * <p>
+     *  The callable activates a CDI request context for the duration of the
+     *  call, so @RequestScoped collaborators of the bean can be used on the
+     *  other thread. Note that context is not the one of the calling thread,
+     *  its @RequestScoped instances are created for the call and destroyed
+     *  after it.
+     * </p>
+     *
+     * @param facesContext the Faces context.
+     * @param restMappingMatch the REST mapping match.
+     * @return the callable that executes the method and returns the result.
+     */
+    @Override
+    public Callable<Object> prepare(FacesContext facesContext, RestMappingMatch restMappingMatch) {
+        RestBeanInstances instances = getBeanInstances(restMappingMatch);
+        MethodInvoker invoker = getInvoker(restMappingMatch);
+        Object[] parameters;
+        Object target = null;
+        try {
+            parameters = resolveParameters(facesContext, restMappingMatch, invoker);
+            Bean<?> bean = restMappingMatch.getBean();
+            if (beanManager.isNormalScope(bean.getScope())) {
+                target = getContextualInstance(bean);
             }
-            result = restMappingMatch.getMethod().invoke(instance.get(), parameters);
         } catch (Exception e) {
             throw new FacesException(e);
         }
-        return result;
+        if (target != null) {
+            Object contextualInstance = target;
+            return () -> inRequestContext(() -> invoker.invoke(contextualInstance, parameters));
+        }
+        return () -> inRequestContext(() -> invoke(instances, invoker, parameters));
+    }
+
+    /**
+     * Call a callable with an activated CDI request context.
+     *
+     * <p>
+     *  If a request context is active on the current thread already it is
+     *  used as is.
+     * </p>
+     *
+     * @param callable the callable.
+     * @return the result of the callable.
+     * @throws Exception when the callable throws.
+     */
+    private Object inRequestContext(Callable<Object> callable) throws Exception {
+        Instance.Handle<RequestContextController> handle = requestContextController.getHandle();
+        try {
+            RequestContextController controller = handle.get();
+            boolean activated = controller.activate();
+            try {
+                return callable.call();
+            } finally {
+                if (activated) {
+                    controller.deactivate();
+                }
+            }
+        } finally {
+            handle.destroy();
+        }
+    }
+
+    /**
+     * Get the contextual instance of a bean (not its client proxy).
+     *
+     * @param <T> the type of the bean.
+     * @param bean the bean.
+     * @return the contextual instance.
+     */
+    private <T> T getContextualInstance(Bean<T> bean) {
+        return beanManager.getContext(bean.getScope()).get(bean, beanManager.createCreationalContext(bean));
+    }
+
+    /**
+     * Get the instances of the bean of a match.
+     *
+     * @param restMappingMatch the REST mapping match.
+     * @return the bean instances.
+     */
+    private RestBeanInstances getBeanInstances(RestMappingMatch restMappingMatch) {
+        return beanInstances.computeIfAbsent(restMappingMatch.getBean(),
+                bean -> new RestBeanInstances(bean, instance.select(bean.getBeanClass(), Any.Literal.INSTANCE)));
+    }
+
+    /**
+     * Get the method invoker of a match.
+     *
+     * @param restMappingMatch the REST mapping match.
+     * @return the method invoker.
+     */
+    private MethodInvoker getInvoker(RestMappingMatch restMappingMatch) {
+        MethodInvoker invoker = restMappingMatch.getInvoker();
+        if (invoker == null) {
+            invoker = invokers.computeIfAbsent(restMappingMatch.getMethod(), MethodInvoker::new);
+        }
+        return invoker;
+    }
+
+    /**
+     * Invoke the method on an instance of the bean.
+     *
+     * <p>
+     *  The handle is only released once the result is done with, so a lazy
+     *  result never runs on an instance that was handed to another request.
+     * </p>
+     *
+     * @param instances the bean instances.
+     * @param invoker the method invoker.
+     * @param parameters the parameters.
+     * @return the result.
+     * @throws Exception when the method throws.
+     */
+    private static Object invoke(RestBeanInstances instances, MethodInvoker invoker, Object[] parameters)
+            throws Exception {
+        Instance.Handle<?> handle = instances.acquire();
+        Object result;
+        try {
+            result = invoker.invoke(handle.get(), parameters);
+        } catch (Throwable throwable) {
+            instances.release(handle);
+            throw throwable;
+        }
+        return instances.release(handle, result);
+    }
+
+    /**
+     * Resolve the parameters of the method with its plan.
+     *
+     * @param facesContext the Faces context.
+     * @param restMappingMatch the REST mapping match.
+     * @param invoker the method invoker.
+     * @return the parameters, or null if the method has none.
+     */
+    private Object[] resolveParameters(FacesContext facesContext, RestMappingMatch restMappingMatch,
+            MethodInvoker invoker) {
+        if (invoker.getParameterCount() == 0) {
+            return null;
+        }
+        RestParameterResolver[] plan = plans.computeIfAbsent(invoker, this::createPlan);
+        Object[] parameters = new Object[plan.length];
+        for (int i = 0; i < plan.length; i++) {
+            parameters[i] = plan[i].resolve(facesContext, restMappingMatch);
+        }
+        return parameters;
+    }
+
+    /**
+     * Destroy the pooled bean instances.
+     */
+    @PreDestroy
+    public void destroy() {
+        beanInstances.values().forEach(RestBeanInstances::destroy);
     }
 }
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.rest;
+
+import com.manorrock.oyena.lifecycle.common.ParameterConversionException;
+import com.manorrock.oyena.lifecycle.common.ParameterConverter;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.faces.FacesException;
+import jakarta.faces.context.ExternalContext;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.bind.JsonbException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.http.Cookie;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The default REST parameter binder.
+ *
+ * <p>
+ *  Binds the parameters annotated with @RestCookieParameter,
+ *  @RestSessionAttribute, @RestRequestAttribute and @RestRequestBody. It has a
+ *  priority of 3000 so application binders are asked first.
+ * </p>
+ *
+ * <p>
+ *  Cookie values and String attributes are converted to the parameter type
+ *  with the ParameterConverter, like query parameters are.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+@ApplicationScoped
+@Priority(3000)
+public class DefaultRestParameterBinder implements RestParameterBinder {
+
+    /**
+     * Stores the JSON-B context (created when the first body is read).
+     */
+    private volatile Jsonb jsonb;
+
+    /**
+     * Constructor.
+     */
+    public DefaultRestParameterBinder() {
+        // nothing to do here.
+    }
+
+    /**
+     * Bind a parameter.
+     *
+     * @param parameterType the parameter type.
+     * @param genericParameterType the generic parameter type.
+     * @param parameterAnnotations the parameter annotations.
+     * @return the resolver, or null if the binder does not handle the
+     * parameter.
+     */
+    @Override
+    public RestParameterResolver bind(Class<?> parameterType, Type genericParameterType,
+            Annotation[] parameterAnnotations) {
+        RestCookieParameter cookie = getAnnotation(parameterAnnotations, RestCookieParameter.class);
+        if (cookie != null) {
+            String name = cookie.value();
+            boolean wholeCookie = parameterType == Cookie.class;
+            return convert(parameterType, genericParameterType, name, (facesContext, restMappingMatch) -> {
+                Cookie value = (Cookie) facesContext.getExternalContext().getRequestCookieMap().get(name);
+                if (value == null || wholeCookie) {
+                    return value;
+                }
+                return value.getValue();
+            });
+        }
+
+        RestSessionAttribute session = getAnnotation(parameterAnnotations, RestSessionAttribute.class);
+        if (session != null) {
+            String name = session.value();
+            return convert(parameterType, genericParameterType, name, (facesContext, restMappingMatch) -> {
+                ExternalContext externalContext = facesContext.getExternalContext();
+                return externalContext.getSession(false) != null
+                        ? externalContext.getSessionMap().get(name) : null;
+            });
+        }
+
+        RestRequestAttribute request = getAnnotation(parameterAnnotations, RestRequestAttribute.class);
+        if (request != null) {
+            String name = request.value();
+            return convert(parameterType, genericParameterType, name, (facesContext, restMappingMatch)
+                    -> facesContext.getExternalContext().getRequestMap().get(name));
+        }
+
+        if (getAnnotation(parameterAnnotations, RestRequestBody.class) != null) {
+            return (facesContext, restMappingMatch) -> {
+                try {
+                    return readBody((ServletRequest) facesContext.getExternalContext().getRequest(),
+                            parameterType, genericParameterType);
+                } catch (IOException ioe) {
+                    throw new FacesException(ioe);
+                }
+            };
+        }
+        return null;
+    }
+
+    /**
+     * Convert the value of a resolver to the parameter type.
+     *
+     * <p>
+     *  A textual value (eg. a cookie value or a String attribute) is
+     *  converted with the ParameterConverter for the parameter type, any other
+     *  value is passed as is. A missing value becomes an empty optional, or
+     *  stays null.
+     * </p>
+     *
+     * @param parameterType the parameter type.
+     * @param genericParameterType the generic parameter type.
+     * @param name the name of the parameter.
+     * @param resolver the resolver of the value.
+     * @return the converting resolver.
+     */
+    private static RestParameterResolver convert(Class<?> parameterType, Type genericParameterType,
+            String name, RestParameterResolver resolver) {
+        ParameterConverter converter = parameterType != Object.class
+                ? ParameterConverter.forType(genericParameterType) : null;
+        if (converter == null) {
+            return resolver;
+        }
+        boolean primitive = parameterType.isPrimitive();
+        return (facesContext, restMappingMatch) -> {
+            Object value = resolver.resolve(facesContext, restMappingMatch);
+            if (value == null) {
+                return primitive ? null : converter.convert(null);
+            }
+            try {
+                return value instanceof CharSequence text ? converter.convert(text) : value;
+            } catch (ParameterConversionException pce) {
+                throw new ParameterConversionException(name, pce.getMessage(), pce);
+            }
+        };
+    }
+
+    /**
+     * Read the request body.
+     *
+     * @param request the request.
+     * @param type the type to read it as.
+     * @param genericType the generic type to deserialize it as.
+     * @return the body, or null if the request has no body and the type needs
+     * to be deserialized.
+     * @throws IOException when an I/O error occurs.
+     * @throws ParameterConversionException when the body is not valid JSON
+     * for the type.
+     */
+    private Object readBody(ServletRequest request, Class<?> type, Type genericType) throws IOException {
+        if (type == InputStream.class) {
+            return request.getInputStream();
+        }
+        if (type == Reader.class) {
+            return new BufferedReader(new InputStreamReader(request.getInputStream(), getCharset(request)));
+        }
+        if (type == byte[].class) {
+            return request.getInputStream().readAllBytes();
+        }
+        if (type == String.class) {
+            return new String(request.getInputStream().readAllBytes(), getCharset(request));
+        }
+        if (request.getContentLengthLong() == 0) {
+            return null;
+        }
+        try {
+            return getJsonb().fromJson(request.getInputStream(), genericType);
+        } catch (JsonbException je) {
+            throw new ParameterConversionException("Unable to read the request body: " + je.getMessage(), je);
+        }
+    }
+
+    /**
+     * Get the JSON-B context.
+     *
+     * @return the JSON-B context.
+     */
+    private Jsonb getJsonb() {
+        Jsonb result = jsonb;
+        if (result == null) {
+            synchronized (this) {
+                result = jsonb;
+                if (result == null) {
+                    result = JsonbBuilder.newBuilder().build();
+                    jsonb = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the charset of the request body.
+     *
+     * <p>
+     *  This is the character encoding of the request, else UTF-8. An unknown
+     *  charset is treated as UTF-8.
+     * </p>
+     *
+     * @param request the request.
+     * @return the charset.
+     */
+    private static Charset getCharset(ServletRequest request) {
+        String encoding = request.getCharacterEncoding();
+        if (encoding != null) {
+            try {
+                return Charset.forName(encoding);
+            } catch (IllegalArgumentException iae) {
+                // an unknown charset, fall back to UTF-8.
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Get the annotation of the given type (if present).
+     *
+     * @param <A> the annotation type.
+     * @param annotations the annotations.
+     * @param annotationType the annotation type.
+     * @return the annotation, or null if not present.
+     */
+    private static <A extends Annotation> A getAnnotation(Annotation[] annotations, Class<A> annotationType) {
+        if (annotations != null) {
+            for (Annotation annotation : annotations) {
+                if (annotationType.isInstance(annotation)) {
+                    return annotationType.cast(annotation);
+                }
+            }
+        }
+        return null;
+    }
+}
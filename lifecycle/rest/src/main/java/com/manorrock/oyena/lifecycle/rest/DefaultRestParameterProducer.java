@@ -26,22 +26,138 @@
  */
 package com.manorrock.oyena.lifecycle.rest;
 
+import com.manorrock.oyena.lifecycle.common.ParameterConversionException;
+import com.manorrock.oyena.lifecycle.common.ParameterConverter;
+import com.manorrock.oyena.lifecycle.common.QueryString;
+import jakarta.annotation.Priority;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.inject.Any;
+import jakarta.enterprise.inject.Instance;
+import jakarta.enterprise.inject.spi.Bean;
+import jakarta.enterprise.inject.spi.BeanManager;
 import jakarta.enterprise.inject.spi.CDI;
 import jakarta.faces.FacesException;
+import jakarta.faces.application.Application;
+import jakarta.faces.context.ExternalContext;
 import jakarta.faces.context.FacesContext;
+import jakarta.faces.context.Flash;
+import jakarta.inject.Inject;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * The default REST parameter producer.
  *
+ * <p>
+ *  Parameters of a context type are handed straight from the current
+ *  FacesContext instead of being looked up through CDI. The built-in context
+ *  types are FacesContext, ExternalContext, Application, Flash,
+ *  ServletContext, ServletRequest, HttpServletRequest, ServletResponse and
+ *  HttpServletResponse. More context types can be registered with the
+ *  register method (before the first request that needs them).
+ * </p>
+ *
+ * <p>
+ *  Header, path and query parameters are converted to the parameter type
+ *  with the ParameterConverter chosen for it once, eg. to int, an enum, a
+ *  UUID, a java.time type or an Optional of those.
+ * </p>
+ *
+ * <p>
+ *  Headers are read from the HttpServletRequest and query parameters are
+ *  looked up in the raw query string, so only the names a method asks for
+ *  are decoded instead of every header and parameter of the request. Escapes
+ *  in the query string are decoded with the character encoding of the
+ *  request. When a request with a body does not have the name in its query
+ *  string the request parameters are asked, so form (urlencoded or
+ *  multipart) fields are found as well.
+ * </p>
+ *
+ * <p>
+ *  Before any of that the RestParameterBinder beans are asked, in the order
+ *  of their priority, so cookies, session and request attributes, the
+ *  request body and application specific parameters can be bound as well.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 @ApplicationScoped
 public class DefaultRestParameterProducer implements RestParameterProducer {
+
+    /**
+     * Stores the priority of a parameter binder without a @Priority.
+     */
+    private static final int DEFAULT_PRIORITY = 2000;
+
+    /**
+     * Stores the bean manager.
+     */
+    @Inject
+    private BeanManager beanManager;
+
+    /**
+     * Stores the parameter binders (in order).
+     */
+    private volatile RestParameterBinder[] binders;
+
+    /**
+     * Stores the context types.
+     */
+    private final Map<Class<?>, Function<FacesContext, ?>> contextTypes = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     */
+    public DefaultRestParameterProducer() {
+        contextTypes.put(FacesContext.class, facesContext -> facesContext);
+        contextTypes.put(ExternalContext.class, FacesContext::getExternalContext);
+        contextTypes.put(Application.class, FacesContext::getApplication);
+        contextTypes.put(Flash.class, facesContext -> facesContext.getExternalContext().getFlash());
+        contextTypes.put(ServletContext.class, facesContext
+                -> (ServletContext) facesContext.getExternalContext().getContext());
+        contextTypes.put(ServletRequest.class, facesContext
+                -> (ServletRequest) facesContext.getExternalContext().getRequest());
+        contextTypes.put(HttpServletRequest.class, facesContext
+                -> (HttpServletRequest) facesContext.getExternalContext().getRequest());
+        contextTypes.put(ServletResponse.class, facesContext
+                -> (ServletResponse) facesContext.getExternalContext().getResponse());
+        contextTypes.put(HttpServletResponse.class, facesContext
+                -> (HttpServletResponse) facesContext.getExternalContext().getResponse());
+    }
+
+    /**
+     * Register a context type.
+     *
+     * <p>
+     *  A parameter of exactly the given type is then resolved by applying the
+     *  function to the current FacesContext. A registration replaces an
+     *  earlier one for the same type.
+     * </p>
+     *
+     * @param <T> the type.
+     * @param type the type.
+     * @param function the function that gets the instance from the Faces
+     * context.
+     */
+    public <T> void register(Class<T> type, Function<FacesContext, ? extends T> function) {
+        contextTypes.put(type, function);
+    }
     
     /**
      * Produce an instance for the given type.
@@ -53,35 +169,239 @@ public class DefaultRestParameterProducer implements RestParameterProducer {
      * @return the instance.
      */
     @Override
-    public Object produce(FacesContext facesContext,
-            RestMappingMatch restMappingMatch, Class<?> parameterType,
+    public Object produce(FacesContext facesContext, RestMappingMatch restMappingMatch, Class<?> parameterType,
             Annotation[] parameterAnnotations) {
-        
+        return getResolver(parameterType, parameterAnnotations).resolve(facesContext, restMappingMatch);
+    }
+
+    /**
+     * Get the resolver for a parameter.
+     *
+     * <p>
+     *  The annotations are looked at once here, the returned resolver only
+     *  does the work that depends on the request.
+     * </p>
+     *
+     * @param parameterType the parameter type.
+     * @param parameterAnnotations the parameter annotations.
+     * @return the resolver.
+     */
+    @Override
+    public RestParameterResolver getResolver(Class<?> parameterType, Annotation[] parameterAnnotations) {
+        return getResolver(parameterType, parameterType, parameterAnnotations);
+    }
+
+    /**
+     * Get the resolver for a parameter with its generic type.
+     *
+     * @param parameterType the parameter type.
+     * @param genericParameterType the generic parameter type.
+     * @param parameterAnnotations the parameter annotations.
+     * @return the resolver.
+     */
+    @Override
+    public RestParameterResolver getResolver(Class<?> parameterType, Type genericParameterType,
+            Annotation[] parameterAnnotations) {
+        for (RestParameterBinder binder : getBinders()) {
+            RestParameterResolver resolver = binder.bind(parameterType, genericParameterType, parameterAnnotations);
+            if (resolver != null) {
+                return parameterType.isPrimitive() ? requireValue(parameterType, resolver) : resolver;
+            }
+        }
+
         RestHeaderParameter header = getRestHeaderParameterAnnotation(parameterAnnotations);
         if (header != null) {
-            String[] value = facesContext.getExternalContext().getRequestHeaderValuesMap().get(header.value());
-            return value != null ? value : new String[] {};
+            String name = header.value();
+            if (parameterType == String[].class) {
+                return (facesContext, restMappingMatch)
+                        -> Collections.list(getRequest(facesContext).getHeaders(name)).toArray(new String[0]);
+            }
+            return convert(genericParameterType, "@RestHeaderParameter", name,
+                    (facesContext, restMappingMatch) -> getRequest(facesContext).getHeader(name));
         }
-        
+
         RestPathParameter path = getRestPathParameterAnnotation(parameterAnnotations);
         if (path != null) {
-            Pattern pattern = Pattern.compile(restMappingMatch.getRestPath());
-            Matcher matcher = pattern.matcher(restMappingMatch.getPathInfo());
-            if (matcher.matches()) {
-                return matcher.group(path.value());
-            } else {
-                throw new FacesException("Unable to match @RestPathParameter: " + path.value());
-            }
+            String name = path.value();
+            return convert(genericParameterType, "@RestPathParameter", name,
+                    (facesContext, restMappingMatch) -> getPathParameter(restMappingMatch, name));
         }
 
         RestQueryParameter query = getRestQueryParameterAnnotation(parameterAnnotations);
         if (query != null) {
-            return facesContext.getExternalContext().getRequestParameterMap().get(query.value());
+            String name = query.value();
+            return convert(genericParameterType, "@RestQueryParameter", name,
+                    (facesContext, restMappingMatch) -> getQueryParameter(getRequest(facesContext), name));
+        }
+
+        Function<FacesContext, ?> contextType = contextTypes.get(parameterType);
+        if (contextType != null) {
+            return (facesContext, restMappingMatch) -> contextType.apply(facesContext);
+        }
+
+        Instance<?> instance = CDI.current().select(parameterType, Any.Literal.INSTANCE);
+        return (facesContext, restMappingMatch) -> instance.get();
+    }
+
+    /**
+     * Convert the textual value of a resolver to the parameter type.
+     *
+     * @param type the (generic) parameter type.
+     * @param annotation the name of the annotation (for the error message).
+     * @param name the name of the parameter.
+     * @param resolver the resolver of the textual value.
+     * @return the converting resolver.
+     * @throws FacesException when the type is not supported.
+     */
+    private static RestParameterResolver convert(Type type, String annotation, String name,
+            RestParameterResolver resolver) {
+        ParameterConverter converter = ParameterConverter.forType(type);
+        if (converter == null) {
+            throw new FacesException("Unsupported " + annotation + " type: " + type.getTypeName());
         }
+        return (facesContext, restMappingMatch) -> {
+            CharSequence value = (CharSequence) resolver.resolve(facesContext, restMappingMatch);
+            try {
+                return converter.convert(value);
+            } catch (ParameterConversionException pce) {
+                throw new ParameterConversionException(name, pce.getMessage(), pce);
+            }
+        };
+    }
+
+    /**
+     * Require a resolver to resolve a value (for a parameter of a primitive
+     * type).
+     *
+     * @param parameterType the parameter type.
+     * @param resolver the resolver.
+     * @return the resolver that fails when there is no value.
+     */
+    private static RestParameterResolver requireValue(Class<?> parameterType, RestParameterResolver resolver) {
+        return (facesContext, restMappingMatch) -> {
+            Object value = resolver.resolve(facesContext, restMappingMatch);
+            if (value == null) {
+                throw new ParameterConversionException("Missing value for a parameter of type " + parameterType);
+            }
+            return value;
+        };
+    }
+
+    /**
+     * Get the HTTP request.
+     *
+     * @param facesContext the Faces context.
+     * @return the HTTP request.
+     */
+    private static HttpServletRequest getRequest(FacesContext facesContext) {
+        return (HttpServletRequest) facesContext.getExternalContext().getRequest();
+    }
 
-        return CDI.current().select(parameterType, Any.Literal.INSTANCE).get();
+    /**
+     * Get a query parameter.
+     *
+     * @param request the HTTP request.
+     * @param name the name.
+     * @return the value, or null if not present.
+     */
+    private static CharSequence getQueryParameter(HttpServletRequest request, String name) {
+        CharSequence value = QueryString.getParameter(request.getQueryString(), name, getCharset(request));
+        if (value == null && request.getContentType() != null) {
+            value = request.getParameter(name);
+        }
+        return value;
     }
 
+    /**
+     * Get the charset of the request.
+     *
+     * <p>
+     *  This is the character encoding of the request, else the request
+     *  character encoding of the servlet context, else UTF-8. An unknown
+     *  charset is treated as UTF-8.
+     * </p>
+     *
+     * @param request the HTTP request.
+     * @return the charset.
+     */
+    private static Charset getCharset(HttpServletRequest request) {
+        String encoding = request.getCharacterEncoding();
+        if (encoding == null) {
+            encoding = request.getServletContext().getRequestCharacterEncoding();
+        }
+        if (encoding != null) {
+            try {
+                return Charset.forName(encoding);
+            } catch (IllegalArgumentException iae) {
+                // an unknown charset, fall back to UTF-8.
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Get the parameter binders.
+     *
+     * @return the parameter binders, ordered by priority.
+     */
+    private RestParameterBinder[] getBinders() {
+        RestParameterBinder[] result = binders;
+        if (result == null) {
+            synchronized (this) {
+                result = binders;
+                if (result == null) {
+                    List<Bean<?>> beans = new ArrayList<>(
+                            beanManager.getBeans(RestParameterBinder.class, Any.Literal.INSTANCE));
+                    beans.sort(Comparator.comparingInt(DefaultRestParameterProducer::getPriority));
+                    result = new RestParameterBinder[beans.size()];
+                    for (int i = 0; i < result.length; i++) {
+                        result[i] = (RestParameterBinder) beanManager.getReference(beans.get(i),
+                                RestParameterBinder.class, beanManager.createCreationalContext(beans.get(i)));
+                    }
+                    binders = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the priority of a bean.
+     *
+     * @param bean the bean.
+     * @return the priority.
+     */
+    private static int getPriority(Bean<?> bean) {
+        Priority priority = bean.getBeanClass().getAnnotation(Priority.class);
+        return priority != null ? priority.value() : DEFAULT_PRIORITY;
+    }
+
+    /**
+     * Get a path parameter.
+     *
+     * @param restMappingMatch the REST mapping match.
+     * @param name the name of the path parameter.
+     * @return the value.
+     * @throws FacesException when the path parameter does not exist.
+     */
+    private static String getPathParameter(RestMappingMatch restMappingMatch, String name) {
+        Map<String, String> pathParameters = restMappingMatch.getPathParameters();
+        if (pathParameters != null) {
+            if (pathParameters.containsKey(name)) {
+                return pathParameters.get(name);
+            }
+            throw new FacesException("Unable to match @RestPathParameter: " + name);
+        }
+        // a custom matcher might not capture the path parameters
+        Pattern pattern = Pattern.compile(restMappingMatch.getRestPath());
+        Matcher matcher = pattern.matcher(restMappingMatch.getPathInfo());
+        if (matcher.matches()) {
+            return matcher.group(name);
+        } else {
+            throw new FacesException("Unable to match @RestPathParameter: " + name);
+        }
+    }
+    
     /**
      * Get the @RestHeaderParameter annotation (if present).
      *
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.rest;
+
+import com.manorrock.oyena.lifecycle.common.BeanInstances;
+import jakarta.enterprise.inject.Instance;
+import jakarta.enterprise.inject.spi.Bean;
+
+/**
+ * The instances of a REST bean.
+ *
+ * <p>
+ *  A @Dependent bean annotated with @RestPooled is pooled.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class RestBeanInstances extends BeanInstances {
+
+    /**
+     * Constructor.
+     *
+     * @param bean the bean.
+     * @param instance the Instance of the bean.
+     */
+    RestBeanInstances(Bean<?> bean, Instance<?> instance) {
+        super(bean, instance, getPoolSize(bean));
+    }
+
+    /**
+     * Get the pool size of a bean.
+     *
+     * @param bean the bean.
+     * @return the maximum number of idle instances, or -1 if the bean is not
+     * pooled.
+     */
+    private static int getPoolSize(Bean<?> bean) {
+        RestPooled pooled = bean.getBeanClass().getAnnotation(RestPooled.class);
+        return pooled != null ? pooled.value() : -1;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.rest;
+
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.spi.AfterBeanDiscovery;
+import jakarta.enterprise.inject.spi.AnnotatedMethod;
+import jakarta.enterprise.inject.spi.Extension;
+import jakarta.enterprise.inject.spi.ProcessBean;
+import jakarta.enterprise.inject.spi.ProcessManagedBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The CDI extension that collects the REST routes.
+ *
+ * <p>
+ *  Every method annotated with &#64;RestPath is collected once at deployment
+ *  time so matching a request never needs to scan the beans. The REST mapping
+ *  matcher builds its route table from them.
+ * </p>
+ *
+ * <p>
+ *  It also registers the context for @RestRequestScoped and gives every bean
+ *  in that scope its slot.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class RestExtension implements Extension {
+
+    /**
+     * Stores the routes collected during bean discovery.
+     */
+    private final List<RestRoute> collected = new ArrayList<>();
+
+    /**
+     * Stores the request context.
+     */
+    private final RestRequestContext requestContext = new RestRequestContext();
+
+    /**
+     * Stores the routes.
+     */
+    private List<RestRoute> routes = List.of();
+
+    /**
+     * Constructor.
+     */
+    public RestExtension() {
+        // nothing to do here.
+    }
+
+    /**
+     * Assign a slot to a @RestRequestScoped bean.
+     *
+     * @param <T> the type of the bean.
+     * @param event the process bean event.
+     */
+    public <T> void processBean(@Observes ProcessBean<T> event) {
+        if (RestRequestScoped.class.equals(event.getBean().getScope())) {
+            requestContext.getSlot(event.getBean());
+        }
+    }
+
+    /**
+     * Collect the REST routes of a managed bean.
+     *
+     * @param <T> the type of the bean.
+     * @param event the process managed bean event.
+     */
+    public <T> void processManagedBean(@Observes ProcessManagedBean<T> event) {
+        for (AnnotatedMethod<? super T> method : event.getAnnotatedBeanClass().getMethods()) {
+            if (method.isAnnotationPresent(RestPath.class)) {
+                String httpMethod = null;
+                if (method.isAnnotationPresent(RestMethod.class)) {
+                    httpMethod = method.getAnnotation(RestMethod.class).value().toUpperCase(Locale.ROOT);
+                }
+                collected.add(new RestRoute(event.getBean(), method.getJavaMember(),
+                        method.getAnnotation(RestPath.class).value(), httpMethod));
+            }
+        }
+    }
+
+    /**
+     * Freeze the collected routes.
+     *
+     * @param event the after bean discovery event.
+     */
+    public void afterBeanDiscovery(@Observes AfterBeanDiscovery event) {
+        routes = List.copyOf(collected);
+        collected.clear();
+        event.addContext(requestContext);
+    }
+
+    /**
+     * Get the request context.
+     *
+     * @return the request context.
+     */
+    RestRequestContext getRequestContext() {
+        return requestContext;
+    }
+
+    /**
+     * Get the routes.
+     *
+     * @return the routes.
+     */
+    public List<RestRoute> getRoutes() {
+        return routes;
+    }
+}
@@ -55,6 +55,7 @@ public class RestInitializer implements ServletContainerInitializer {
         if (servletContext.getServletRegistration("Oyena REST Servlet") == null) {
             Dynamic dynamic = servletContext.addServlet("Oyena REST Servlet", FacesServlet.class.getName());
             dynamic.addMapping("/rest/*");
+            dynamic.setAsyncSupported(true);
             dynamic.setInitParameter("jakarta.faces.LIFECYCLE_ID", RestLifecycle.class.getName());
         }
     }
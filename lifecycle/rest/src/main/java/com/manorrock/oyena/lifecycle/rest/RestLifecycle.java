@@ -26,25 +26,102 @@
  */
 package com.manorrock.oyena.lifecycle.rest;
 
+import com.manorrock.oyena.lifecycle.common.FanOut;
+import com.manorrock.oyena.lifecycle.common.ParameterConversionException;
+import com.manorrock.oyena.lifecycle.common.RequestContext;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.faces.FacesException;
 import jakarta.faces.context.ExternalContext;
 import jakarta.faces.context.FacesContext;
+import jakarta.faces.context.Flash;
 import jakarta.faces.event.PhaseListener;
 import jakarta.faces.lifecycle.Lifecycle;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The REST lifecycle.
  *
+ * <p>
+ *  The response body of a HEAD request is never written. An OPTIONS request to
+ *  a REST path without an OPTIONS method is answered with a 204 and an 'Allow'
+ *  header. A result that is AutoCloseable (eg. a Stream) is closed after the
+ *  render, unless the response writer took it over.
+ * </p>
+ *
+ * <p>
+ *  When the VIRTUAL_THREADS context parameter is set to true a matched REST
+ *  method is not executed on the container thread. Its parameters are
+ *  resolved, the request is put in asynchronous mode and the method is
+ *  executed on a virtual thread, after which the request is dispatched back
+ *  to the container to render the result. The @RestRequestScoped instances
+ *  are handed over to the virtual thread and back. The request times out
+ *  after the ASYNC_TIMEOUT context parameter (in milliseconds, default 0
+ *  for no timeout), it is then answered with a 503, the method is
+ *  interrupted and the @RestRequestScoped instances are destroyed once it
+ *  returns, instead of being dispatched. If the request does not support
+ *  asynchronous mode (eg. because of a filter that does not), or the method
+ *  takes the FacesContext, ExternalContext or Flash (which do not outlive the
+ *  container thread), the method is executed on the container thread as
+ *  usual.
+ * </p>
+ *
+ * <p>
+ *  A request with a value that cannot be converted to the type of a method
+ *  parameter is answered with a 400.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 @ApplicationScoped
 @Named("com.manorrock.oyena.lifecycle.rest.RestLifecycle")
 public class RestLifecycle extends Lifecycle {
 
+    /**
+     * Stores the name of the context parameter with the timeout in
+     * milliseconds of a request executed on a virtual thread (default 0, no
+     * timeout).
+     */
+    public static final String ASYNC_TIMEOUT = "com.manorrock.oyena.lifecycle.rest.ASYNC_TIMEOUT";
+
+    /**
+     * Stores the name of the context parameter that enables executing REST
+     * methods on virtual threads (true or false, default false).
+     */
+    public static final String VIRTUAL_THREADS = "com.manorrock.oyena.lifecycle.rest.VIRTUAL_THREADS";
+
+    /**
+     * Stores the name of the request attribute that holds the outcome of a
+     * REST method executed on a virtual thread.
+     */
+    private static final String OFFLOADED = RestLifecycle.class.getPackage().getName() + ".Offloaded";
+
+    /**
+     * Stores the name of the Faces context attribute that holds the result.
+     */
+    private static final String RESULT = RestLifecycle.class.getPackage().getName() + ".RestResult";
+
+    /**
+     * Stores the timeout of a request executed on a virtual thread.
+     */
+    private volatile long asyncTimeout;
+
+    /**
+     * Stores the REST extension.
+     */
+    @Inject
+    private RestExtension restExtension;
+
     /**
      * Stores the REST mapping matcher.
      */
@@ -63,6 +140,17 @@ public class RestLifecycle extends Lifecycle {
     @Inject
     private RestResponseMatcher restResponseMatcher;
 
+    /**
+     * Stores the virtual thread factory (null when not enabled).
+     */
+    private volatile ThreadFactory virtualThreadFactory;
+
+    /**
+     * Stores whether the VIRTUAL_THREADS and ASYNC_TIMEOUT context parameters
+     * have been read.
+     */
+    private volatile boolean virtualThreadsConfigured;
+
     /**
      * Add a phase listener.
      *
@@ -85,17 +173,262 @@ public class RestLifecycle extends Lifecycle {
      */
     @Override
     public void execute(FacesContext facesContext) throws FacesException {
-        RestMappingMatch match = restMappingMatcher.match(facesContext);
-        if (match != null) {
-            Object result = restMethodExecutor.execute(facesContext, match);
-            facesContext.getAttributes().put(
-                    RestLifecycle.class.getPackage().getName() + ".RestResult", result);
+        RestRequestContext requestContext = restExtension.getRequestContext();
+        Offloaded offloaded = (Offloaded) facesContext.getExternalContext().getRequestMap().remove(OFFLOADED);
+        if (offloaded != null) {
+            requestContext.attach(offloaded.instances);
         } else {
-            try {
-                facesContext.getExternalContext().responseSendError(404, "Unable to match request");
-                facesContext.responseComplete();
-            } catch (IOException ioe) {
-                throw new FacesException(ioe);
+            requestContext.activate();
+        }
+        try {
+            if (offloaded != null) {
+                resume(facesContext, offloaded);
+            } else {
+                RestMappingMatch match = restMappingMatcher.match(facesContext);
+                if (match == null) {
+                    sendNoMatch(facesContext);
+                } else if (offload(facesContext, match)) {
+                    return;
+                } else {
+                    facesContext.getAttributes().put(RESULT, restMethodExecutor.execute(facesContext, match));
+                    reportFanOut(facesContext);
+                }
+            }
+        } catch (RuntimeException re) {
+            requestContext.deactivate();
+            if (!sendBadRequest(facesContext, re)) {
+                throw re;
+            }
+        }
+        if (facesContext.getResponseComplete()) {
+            requestContext.deactivate();
+        }
+    }
+
+    /**
+     * Answer a request that does not match a REST method.
+     *
+     * <p>
+     *  If the path matches for other HTTP methods the 'Allow' header is set
+     *  and the request is answered with a 204 for OPTIONS and a 405
+     *  otherwise, if not at all with a 404.
+     * </p>
+     *
+     * @param facesContext the Faces context.
+     */
+    private void sendNoMatch(FacesContext facesContext) {
+        try {
+            Set<String> allowedMethods = restMappingMatcher.getAllowedMethods(facesContext);
+            ExternalContext externalContext = facesContext.getExternalContext();
+            if (!allowedMethods.isEmpty()) {
+                externalContext.setResponseHeader("Allow", String.join(", ", allowedMethods));
+                if ("OPTIONS".equals(((HttpServletRequest) externalContext.getRequest()).getMethod())) {
+                    externalContext.setResponseStatus(204);
+                } else {
+                    externalContext.responseSendError(405, "Method not allowed");
+                }
+            } else {
+                externalContext.responseSendError(404, "Unable to match request");
+            }
+            facesContext.responseComplete();
+        } catch (IOException ioe) {
+            throw new FacesException(ioe);
+        }
+    }
+
+    /**
+     * Hand the execution of a REST method off to a virtual thread (if
+     * enabled).
+     *
+     * <p>
+     *  The parameters are resolved here, on the container thread. The
+     *  instances of the @RestRequestScoped beans are detached from the
+     *  container thread and attached to the virtual thread while the method
+     *  runs. Afterwards the request is dispatched back to the container, which
+     *  renders the result with the Faces context and CDI request context of
+     *  that dispatch. The OffloadListener makes sure the request is either
+     *  dispatched or (when it timed out or failed first) abandoned.
+     * </p>
+     *
+     * @param facesContext the Faces context.
+     * @param match the REST mapping match.
+     * @return true if it was handed off, false otherwise.
+     */
+    private boolean offload(FacesContext facesContext, RestMappingMatch match) {
+        ThreadFactory threadFactory = getVirtualThreadFactory(facesContext);
+        if (threadFactory == null || usesFacesContext(match)) {
+            return false;
+        }
+        HttpServletRequest request = (HttpServletRequest) facesContext.getExternalContext().getRequest();
+        if (!request.isAsyncSupported()) {
+            return false;
+        }
+        Callable<Object> callable = restMethodExecutor.prepare(facesContext, match);
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(asyncTimeout);
+        OffloadListener listener = new OffloadListener(restExtension.getRequestContext().detach());
+        asyncContext.addListener(listener);
+        facesContext.responseComplete();
+        listener.thread = threadFactory.newThread(() -> executeOffloaded(asyncContext, listener, callable));
+        listener.thread.start();
+        return true;
+    }
+
+    /**
+     * Does the method of a match take a parameter that only lives as long as
+     * the Faces context of the container thread.
+     *
+     * @param match the REST mapping match.
+     * @return true if it does, false otherwise.
+     */
+    private static boolean usesFacesContext(RestMappingMatch match) {
+        for (Class<?> parameterType : match.getMethod().getParameterTypes()) {
+            if (FacesContext.class.isAssignableFrom(parameterType)
+                    || ExternalContext.class.isAssignableFrom(parameterType)
+                    || Flash.class.isAssignableFrom(parameterType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Execute a REST method on the current (virtual) thread and dispatch the
+     * request back to the container.
+     *
+     * <p>
+     *  If the request was abandoned (or can no longer be dispatched) the
+     *  @RestRequestScoped instances are destroyed here, as there is no
+     *  dispatch to hand them to.
+     * </p>
+     *
+     * @param asyncContext the async context.
+     * @param listener the listener of the request.
+     * @param callable the callable that executes the method.
+     */
+    private void executeOffloaded(AsyncContext asyncContext, OffloadListener listener,
+            Callable<Object> callable) {
+        RestRequestContext requestContext = restExtension.getRequestContext();
+        Offloaded offloaded = new Offloaded();
+        requestContext.attach(listener.instances);
+        try {
+            offloaded.result = callable.call();
+        } catch (Throwable throwable) {
+            offloaded.failure = throwable;
+        } finally {
+            offloaded.instances = requestContext.detach();
+        }
+        try {
+            if (listener.returned()) {
+                asyncContext.getRequest().setAttribute(OFFLOADED, offloaded);
+                asyncContext.dispatch();
+                return;
+            }
+        } catch (IllegalStateException ise) {
+            // the request can no longer be dispatched.
+        }
+        if (offloaded.instances != null) {
+            offloaded.instances.destroyAll();
+        }
+    }
+
+    /**
+     * Continue a request after its REST method was executed on a virtual
+     * thread.
+     *
+     * @param facesContext the Faces context of the dispatch.
+     * @param offloaded the outcome of the execution.
+     */
+    private void resume(FacesContext facesContext, Offloaded offloaded) {
+        if (offloaded.failure instanceof RuntimeException re) {
+            throw re;
+        }
+        if (offloaded.failure != null) {
+            throw new FacesException(offloaded.failure);
+        }
+        facesContext.getAttributes().put(RESULT, offloaded.result);
+        reportFanOut(facesContext);
+    }
+
+    /**
+     * Get the virtual thread factory.
+     *
+     * <p>
+     *  The ASYNC_TIMEOUT context parameter is read along with the
+     *  VIRTUAL_THREADS context parameter.
+     * </p>
+     *
+     * @param facesContext the Faces context.
+     * @return the virtual thread factory, or null if not enabled.
+     * @throws FacesException when the ASYNC_TIMEOUT context parameter is not
+     * a number.
+     */
+    private ThreadFactory getVirtualThreadFactory(FacesContext facesContext) {
+        if (!virtualThreadsConfigured) {
+            synchronized (this) {
+                if (!virtualThreadsConfigured) {
+                    ExternalContext externalContext = facesContext.getExternalContext();
+                    String value = externalContext.getInitParameter(VIRTUAL_THREADS);
+                    if (value != null && Boolean.parseBoolean(value.trim())) {
+                        virtualThreadFactory = Thread.ofVirtual().name("oyena-rest-", 0).factory();
+                    }
+                    String timeout = externalContext.getInitParameter(ASYNC_TIMEOUT);
+                    if (timeout != null && !timeout.isBlank()) {
+                        try {
+                            asyncTimeout = Long.parseLong(timeout.trim());
+                        } catch (NumberFormatException nfe) {
+                            throw new FacesException("Invalid value for " + ASYNC_TIMEOUT + ": " + timeout, nfe);
+                        }
+                    }
+                    virtualThreadsConfigured = true;
+                }
+            }
+        }
+        return virtualThreadFactory;
+    }
+
+    /**
+     * Answer the request with a 400 if a request value could not be converted
+     * to a method parameter.
+     *
+     * <p>
+     *  The error message only names the parameter, the request value is not
+     *  echoed back.
+     * </p>
+     *
+     * @param facesContext the Faces context.
+     * @param throwable the throwable the execution failed with.
+     * @return true if the 400 was sent, false otherwise.
+     */
+    private static boolean sendBadRequest(FacesContext facesContext, Throwable throwable) {
+        ParameterConversionException exception = ParameterConversionException.find(throwable);
+        if (exception == null) {
+            return false;
+        }
+        try {
+            String parameter = exception.getParameter();
+            facesContext.getExternalContext().responseSendError(400, parameter != null
+                    ? "Unable to convert the value of parameter '" + parameter + "'"
+                    : "Unable to convert a request value");
+            facesContext.responseComplete();
+        } catch (IOException ioe) {
+            throw new FacesException(ioe);
+        }
+        return true;
+    }
+
+    /**
+     * Report the timings of the fan-out of the request (if used) in the
+     * Server-Timing response header.
+     *
+     * @param facesContext the Faces context.
+     */
+    private void reportFanOut(FacesContext facesContext) {
+        FanOut fanOut = restExtension.getRequestContext().getFanOut();
+        if (fanOut != null) {
+            String timing = fanOut.toServerTiming();
+            if (!timing.isEmpty()) {
+                facesContext.getExternalContext().addResponseHeader("Server-Timing", timing);
             }
         }
     }
@@ -132,19 +465,266 @@ public class RestLifecycle extends Lifecycle {
     /**
      * Perform the render part of the REST lifecycle.
      *
+     * <p>
+     *  If the response writer put the request in asynchronous mode (eg. to
+     *  write a Flow.Publisher result) the @RestRequestScoped instances are
+     *  detached and only destroyed once the asynchronous request completes,
+     *  as the result may still use them until then.
+     * </p>
+     *
      * @param facesContext the Faces context.
      * @throws FacesException when a serious error occurs.
      */
     @Override
     public void render(FacesContext facesContext) throws FacesException {
-        if (!facesContext.getResponseComplete()) {
-            ExternalContext externalContext = facesContext.getExternalContext();
-            String responseContentType = externalContext.getResponseContentType();
-            if (responseContentType == null) {
-                externalContext.setResponseContentType("application/json");
-                responseContentType = "application/json";
+        ExternalContext externalContext = facesContext.getExternalContext();
+        HttpServletRequest request = (HttpServletRequest) externalContext.getRequest();
+        try {
+            if (!facesContext.getResponseComplete() && !"HEAD".equals(request.getMethod())) {
+                String responseContentType = externalContext.getResponseContentType();
+                if (responseContentType == null) {
+                    externalContext.setResponseContentType("application/json");
+                    responseContentType = "application/json";
+                }
+                restResponseMatcher.getResponseWriter(responseContentType).writeResponse(facesContext);
+            }
+        } finally {
+            try {
+                close(facesContext.getAttributes().remove(RESULT));
+            } finally {
+                RestRequestContext requestContext = restExtension.getRequestContext();
+                if (request.isAsyncStarted()) {
+                    RequestContext.Instances instances = requestContext.detach();
+                    if (instances != null) {
+                        request.getAsyncContext().addListener(new InstancesDestroyer(instances));
+                    }
+                } else {
+                    requestContext.deactivate();
+                }
+            }
+        }
+    }
+
+    /**
+     * Close a result (if it is AutoCloseable).
+     *
+     * @param result the result.
+     */
+    private static void close(Object result) {
+        if (result instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (RuntimeException re) {
+                throw re;
+            } catch (Exception e) {
+                throw new FacesException(e);
             }
-            restResponseMatcher.getResponseWriter(responseContentType).writeResponse(facesContext);
         }
     }
+
+    /**
+     * The AsyncListener that destroys the @RestRequestScoped instances once
+     * an asynchronous response has been written.
+     */
+    private static class InstancesDestroyer implements AsyncListener {
+
+        /**
+         * Stores the instances of the @RestRequestScoped beans.
+         */
+        private final RequestContext.Instances instances;
+
+        /**
+         * Constructor.
+         *
+         * @param instances the instances of the @RestRequestScoped beans.
+         */
+        InstancesDestroyer(RequestContext.Instances instances) {
+            this.instances = instances;
+        }
+
+        /**
+         * Destroy the instances when the request completes.
+         *
+         * @param event the async event.
+         * @throws IOException when an I/O error occurs.
+         */
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException {
+            instances.destroyAll();
+        }
+
+        /**
+         * Handle an error of the request.
+         *
+         * @param event the async event.
+         * @throws IOException when an I/O error occurs.
+         */
+        @Override
+        public void onError(AsyncEvent event) throws IOException {
+            // the request completes after this.
+        }
+
+        /**
+         * Handle the start of a new asynchronous cycle.
+         *
+         * @param event the async event.
+         * @throws IOException when an I/O error occurs.
+         */
+        @Override
+        public void onStartAsync(AsyncEvent event) throws IOException {
+            // nothing to do here.
+        }
+
+        /**
+         * Handle the timeout of the request.
+         *
+         * @param event the async event.
+         * @throws IOException when an I/O error occurs.
+         */
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            // the request completes after this.
+        }
+    }
+
+    /**
+     * The AsyncListener of a request executed on a virtual thread.
+     *
+     * <p>
+     *  Whichever comes first, the method returning or the request timing out
+     *  (or failing, eg. because the client disconnected), decides what
+     *  happens to the request. When the method returns first the request is
+     *  dispatched. When the request times out or fails first the fan-out is
+     *  cancelled, the virtual thread is interrupted, a timed out request is
+     *  answered with a 503 and the request is completed without a dispatch.
+     * </p>
+     */
+    private static class OffloadListener implements AsyncListener {
+
+        /**
+         * Stores the instances of the @RestRequestScoped beans (null if the
+         * context was not active).
+         */
+        private final RequestContext.Instances instances;
+
+        /**
+         * Stores whether the request was either abandoned or the method
+         * returned.
+         */
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        /**
+         * Stores the virtual thread that executes the method.
+         */
+        private volatile Thread thread;
+
+        /**
+         * Constructor.
+         *
+         * @param instances the instances of the @RestRequestScoped beans.
+         */
+        OffloadListener(RequestContext.Instances instances) {
+            this.instances = instances;
+        }
+
+        /**
+         * Abandon the request (unless the method returned already).
+         *
+         * @param event the async event.
+         * @param timedOut true if the request timed out, false if it failed.
+         * @throws IOException when an I/O error occurs.
+         */
+        private void abandon(AsyncEvent event, boolean timedOut) throws IOException {
+            if (!settled.compareAndSet(false, true)) {
+                return;
+            }
+            FanOut fanOut = instances != null ? instances.getFanOut() : null;
+            if (fanOut != null) {
+                fanOut.cancel();
+            }
+            if (thread != null) {
+                thread.interrupt();
+            }
+            if (timedOut && event.getSuppliedResponse() instanceof HttpServletResponse response
+                    && !response.isCommitted()) {
+                response.sendError(503, "Request timed out");
+            }
+            event.getAsyncContext().complete();
+        }
+
+        /**
+         * Record that the method returned.
+         *
+         * @return true if the request is to be dispatched, false if it was
+         * abandoned.
+         */
+        boolean returned() {
+            return settled.compareAndSet(false, true);
+        }
+
+        /**
+         * Handle the completion of the request.
+         *
+         * @param event the async event.
+         * @throws IOException when an I/O error occurs.
+         */
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException {
+            // nothing to do here.
+        }
+
+        /**
+         * Abandon the request when it failed.
+         *
+         * @param event the async event.
+         * @throws IOException when an I/O error occurs.
+         */
+        @Override
+        public void onError(AsyncEvent event) throws IOException {
+            abandon(event, false);
+        }
+
+        /**
+         * Handle the start of a new asynchronous cycle.
+         *
+         * @param event the async event.
+         * @throws IOException when an I/O error occurs.
+         */
+        @Override
+        public void onStartAsync(AsyncEvent event) throws IOException {
+            // nothing to do here.
+        }
+
+        /**
+         * Abandon the request when it timed out.
+         *
+         * @param event the async event.
+         * @throws IOException when an I/O error occurs.
+         */
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            abandon(event, true);
+        }
+    }
+
+    /**
+     * The outcome of a REST method executed on a virtual thread.
+     */
+    private static class Offloaded {
+
+        /**
+         * Stores the throwable the method failed with (if any).
+         */
+        private Throwable failure;
+
+        /**
+         * Stores the instances of the @RestRequestScoped beans.
+         */
+        private RequestContext.Instances instances;
+
+        /**
+         * Stores the result.
+         */
+        private Object result;
+    }
 }
@@ -26,8 +26,10 @@
  */
 package com.manorrock.oyena.lifecycle.rest;
 
+import com.manorrock.oyena.lifecycle.common.MethodInvoker;
 import jakarta.enterprise.inject.spi.Bean;
 import java.lang.reflect.Method;
+import java.util.Map;
 
 /**
  * The REST mapping match class.
@@ -41,6 +43,11 @@ public class RestMappingMatch {
      */
     private Bean bean;
 
+    /**
+     * Stores the method invoker.
+     */
+    private MethodInvoker invoker;
+
     /**
      * Stores the method.
      */
@@ -51,6 +58,11 @@ public class RestMappingMatch {
      */
     private String pathInfo;
 
+    /**
+     * Stores the path parameters.
+     */
+    private Map<String, String> pathParameters;
+
     /**
      * Stores the RestPath.
      */
@@ -74,6 +86,15 @@ public class RestMappingMatch {
         return pathInfo.length();
     }
 
+    /**
+     * Get the method invoker.
+     *
+     * @return the method invoker, or null if the matcher did not set it.
+     */
+    public MethodInvoker getInvoker() {
+        return invoker;
+    }
+
     /**
      * Get the method.
      *
@@ -92,6 +113,19 @@ public class RestMappingMatch {
         return pathInfo;
     }
 
+    /**
+     * Get the path parameters.
+     *
+     * <p>
+     *  These are the named groups captured while matching the REST path.
+     * </p>
+     *
+     * @return the path parameters, or null if they were not captured.
+     */
+    public Map<String, String> getPathParameters() {
+        return pathParameters;
+    }
+
     /**
      * Get the REST path.
      *
@@ -110,6 +144,15 @@ public class RestMappingMatch {
         this.bean = bean;
     }
 
+    /**
+     * Set the method invoker.
+     *
+     * @param invoker the method invoker.
+     */
+    public void setInvoker(MethodInvoker invoker) {
+        this.invoker = invoker;
+    }
+
     /**
      * Set the method.
      *
@@ -128,6 +171,15 @@ public class RestMappingMatch {
         this.pathInfo = pathInfo;
     }
 
+    /**
+     * Set the path parameters.
+     *
+     * @param pathParameters the path parameters.
+     */
+    public void setPathParameters(Map<String, String> pathParameters) {
+        this.pathParameters = pathParameters;
+    }
+
     /**
      * Set the REST path.
      *
@@ -27,6 +27,7 @@
 package com.manorrock.oyena.lifecycle.rest;
 
 import jakarta.faces.context.FacesContext;
+import java.util.Set;
 
 /**
  * The REST mapping matcher API.
@@ -42,4 +43,21 @@ public interface RestMappingMatcher {
      * @return the REST mapping match, or null if not found.
      */
     public RestMappingMatch match(FacesContext facesContext);
+
+    /**
+     * Get the HTTP methods that are allowed for the request path.
+     *
+     * <p>
+     *  This is called when the request could not be matched. If the request
+     *  path is known for other HTTP methods the REST lifecycle responds with a
+     *  405 and an 'Allow' header instead of a 404, or in case of an OPTIONS
+     *  request with a 204 and an 'Allow' header.
+     * </p>
+     *
+     * @param facesContext the Faces context.
+     * @return the allowed HTTP methods, or an empty set if the path is unknown.
+     */
+    default Set<String> getAllowedMethods(FacesContext facesContext) {
+        return Set.of();
+    }
 }
@@ -27,6 +27,7 @@
 package com.manorrock.oyena.lifecycle.rest;
 
 import jakarta.faces.context.FacesContext;
+import java.util.concurrent.Callable;
 
 /**
  * The REST method executor API.
@@ -43,4 +44,23 @@ public interface RestMethodExecutor {
      * @return the result.
      */
     public Object execute(FacesContext facesContext, RestMappingMatch restMappingMatch);
+
+    /**
+     * Prepare the method to be executed on another thread.
+     *
+     * <p>
+     *  Everything that needs the Faces context (eg. resolving the parameters)
+     *  is done on the calling thread, the returned callable only invokes the
+     *  method and must not use the Faces context. The default implementation
+     *  executes the method right away.
+     * </p>
+     *
+     * @param facesContext the Faces context.
+     * @param restMappingMatch the REST mapping match.
+     * @return the callable that executes the method and returns the result.
+     */
+    default Callable<Object> prepare(FacesContext facesContext, RestMappingMatch restMappingMatch) {
+        Object result = execute(facesContext, restMappingMatch);
+        return () -> result;
+    }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.rest;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * The REST parameter binder API.
+ *
+ * <p>
+ *  A parameter binder decides, by looking at the type and the annotations of
+ *  a parameter, whether it can resolve that parameter. Parameter binders are
+ *  discovered as CDI beans and asked in the order of their
+ *  jakarta.annotation.Priority (lowest first, 2000 when absent) before the
+ *  built-in header, path, query, context type and CDI resolution. The first
+ *  binder that returns a resolver wins.
+ * </p>
+ *
+ * <p>
+ *  Binding happens once per parameter of a REST method, the request only
+ *  calls the resolver that was returned. A resolver that returns null for a
+ *  parameter of a primitive type fails the request with a 400.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public interface RestParameterBinder {
+
+    /**
+     * Bind a parameter.
+     *
+     * @param parameterType the parameter type.
+     * @param genericParameterType the generic parameter type (eg. to
+     * deserialize a List&lt;Item&gt;).
+     * @param parameterAnnotations the parameter annotations.
+     * @return the resolver, or null if the binder does not handle the
+     * parameter.
+     */
+    RestParameterResolver bind(Class<?> parameterType, Type genericParameterType, Annotation[] parameterAnnotations);
+}
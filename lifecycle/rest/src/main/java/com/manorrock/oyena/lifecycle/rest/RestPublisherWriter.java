@@ -0,0 +1,420 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.rest;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Flow;
+
+/**
+ * The writer of a Flow.Publisher result.
+ *
+ * <p>
+ *  The writer subscribes to the publisher and writes its items with Servlet
+ *  non-blocking I/O, as a JSON array or as newline delimited JSON. It asks
+ *  the publisher for one item at a time and only when the output stream is
+ *  ready, so a slow client slows the publisher down instead of items piling
+ *  up in memory, and no thread waits for the client in between. When the
+ *  publisher completes (or fails) or the client goes away the asynchronous
+ *  request is completed and the subscription is cancelled if needed. The
+ *  subscription is also cancelled when the container ends the asynchronous
+ *  request before the publisher is done (eg. on an error).
+ * </p>
+ *
+ * <p>
+ *  All state is guarded by the writer itself, as the publisher and the
+ *  container call it from their own threads.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class RestPublisherWriter implements Flow.Subscriber<Object> {
+
+    /**
+     * Stores the async context.
+     */
+    private final AsyncContext asyncContext;
+
+    /**
+     * Stores whether the subscription has been cancelled.
+     */
+    private boolean cancelled;
+
+    /**
+     * Stores whether the closing bracket has been queued.
+     */
+    private boolean closingQueued;
+
+    /**
+     * Stores whether the asynchronous request has been completed.
+     */
+    private boolean completed;
+
+    /**
+     * Stores the number of items written.
+     */
+    private int count;
+
+    /**
+     * Stores whether an item has been requested and not received yet.
+     */
+    private boolean demanded;
+
+    /**
+     * Stores whether the publisher is done.
+     */
+    private boolean done;
+
+    /**
+     * Stores the error the publisher failed with.
+     */
+    private Throwable error;
+
+    /**
+     * Stores the JSON-B context.
+     */
+    private final Jsonb jsonb;
+
+    /**
+     * Stores whether to write newline delimited JSON.
+     */
+    private final boolean ndjson;
+
+    /**
+     * Stores the output stream.
+     */
+    private final ServletOutputStream outputStream;
+
+    /**
+     * Stores the bytes waiting to be written.
+     */
+    private byte[] pending;
+
+    /**
+     * Stores whether pump is running (on the current thread).
+     */
+    private boolean pumping;
+
+    /**
+     * Stores whether pump was called while it was running.
+     */
+    private boolean repump;
+
+    /**
+     * Stores the subscription.
+     */
+    private Flow.Subscription subscription;
+
+    /**
+     * Constructor.
+     *
+     * @param asyncContext the async context.
+     * @param jsonb the JSON-B context.
+     * @param ndjson whether to write newline delimited JSON.
+     * @throws IOException when an I/O error occurs.
+     */
+    RestPublisherWriter(AsyncContext asyncContext, Jsonb jsonb, boolean ndjson) throws IOException {
+        this.asyncContext = asyncContext;
+        this.jsonb = jsonb;
+        this.ndjson = ndjson;
+        this.outputStream = asyncContext.getResponse().getOutputStream();
+        this.pending = ndjson ? null : new byte[] {'['};
+    }
+
+    /**
+     * Start writing the items of the publisher.
+     *
+     * @param publisher the publisher.
+     */
+    void start(Flow.Publisher<?> publisher) {
+        asyncContext.addListener(new RequestListener());
+        outputStream.setWriteListener(new Listener());
+        publisher.subscribe(this);
+    }
+
+    /**
+     * Handle the subscription.
+     *
+     * @param subscription the subscription.
+     */
+    @Override
+    public synchronized void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null || completed) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        pump();
+    }
+
+    /**
+     * Handle an item.
+     *
+     * @param item the item.
+     */
+    @Override
+    public synchronized void onNext(Object item) {
+        demanded = false;
+        if (completed) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (!ndjson && count > 0) {
+            bytes.write(',');
+        }
+        try {
+            if (item != null) {
+                jsonb.toJson(item, bytes);
+            } else {
+                bytes.writeBytes("null".getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (RuntimeException re) {
+            fail(re, false);
+            return;
+        }
+        if (ndjson) {
+            bytes.write('\n');
+        }
+        count++;
+        pending = bytes.toByteArray();
+        pump();
+    }
+
+    /**
+     * Handle the publisher failing.
+     *
+     * @param throwable the throwable.
+     */
+    @Override
+    public synchronized void onError(Throwable throwable) {
+        done = true;
+        error = throwable;
+        pump();
+    }
+
+    /**
+     * Handle the publisher completing.
+     */
+    @Override
+    public synchronized void onComplete() {
+        done = true;
+        pump();
+    }
+
+    /**
+     * Write what can be written and ask for the next item when the output
+     * stream is ready for it.
+     */
+    private void pump() {
+        if (pumping) {
+            repump = true;
+            return;
+        }
+        pumping = true;
+        try {
+            do {
+                repump = false;
+                pumpOnce();
+            } while (repump);
+        } finally {
+            pumping = false;
+        }
+    }
+
+    /**
+     * Do one round of pumping.
+     */
+    private void pumpOnce() {
+        try {
+            while (!completed) {
+                if (pending != null) {
+                    if (!outputStream.isReady()) {
+                        return;
+                    }
+                    byte[] bytes = pending;
+                    pending = null;
+                    outputStream.write(bytes);
+                } else if (done) {
+                    if (error != null) {
+                        fail(error, true);
+                    } else if (!ndjson && !closingQueued) {
+                        closingQueued = true;
+                        pending = new byte[] {']'};
+                    } else {
+                        complete();
+                    }
+                } else {
+                    if (subscription != null && !demanded && outputStream.isReady()) {
+                        demanded = true;
+                        subscription.request(1);
+                    }
+                    return;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(e, false);
+        }
+    }
+
+    /**
+     * Cancel the subscription (unless the publisher is done or it was
+     * cancelled already).
+     */
+    private void cancel() {
+        if (!cancelled && !done && subscription != null) {
+            cancelled = true;
+            subscription.cancel();
+        }
+    }
+
+    /**
+     * Complete the asynchronous request.
+     */
+    private void complete() {
+        if (!completed) {
+            completed = true;
+            asyncContext.complete();
+        }
+    }
+
+    /**
+     * Give up writing.
+     *
+     * @param throwable the throwable.
+     * @param fromPublisher true if the publisher failed, false if writing
+     * failed.
+     */
+    private void fail(Throwable throwable, boolean fromPublisher) {
+        if (completed) {
+            return;
+        }
+        if (!fromPublisher) {
+            cancel();
+        }
+        asyncContext.getRequest().getServletContext().log("Unable to write Flow.Publisher result", throwable);
+        HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+        if (fromPublisher && !response.isCommitted()) {
+            response.reset();
+            response.setStatus(500);
+        }
+        complete();
+    }
+
+    /**
+     * The write listener that is told when the output stream is ready again
+     * or has failed.
+     */
+    private class Listener implements WriteListener {
+
+        /**
+         * Handle the output stream becoming ready.
+         */
+        @Override
+        public void onWritePossible() {
+            synchronized (RestPublisherWriter.this) {
+                pump();
+            }
+        }
+
+        /**
+         * Handle an I/O error (eg. the client went away).
+         *
+         * @param throwable the throwable.
+         */
+        @Override
+        public void onError(Throwable throwable) {
+            synchronized (RestPublisherWriter.this) {
+                fail(throwable, false);
+            }
+        }
+    }
+
+    /**
+     * The AsyncListener that cancels the subscription when the asynchronous
+     * request ends before the publisher is done.
+     */
+    private class RequestListener implements AsyncListener {
+
+        /**
+         * Stop writing and cancel the subscription.
+         */
+        private void end() {
+            synchronized (RestPublisherWriter.this) {
+                completed = true;
+                cancel();
+            }
+        }
+
+        /**
+         * Handle the completion of the asynchronous request.
+         *
+         * @param event the async event.
+         */
+        @Override
+        public void onComplete(AsyncEvent event) {
+            end();
+        }
+
+        /**
+         * Handle an error of the asynchronous request.
+         *
+         * @param event the async event.
+         */
+        @Override
+        public void onError(AsyncEvent event) {
+            end();
+        }
+
+        /**
+         * Handle the start of a new asynchronous cycle.
+         *
+         * @param event the async event.
+         */
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // nothing to do here.
+        }
+
+        /**
+         * Handle the timeout of the asynchronous request.
+         *
+         * @param event the async event.
+         */
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            end();
+        }
+    }
+}
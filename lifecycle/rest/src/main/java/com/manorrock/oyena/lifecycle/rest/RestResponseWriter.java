@@ -30,6 +30,12 @@ import jakarta.faces.context.FacesContext;
 
 /**
  * The REST response writer API.
+ *
+ * <p>
+ *  The lifecycle closes an AutoCloseable result (eg. a Stream) after the
+ *  response is written. A writer that closes (or otherwise takes over) the
+ *  result itself removes it from the Faces context attributes.
+ * </p>
  * 
  * @author Manfred Riem (mriem@manorrock.com)
  */
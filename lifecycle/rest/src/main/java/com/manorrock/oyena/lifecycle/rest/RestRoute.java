@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.rest;
+
+import com.manorrock.oyena.lifecycle.common.MethodInvoker;
+import com.manorrock.oyena.lifecycle.common.SegmentTrie;
+import jakarta.enterprise.inject.spi.Bean;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * A REST route.
+ *
+ * <p>
+ *  A REST route is the immutable deployment time representation of a method
+ *  annotated with &#64;RestPath.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class RestRoute {
+
+    /**
+     * Stores the bean.
+     */
+    private final Bean<?> bean;
+
+    /**
+     * Stores the HTTP method (null when the route accepts any HTTP method).
+     */
+    private final String httpMethod;
+
+    /**
+     * Stores the method invoker.
+     */
+    private final MethodInvoker invoker;
+
+    /**
+     * Stores the method.
+     */
+    private final Method method;
+
+    /**
+     * Stores the REST path.
+     */
+    private final String restPath;
+
+    /**
+     * Stores whether the REST path is a path template.
+     */
+    private final boolean template;
+
+    /**
+     * Constructor.
+     *
+     * @param bean the bean.
+     * @param method the method.
+     * @param restPath the REST path.
+     * @param httpMethod the HTTP method, or null to accept any HTTP method.
+     */
+    public RestRoute(Bean<?> bean, Method method, String restPath, String httpMethod) {
+        this.bean = bean;
+        this.method = method;
+        this.invoker = new MethodInvoker(method);
+        this.restPath = restPath;
+        this.httpMethod = httpMethod;
+        this.template = SegmentTrie.isTemplate(restPath);
+    }
+
+    /**
+     * Get the bean.
+     *
+     * @return the bean.
+     */
+    public Bean<?> getBean() {
+        return bean;
+    }
+
+    /**
+     * Get the HTTP method.
+     *
+     * @return the HTTP method, or null if the route accepts any HTTP method.
+     */
+    public String getHttpMethod() {
+        return httpMethod;
+    }
+
+    /**
+     * Get the method invoker.
+     *
+     * @return the method invoker.
+     */
+    public MethodInvoker getInvoker() {
+        return invoker;
+    }
+
+    /**
+     * Get the method.
+     *
+     * @return the method.
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Get the REST path.
+     *
+     * @return the REST path.
+     */
+    public String getRestPath() {
+        return restPath;
+    }
+
+    /**
+     * Is the REST path a path template.
+     *
+     * @return true if it is, false if it is a regular expression.
+     */
+    public boolean isTemplate() {
+        return template;
+    }
+
+    /**
+     * Create a match for the given path info.
+     *
+     * @param pathInfo the path info.
+     * @param pathParameters the path parameters captured while matching.
+     * @return the REST mapping match.
+     */
+    public RestMappingMatch toMatch(String pathInfo, Map<String, String> pathParameters) {
+        RestMappingMatch match = new RestMappingMatch();
+        match.setBean(bean);
+        match.setMethod(method);
+        match.setInvoker(invoker);
+        match.setPathInfo(pathInfo);
+        match.setPathParameters(pathParameters);
+        match.setRestPath(restPath);
+        return match;
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.rest;
+
+import com.manorrock.oyena.lifecycle.common.RegexEngine;
+import com.manorrock.oyena.lifecycle.common.RegexSet;
+import com.manorrock.oyena.lifecycle.common.RegexSetMatch;
+import com.manorrock.oyena.lifecycle.common.ResolvedRoute;
+import com.manorrock.oyena.lifecycle.common.RouteCache;
+import com.manorrock.oyena.lifecycle.common.RouteFilter;
+import com.manorrock.oyena.lifecycle.common.SegmentTrie;
+import com.manorrock.oyena.lifecycle.common.SegmentTrieMatch;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The REST route table.
+ *
+ * <p>
+ *  The route table is built once at deployment time and is immutable after
+ *  that. The routes are partitioned by HTTP method (see &#64;RestMethod) so a
+ *  request only looks at the routes that can handle its HTTP method. Routes
+ *  that accept any HTTP method are part of every partition. Within a partition
+ *  the REST paths that are path templates (eg. '/users/{id:long}') are stored
+ *  in a segment trie and the other REST paths are compiled into a single
+ *  regex set. The longest REST path that matches wins. Optionally the routes
+ *  that were resolved are kept in a bounded match cache keyed by HTTP method
+ *  and path info. A path that cannot match any REST path is rejected up front
+ *  by the route filter. A HEAD request is matched against the GET routes when
+ *  there are no HEAD routes.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class RestRouteTable {
+
+    /**
+     * Stores the partition of the routes that accept any HTTP method.
+     */
+    private final Partition anyMethodPartition;
+
+    /**
+     * Stores the route filter.
+     */
+    private final RouteFilter filter;
+
+    /**
+     * Stores the match cache (null when disabled).
+     */
+    private final RouteCache<RestRoute> matchCache;
+
+    /**
+     * Stores the partitions by HTTP method.
+     */
+    private final Map<String, Partition> partitions;
+
+    /**
+     * Stores all the routes.
+     */
+    private final List<RestRoute> routes;
+
+    /**
+     * Constructor.
+     *
+     * @param routes the routes.
+     * @param regexEngine the regex engine used for the REST paths.
+     * @param matchCacheSize the size of the match cache (0 to disable it).
+     * @param missCacheSize the size of the miss cache of the route filter (0
+     * to disable it).
+     */
+    public RestRouteTable(List<RestRoute> routes, RegexEngine regexEngine,
+            int matchCacheSize, int missCacheSize) {
+        List<RestRoute> sorted = new ArrayList<>(routes);
+        sorted.sort(Comparator.comparingInt((RestRoute route) -> route.getRestPath().length()).reversed());
+        this.routes = Collections.unmodifiableList(sorted);
+        Set<String> httpMethods = new LinkedHashSet<>();
+        List<RestRoute> any = new ArrayList<>();
+        List<String> roots = new ArrayList<>();
+        for (RestRoute route : sorted) {
+            roots.add(route.isTemplate()
+                    ? RouteFilter.templateRoot(route.getRestPath())
+                    : RouteFilter.regexRoot(route.getRestPath()));
+            if (route.getHttpMethod() == null) {
+                any.add(route);
+            } else {
+                httpMethods.add(route.getHttpMethod());
+            }
+        }
+        Map<String, Partition> partitionMap = new HashMap<>();
+        for (String httpMethod : httpMethods) {
+            List<RestRoute> partition = new ArrayList<>();
+            for (RestRoute route : sorted) {
+                if (route.getHttpMethod() == null || route.getHttpMethod().equals(httpMethod)) {
+                    partition.add(route);
+                }
+            }
+            partitionMap.put(httpMethod, new Partition(partition, regexEngine));
+        }
+        this.anyMethodPartition = new Partition(any, regexEngine);
+        this.partitions = Collections.unmodifiableMap(partitionMap);
+        this.matchCache = matchCacheSize > 0 ? new RouteCache<>(matchCacheSize) : null;
+        this.filter = new RouteFilter(roots, missCacheSize);
+    }
+
+    /**
+     * Get the HTTP methods allowed for the given path info.
+     *
+     * <p>
+     *  This is used to determine the 'Allow' header of a 405 response and
+     *  the response to an OPTIONS request. HEAD is implied by GET and OPTIONS
+     *  is implied by any other HTTP method.
+     * </p>
+     *
+     * @param pathInfo the path info.
+     * @return the allowed HTTP methods (sorted), or an empty set if no route
+     * matches the path info.
+     */
+    public Set<String> getAllowedMethods(String pathInfo) {
+        Set<String> result = new TreeSet<>();
+        if (pathInfo != null && filter.mayMatch(pathInfo)
+                && !filter.isKnownMiss("Allow " + pathInfo)) {
+            for (Map.Entry<String, Partition> entry : partitions.entrySet()) {
+                if (entry.getValue().match(pathInfo) != null) {
+                    result.add(entry.getKey());
+                }
+            }
+            if (result.isEmpty()) {
+                filter.recordMiss("Allow " + pathInfo);
+            } else {
+                if (result.contains("GET")) {
+                    result.add("HEAD");
+                }
+                result.add("OPTIONS");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the route filter.
+     *
+     * @return the route filter.
+     */
+    public RouteFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Get the match cache.
+     *
+     * @return the match cache, or null if it is disabled.
+     */
+    public RouteCache<RestRoute> getMatchCache() {
+        return matchCache;
+    }
+
+    /**
+     * Get the routes.
+     *
+     * @return the routes.
+     */
+    public List<RestRoute> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Match the HTTP method and path info to a REST route.
+     *
+     * @param httpMethod the HTTP method.
+     * @param pathInfo the path info.
+     * @return the REST mapping match, or null if not found.
+     */
+    public RestMappingMatch match(String httpMethod, String pathInfo) {
+        if (pathInfo == null) {
+            return null;
+        }
+        if (!filter.mayMatch(pathInfo)) {
+            return null;
+        }
+        Partition partition = partitions.get(httpMethod);
+        if (partition == null && "HEAD".equals(httpMethod)) {
+            httpMethod = "GET";
+            partition = partitions.get(httpMethod);
+        }
+        String key = partition != null ? httpMethod + " " + pathInfo : "* " + pathInfo;
+        if (matchCache != null) {
+            ResolvedRoute<RestRoute> cached = matchCache.get(key);
+            if (cached != null) {
+                return cached.getRoute().toMatch(pathInfo, cached.getParameters());
+            }
+        }
+        if (filter.isKnownMiss(key)) {
+            return null;
+        }
+        ResolvedRoute<RestRoute> resolved = (partition != null ? partition : anyMethodPartition).match(pathInfo);
+        if (resolved == null) {
+            filter.recordMiss(key);
+            return null;
+        }
+        if (matchCache != null) {
+            matchCache.put(key, resolved.getRoute(), resolved.getParameters());
+        }
+        return resolved.getRoute().toMatch(pathInfo, resolved.getParameters());
+    }
+
+    /**
+     * A partition of the route table.
+     */
+    private static class Partition {
+
+        /**
+         * Stores the regex routes (longest REST path first).
+         */
+        private final RestRoute[] regexRoutes;
+
+        /**
+         * Stores the regex set of the regex routes.
+         */
+        private final RegexSet regexSet;
+
+        /**
+         * Stores the template routes.
+         */
+        private final SegmentTrie<RestRoute> templateRoutes;
+
+        /**
+         * Constructor.
+         *
+         * @param routes the routes (longest REST path first).
+         * @param regexEngine the regex engine.
+         */
+        Partition(List<RestRoute> routes, RegexEngine regexEngine) {
+            List<RestRoute> regex = new ArrayList<>();
+            templateRoutes = new SegmentTrie<>();
+            for (RestRoute route : routes) {
+                if (route.isTemplate()) {
+                    templateRoutes.add(route.getRestPath(), route);
+                } else {
+                    regex.add(route);
+                }
+            }
+            this.regexRoutes = regex.toArray(RestRoute[]::new);
+            this.regexSet = RegexSet.compile(
+                    regex.stream().map(RestRoute::getRestPath).toList(), regexEngine);
+        }
+
+        /**
+         * Match the path info.
+         *
+         * @param pathInfo the path info.
+         * @return the resolved route, or null if not found.
+         */
+        ResolvedRoute<RestRoute> match(String pathInfo) {
+            SegmentTrieMatch<RestRoute> templateMatch = templateRoutes.match(pathInfo);
+            int length = templateMatch != null ? templateMatch.getValue().getRestPath().length() : -1;
+            if (regexRoutes.length > 0 && regexRoutes[0].getRestPath().length() > length) {
+                RegexSetMatch regexMatch = regexSet.match(pathInfo);
+                if (regexMatch != null
+                        && regexRoutes[regexMatch.getIndex()].getRestPath().length() > length) {
+                    return new ResolvedRoute<>(regexRoutes[regexMatch.getIndex()], regexMatch.getGroups());
+                }
+            }
+            return templateMatch != null
+                    ? new ResolvedRoute<>(templateMatch.getValue(), templateMatch.getParameters())
+                    : null;
+        }
+    }
+}
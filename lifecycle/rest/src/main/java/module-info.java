@@ -30,6 +30,8 @@ module com.manorrock.oyena.lifecycle.rest {
 
     exports com.manorrock.oyena.lifecycle.rest;
     opens com.manorrock.oyena.lifecycle.rest;
+    requires com.manorrock.oyena.lifecycle.common;
+    requires static jakarta.annotation;
     requires static jakarta.cdi;
     requires static jakarta.faces.api;
     requires static jakarta.json.bind;
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.rest;
+
+import jakarta.faces.context.ExternalContext;
+import jakarta.faces.context.ExternalContextWrapper;
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.context.FacesContextWrapper;
+import jakarta.json.bind.Jsonb;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the DefaultJsonResponseWriter class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class DefaultJsonResponseWriterTest {
+
+    /**
+     * Stores the response content type.
+     */
+    private String contentType;
+
+    /**
+     * Create a writer with a JSON-B context that writes the string value of
+     * an object in quotes and then closes the stream (like Yasson does).
+     *
+     * @return the writer.
+     */
+    private static DefaultJsonResponseWriter createWriter() {
+        DefaultJsonResponseWriter writer = new DefaultJsonResponseWriter();
+        RestStubs.set(writer, "jsonb", RestStubs.stub(Jsonb.class, Map.of(
+                "toJson", arguments -> {
+                    try {
+                        OutputStream outputStream = (OutputStream) arguments[1];
+                        outputStream.write(("\"" + arguments[0] + "\"").getBytes(StandardCharsets.UTF_8));
+                        outputStream.close();
+                    } catch (IOException ioe) {
+                        throw new UncheckedIOException(ioe);
+                    }
+                    return null;
+                })));
+        return writer;
+    }
+
+    /**
+     * Create the Faces context.
+     *
+     * @param result the REST result.
+     * @param accept the Accept header.
+     * @param outputStream the response output stream.
+     * @return the Faces context.
+     */
+    private FacesContext createFacesContext(Object result, String accept, OutputStream outputStream) {
+        HttpServletRequest request = RestStubs.stub(HttpServletRequest.class, Map.of(
+                "getHeader", arguments -> "Accept".equals(arguments[0]) ? accept : null));
+        ExternalContext externalContext = new ExternalContextWrapper(null) {
+            @Override
+            public String getInitParameter(String name) {
+                return null;
+            }
+
+            @Override
+            public Object getRequest() {
+                return request;
+            }
+
+            @Override
+            public OutputStream getResponseOutputStream() {
+                return outputStream;
+            }
+
+            @Override
+            public void setResponseCharacterEncoding(String encoding) {
+            }
+
+            @Override
+            public void setResponseContentType(String responseContentType) {
+                contentType = responseContentType;
+            }
+        };
+        Map<Object, Object> attributes = new HashMap<>();
+        attributes.put(RestLifecycle.class.getPackage().getName() + ".RestResult", result);
+        return new FacesContextWrapper(null) {
+            @Override
+            public Map<Object, Object> getAttributes() {
+                return attributes;
+            }
+
+            @Override
+            public ExternalContext getExternalContext() {
+                return externalContext;
+            }
+
+            @Override
+            public void responseComplete() {
+            }
+        };
+    }
+
+    /**
+     * Test writeResponse method with a Stream result.
+     */
+    @Test
+    void testWriteResponse() {
+        boolean[] closed = new boolean[1];
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        createWriter().writeResponse(createFacesContext(
+                Stream.of("a", "b").onClose(() -> closed[0] = true), null, outputStream));
+        assertEquals("[\"a\",\"b\"]", outputStream.toString(StandardCharsets.UTF_8));
+        assertTrue(closed[0]);
+    }
+
+    /**
+     * Test writeResponse method with an Iterator result and a request that
+     * accepts NDJSON.
+     */
+    @Test
+    void testWriteResponse2() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        createWriter().writeResponse(createFacesContext(
+                List.of("a", "b").iterator(), "application/x-ndjson", outputStream));
+        assertEquals("\"a\"\n\"b\"\n", outputStream.toString(StandardCharsets.UTF_8));
+        assertEquals("application/x-ndjson", contentType);
+    }
+
+    /**
+     * Test writeResponse method closing a Stream result when writing fails.
+     */
+    @Test
+    void testWriteResponse3() {
+        boolean[] closed = new boolean[1];
+        OutputStream outputStream = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Client disconnected");
+            }
+        };
+        assertThrows(RuntimeException.class, () -> createWriter().writeResponse(createFacesContext(
+                Stream.of("a").onClose(() -> closed[0] = true), null, outputStream)));
+        assertTrue(closed[0]);
+    }
+
+    /**
+     * Test writeResponse method with an Iterable result (not streamed).
+     */
+    @Test
+    void testWriteResponse4() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Iterable<String> iterable = List.of("a", "b")::iterator;
+        createWriter().writeResponse(createFacesContext(iterable, null, outputStream));
+        assertEquals("\"" + iterable + "\"", outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Test writeResponse method with a single result not closing the
+     * response output stream.
+     */
+    @Test
+    void testWriteResponse5() {
+        boolean[] closed = new boolean[1];
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        createWriter().writeResponse(createFacesContext("a", null, outputStream));
+        assertEquals("\"a\"", outputStream.toString(StandardCharsets.UTF_8));
+        assertFalse(closed[0]);
+    }
+}
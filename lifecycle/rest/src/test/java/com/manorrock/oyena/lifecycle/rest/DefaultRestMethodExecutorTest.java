@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.rest;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Dependent;
+import jakarta.enterprise.context.control.RequestContextController;
+import jakarta.enterprise.context.spi.Context;
+import jakarta.enterprise.inject.Instance;
+import jakarta.enterprise.inject.spi.BeanManager;
+import jakarta.faces.FacesException;
+import jakarta.faces.context.FacesContext;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the DefaultRestMethodExecutor class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class DefaultRestMethodExecutorTest {
+
+    /**
+     * Create a match for a method of the test bean.
+     *
+     * @param name the name of the method.
+     * @param parameterTypes the parameter types.
+     * @return the match.
+     * @throws Exception when a serious error occurs.
+     */
+    private static RestMappingMatch createMatch(String name, Class<?>... parameterTypes) throws Exception {
+        return createMatch(ApplicationScoped.class, name, parameterTypes);
+    }
+
+    /**
+     * Create a match for a method of the test bean in the given scope.
+     *
+     * @param scope the scope of the bean.
+     * @param name the name of the method.
+     * @param parameterTypes the parameter types.
+     * @return the match.
+     * @throws Exception when a serious error occurs.
+     */
+    private static RestMappingMatch createMatch(Class<?> scope, String name, Class<?>... parameterTypes)
+            throws Exception {
+        RestRoute route = new RestRoute(RestStubs.bean(TestBean.class, scope),
+                TestBean.class.getMethod(name, parameterTypes), "/" + name, null);
+        return route.toMatch("/" + name, null);
+    }
+
+    /**
+     * Create an executor.
+     *
+     * @param producer the parameter producer.
+     * @return the executor.
+     */
+    private static DefaultRestMethodExecutor createExecutor(RestParameterProducer producer) {
+        DefaultRestMethodExecutor executor = new DefaultRestMethodExecutor();
+        RestStubs.set(executor, "restParameterProducer", producer);
+        RestStubs.set(executor, "instance", RestStubs.instance(TestBean::new, new ArrayList<>()));
+        RestStubs.set(executor, "requestContextController", createController(true, new ArrayList<>()));
+        return executor;
+    }
+
+    /**
+     * Create the Instance of a request context controller.
+     *
+     * @param activates what activate returns.
+     * @param calls the list the calls on the controller and its handle are
+     * recorded in.
+     * @return the Instance.
+     */
+    private static Instance<RequestContextController> createController(boolean activates, List<String> calls) {
+        RequestContextController controller = RestStubs.stub(RequestContextController.class, Map.of(
+                "activate", arguments -> calls.add("activate") && activates,
+                "deactivate", arguments -> calls.add("deactivate")));
+        @SuppressWarnings("unchecked")
+        Instance.Handle<RequestContextController> handle = RestStubs.stub(Instance.Handle.class, Map.of(
+                "get", arguments -> controller,
+                "destroy", arguments -> calls.add("destroy")));
+        @SuppressWarnings("unchecked")
+        Instance<RequestContextController> instance = RestStubs.stub(Instance.class, Map.of(
+                "getHandle", arguments -> handle));
+        return instance;
+    }
+
+    /**
+     * Test execute method resolving the parameters with a plan.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testExecute() throws Exception {
+        CountingProducer producer = new CountingProducer();
+        DefaultRestMethodExecutor executor = createExecutor(producer);
+        RestMappingMatch match = createMatch("join", String.class, Integer.class);
+        assertEquals("String-Integer", executor.execute(null, match));
+        assertEquals("String-Integer", executor.execute(null, match));
+        assertEquals(List.of(String.class, Integer.class), producer.types);
+    }
+
+    /**
+     * Test execute method without parameters.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testExecute2() throws Exception {
+        CountingProducer producer = new CountingProducer();
+        DefaultRestMethodExecutor executor = createExecutor(producer);
+        assertEquals("hello", executor.execute(null, createMatch("hello")));
+        assertTrue(producer.types.isEmpty());
+    }
+
+    /**
+     * Test execute method with a method that throws.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testExecute3() throws Exception {
+        DefaultRestMethodExecutor executor = createExecutor(new CountingProducer());
+        FacesException exception = assertThrows(FacesException.class,
+                () -> executor.execute(null, createMatch("fail")));
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+    }
+
+    /**
+     * Test execute method with a @RestPooled bean that returns a Stream.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testExecute4() throws Exception {
+        DefaultRestMethodExecutor executor = createExecutor(new CountingProducer());
+        RestStubs.set(executor, "instance", RestStubs.instance(PooledBean::new, new ArrayList<>()));
+        RestRoute route = new RestRoute(RestStubs.bean(PooledBean.class, Dependent.class),
+                PooledBean.class.getMethod("stream"), "/stream", null);
+        RestMappingMatch match = route.toMatch("/stream", null);
+        Stream<?> first = (Stream<?>) executor.execute(null, match);
+        Stream<?> second = (Stream<?>) executor.execute(null, match);
+        Object instance = first.findFirst().orElseThrow();
+        assertNotSame(instance, second.findFirst().orElseThrow());
+        first.close();
+        Stream<?> third = (Stream<?>) executor.execute(null, match);
+        assertSame(instance, third.findFirst().orElseThrow());
+    }
+
+    /**
+     * Test prepare method with a bean of a normal scope.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testPrepare() throws Exception {
+        CountingProducer producer = new CountingProducer();
+        DefaultRestMethodExecutor executor = createExecutor(producer);
+        TestBean contextualInstance = new TestBean();
+        Context context = RestStubs.stub(Context.class, Map.of("get", arguments -> contextualInstance));
+        RestStubs.set(executor, "beanManager", RestStubs.stub(BeanManager.class, Map.of(
+                "isNormalScope", arguments -> true,
+                "getContext", arguments -> context,
+                "createCreationalContext", arguments -> RestStubs.creationalContext())));
+        List<String> calls = new ArrayList<>();
+        RestStubs.set(executor, "requestContextController", createController(true, calls));
+        Callable<Object> callable = executor.prepare(null, createMatch("self", String.class));
+        assertEquals(List.of(String.class), producer.types);
+        assertTrue(calls.isEmpty());
+        assertSame(contextualInstance, callable.call());
+        assertEquals(List.of("activate", "deactivate", "destroy"), calls);
+    }
+
+    /**
+     * Test prepare method with a @Dependent bean.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testPrepare2() throws Exception {
+        List<Object> destroyed = new ArrayList<>();
+        DefaultRestMethodExecutor executor = createExecutor(new CountingProducer());
+        RestStubs.set(executor, "instance", RestStubs.instance(TestBean::new, destroyed));
+        RestStubs.set(executor, "beanManager", RestStubs.stub(BeanManager.class, Map.of(
+                "isNormalScope", arguments -> false)));
+        Callable<Object> callable = executor.prepare(null, createMatch(Dependent.class, "self", String.class));
+        assertTrue(destroyed.isEmpty());
+        Object instance = callable.call();
+        assertEquals(List.of(instance), destroyed);
+    }
+
+    /**
+     * Test prepare method on a thread with an active request context.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testPrepare3() throws Exception {
+        List<String> calls = new ArrayList<>();
+        DefaultRestMethodExecutor executor = createExecutor(new CountingProducer());
+        RestStubs.set(executor, "requestContextController", createController(false, calls));
+        RestStubs.set(executor, "beanManager", RestStubs.stub(BeanManager.class, Map.of(
+                "isNormalScope", arguments -> false)));
+        executor.prepare(null, createMatch(Dependent.class, "self", String.class)).call();
+        assertEquals(List.of("activate", "destroy"), calls);
+    }
+
+    /**
+     * A parameter producer that counts the resolvers it creates.
+     */
+    static class CountingProducer implements RestParameterProducer {
+
+        /**
+         * Stores the types of the parameters a resolver was created for.
+         */
+        final List<Type> types = new ArrayList<>();
+
+        @Override
+        public Object produce(FacesContext facesContext, RestMappingMatch restMappingMatch,
+                Class<?> parameterType, Annotation[] parameterAnnotations) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public RestParameterResolver getResolver(Class<?> parameterType, Type genericParameterType,
+                Annotation[] parameterAnnotations) {
+            types.add(genericParameterType);
+            String value = parameterType.getSimpleName();
+            return (facesContext, restMappingMatch) -> parameterType == String.class ? value : 1;
+        }
+    }
+
+    /**
+     * The bean the test methods are invoked on.
+     */
+    public static class TestBean {
+
+        /**
+         * A method that throws.
+         *
+         * @return never.
+         */
+        public String fail() {
+            throw new IllegalStateException();
+        }
+
+        /**
+         * A method without parameters.
+         *
+         * @return 'hello'.
+         */
+        public String hello() {
+            return "hello";
+        }
+
+        /**
+         * A method that returns the instance it is invoked on.
+         *
+         * @param value the string.
+         * @return this.
+         */
+        public Object self(String value) {
+            return this;
+        }
+
+        /**
+         * A method with parameters.
+         *
+         * @param value the string.
+         * @param number the number.
+         * @return the string and the type of the number.
+         */
+        public String join(String value, Integer number) {
+            return value + "-" + number.getClass().getSimpleName();
+        }
+    }
+
+    /**
+     * A pooled bean whose method returns a lazy result.
+     */
+    @RestPooled(2)
+    public static class PooledBean {
+
+        /**
+         * A method that returns a Stream of the instance it is invoked on.
+         *
+         * @return the Stream.
+         */
+        public Stream<Object> stream() {
+            return Stream.of(this);
+        }
+    }
+}
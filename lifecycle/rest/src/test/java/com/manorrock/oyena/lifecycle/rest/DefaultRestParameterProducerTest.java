@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.rest;
+
+import com.manorrock.oyena.lifecycle.common.ParameterConversionException;
+import jakarta.faces.context.ExternalContextWrapper;
+import jakarta.faces.context.FacesContext;
+import jakarta.servlet.http.HttpServletRequest;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the DefaultRestParameterProducer class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class DefaultRestParameterProducerTest {
+
+    /**
+     * Test getResolver method asking the binders with the generic type.
+     */
+    @Test
+    void testGetResolver() {
+        DefaultRestParameterProducer producer = new DefaultRestParameterProducer();
+        List<Type> types = new ArrayList<>();
+        RestStubs.set(producer, "binders", new RestParameterBinder[]{
+            (Class<?> parameterType, Type genericParameterType, Annotation[] parameterAnnotations) -> {
+                types.add(genericParameterType);
+                return parameterType == FacesContext.class ? null : (facesContext, restMappingMatch) -> null;
+            }
+        });
+        FacesContext facesContext = RestStubs.facesContext(null);
+        assertSame(facesContext, producer.getResolver(FacesContext.class, FacesContext.class, new Annotation[0])
+                .resolve(facesContext, null));
+        assertEquals(List.of(FacesContext.class), types);
+    }
+
+    /**
+     * Test getResolver method with a binder that resolves null for a
+     * primitive parameter.
+     */
+    @Test
+    void testGetResolver2() {
+        DefaultRestParameterProducer producer = new DefaultRestParameterProducer();
+        RestStubs.set(producer, "binders", new RestParameterBinder[]{
+            (parameterType, genericParameterType, parameterAnnotations) -> (facesContext, restMappingMatch) -> null
+        });
+        RestParameterResolver resolver = producer.getResolver(long.class, long.class, new Annotation[0]);
+        assertThrows(ParameterConversionException.class, () -> resolver.resolve(null, null));
+        assertNull(producer.getResolver(Long.class, Long.class, new Annotation[0]).resolve(null, null));
+    }
+
+    /**
+     * Test getResolver method with query parameters.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testGetResolver3() throws Exception {
+        DefaultRestParameterProducer producer = new DefaultRestParameterProducer();
+        RestStubs.set(producer, "binders", new RestParameterBinder[0]);
+        HttpServletRequest request = RestStubs.stub(HttpServletRequest.class, Map.of(
+                "getQueryString", arguments -> "name=J%FCrgen",
+                "getCharacterEncoding", arguments -> "ISO-8859-1",
+                "getContentType", arguments -> "multipart/form-data; boundary=x",
+                "getParameter", arguments -> "form-" + arguments[0]));
+        FacesContext facesContext = RestStubs.facesContext(new ExternalContextWrapper(null) {
+            @Override
+            public Object getRequest() {
+                return request;
+            }
+        });
+        Method method = TestBean.class.getMethod("query", String.class, String.class);
+        Annotation[][] annotations = method.getParameterAnnotations();
+        assertEquals("J\u00fcrgen", producer.getResolver(String.class, String.class, annotations[0])
+                .resolve(facesContext, null));
+        assertEquals("form-other", producer.getResolver(String.class, String.class, annotations[1])
+                .resolve(facesContext, null));
+    }
+
+    /**
+     * The bean with the parameters that are resolved.
+     */
+    public static class TestBean {
+
+        /**
+         * Take query parameters.
+         *
+         * @param name the name.
+         * @param other the other.
+         */
+        public void query(@RestQueryParameter("name") String name, @RestQueryParameter("other") String other) {
+        }
+    }
+}
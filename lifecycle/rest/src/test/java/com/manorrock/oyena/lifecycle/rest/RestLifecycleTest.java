@@ -0,0 +1,458 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.rest;
+
+import com.manorrock.oyena.lifecycle.common.FanOut;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.spi.Contextual;
+import jakarta.faces.FacesException;
+import jakarta.faces.context.ExternalContext;
+import jakarta.faces.context.ExternalContextWrapper;
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.context.FacesContextWrapper;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the RestLifecycle class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class RestLifecycleTest {
+
+    /**
+     * Stores whether the request is in asynchronous mode.
+     */
+    private volatile boolean asyncStarted;
+
+    /**
+     * Stores the async context that was created last.
+     */
+    private volatile AsyncContext asyncContext;
+
+    /**
+     * Stores the latch that is released when the request is completed.
+     */
+    private final CountDownLatch completed = new CountDownLatch(1);
+
+    /**
+     * Stores the HTTP method of the request.
+     */
+    private String method = "GET";
+
+    /**
+     * Stores the request attributes (shared by the dispatches).
+     */
+    private final Map<String, Object> requestMap = new HashMap<>();
+
+    /**
+     * Stores the latch that is released when the request is dispatched.
+     */
+    private final CountDownLatch dispatched = new CountDownLatch(1);
+
+    /**
+     * Stores the AsyncListeners that were added.
+     */
+    private final List<AsyncListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Stores the thread the method was executed on.
+     */
+    private volatile Thread executedOn;
+
+    /**
+     * Stores the timeout that was set on the async context.
+     */
+    private volatile Long timeout;
+
+    /**
+     * Create a lifecycle that executes on virtual threads.
+     *
+     * @param extension the REST extension.
+     * @param preparation the preparation that runs on the container thread.
+     * @param callable the callable that stands in for the method.
+     * @return the lifecycle.
+     * @throws Exception when a serious error occurs.
+     */
+    private RestLifecycle createLifecycle(RestExtension extension, Runnable preparation,
+            Callable<Object> callable) throws Exception {
+        RestRoute route = new RestRoute(RestStubs.bean(RestLifecycleTest.class, ApplicationScoped.class),
+                RestLifecycleTest.class.getDeclaredMethod("createFacesContext"), "/offload", null);
+        RestMappingMatch match = route.toMatch("/offload", null);
+        RestLifecycle lifecycle = new RestLifecycle();
+        RestStubs.set(lifecycle, "restExtension", extension);
+        RestStubs.set(lifecycle, "restMappingMatcher", (RestMappingMatcher) facesContext -> match);
+        RestStubs.set(lifecycle, "restMethodExecutor", new RestMethodExecutor() {
+            @Override
+            public Object execute(FacesContext facesContext, RestMappingMatch restMappingMatch) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Callable<Object> prepare(FacesContext facesContext, RestMappingMatch restMappingMatch) {
+                preparation.run();
+                return () -> {
+                    executedOn = Thread.currentThread();
+                    return callable.call();
+                };
+            }
+        });
+        return lifecycle;
+    }
+
+    /**
+     * Create the Faces context of a dispatch.
+     *
+     * @return the Faces context.
+     */
+    private FacesContext createFacesContext() {
+        HttpServletRequest[] request = new HttpServletRequest[1];
+        asyncContext = RestStubs.stub(AsyncContext.class, Map.of(
+                "addListener", arguments -> listeners.add((AsyncListener) arguments[0]),
+                "getRequest", arguments -> request[0],
+                "setTimeout", arguments -> timeout = (Long) arguments[0],
+                "complete", arguments -> {
+                    completed.countDown();
+                    return null;
+                },
+                "dispatch", arguments -> {
+                    dispatched.countDown();
+                    return null;
+                }));
+        request[0] = RestStubs.stub(HttpServletRequest.class, Map.of(
+                "getAsyncContext", arguments -> asyncContext,
+                "getMethod", arguments -> method,
+                "isAsyncStarted", arguments -> asyncStarted,
+                "isAsyncSupported", arguments -> true,
+                "startAsync", arguments -> asyncContext,
+                "setAttribute", arguments -> requestMap.put((String) arguments[0], arguments[1])));
+        ExternalContext externalContext = new ExternalContextWrapper(null) {
+            @Override
+            public String getInitParameter(String name) {
+                return switch (name) {
+                    case RestLifecycle.VIRTUAL_THREADS -> "true";
+                    case RestLifecycle.ASYNC_TIMEOUT -> "1500";
+                    default -> null;
+                };
+            }
+
+            @Override
+            public Object getRequest() {
+                return request[0];
+            }
+
+            @Override
+            public String getResponseContentType() {
+                return "text/plain";
+            }
+
+            @Override
+            public Map<String, Object> getRequestMap() {
+                return requestMap;
+            }
+        };
+        Map<Object, Object> attributes = new HashMap<>();
+        boolean[] responseComplete = new boolean[1];
+        return new FacesContextWrapper(null) {
+            @Override
+            public Map<Object, Object> getAttributes() {
+                return attributes;
+            }
+
+            @Override
+            public ExternalContext getExternalContext() {
+                return externalContext;
+            }
+
+            @Override
+            public boolean getResponseComplete() {
+                return responseComplete[0];
+            }
+
+            @Override
+            public void responseComplete() {
+                responseComplete[0] = true;
+            }
+        };
+    }
+
+    /**
+     * Test execute method handing the @RestRequestScoped instances to the
+     * virtual thread and back to the dispatch.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testExecute() throws Exception {
+        RestExtension extension = new RestExtension();
+        RestRequestContext requestContext = extension.getRequestContext();
+        @SuppressWarnings("unchecked")
+        Contextual<Object> contextual = RestStubs.stub(Contextual.class, Map.of(
+                "create", arguments -> new Object(),
+                "destroy", arguments -> null));
+        requestContext.getSlot(contextual);
+        Object[] prepared = new Object[1];
+        RestLifecycle lifecycle = createLifecycle(extension,
+                () -> prepared[0] = requestContext.get(contextual, RestStubs.creationalContext()),
+                () -> requestContext.get(contextual));
+
+        FacesContext facesContext = createFacesContext();
+        lifecycle.execute(facesContext);
+        assertTrue(facesContext.getResponseComplete());
+        assertFalse(requestContext.isActive());
+        assertTrue(dispatched.await(5, TimeUnit.SECONDS));
+        assertTrue(executedOn.isVirtual());
+        assertEquals(1500L, timeout);
+
+        FacesContext dispatchContext = createFacesContext();
+        lifecycle.execute(dispatchContext);
+        assertSame(prepared[0], dispatchContext.getAttributes().get(
+                RestLifecycle.class.getPackage().getName() + ".RestResult"));
+        assertSame(prepared[0], requestContext.get(contextual));
+        requestContext.deactivate();
+    }
+
+    /**
+     * Test execute method with a method that fails with an Error on the
+     * virtual thread.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testExecute2() throws Exception {
+        Error error = new StackOverflowError();
+        RestLifecycle lifecycle = createLifecycle(new RestExtension(), () -> {
+        }, () -> {
+            throw error;
+        });
+        lifecycle.execute(createFacesContext());
+        assertTrue(dispatched.await(5, TimeUnit.SECONDS));
+        FacesException exception = assertThrows(FacesException.class,
+                () -> lifecycle.execute(createFacesContext()));
+        assertSame(error, exception.getCause());
+    }
+
+    /**
+     * Create a lifecycle with a method that forks a task and waits for it.
+     *
+     * @param fanOut the fan-out of the request.
+     * @param destroyed the latch released when the @RestRequestScoped
+     * instance is destroyed.
+     * @param forked the latch released when the task is forked.
+     * @return the lifecycle.
+     * @throws Exception when a serious error occurs.
+     */
+    private RestLifecycle createForkingLifecycle(FanOut fanOut, CountDownLatch destroyed,
+            CountDownLatch forked) throws Exception {
+        RestExtension extension = new RestExtension();
+        RestRequestContext requestContext = extension.getRequestContext();
+        @SuppressWarnings("unchecked")
+        Contextual<Object> contextual = RestStubs.stub(Contextual.class, Map.of(
+                "create", arguments -> new Object(),
+                "destroy", arguments -> {
+                    destroyed.countDown();
+                    return null;
+                }));
+        requestContext.getSlot(contextual);
+        return createLifecycle(extension, () -> {
+            requestContext.setFanOut(fanOut);
+            requestContext.get(contextual, RestStubs.creationalContext());
+        }, () -> {
+            FanOut.Task<Object> task = fanOut.fork("backend", () -> {
+                new CountDownLatch(1).await();
+                return null;
+            });
+            forked.countDown();
+            return task.join();
+        });
+    }
+
+    /**
+     * Test execute method abandoning an offloaded method when the client
+     * disconnects.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testExecute3() throws Exception {
+        FanOut fanOut = new FanOut();
+        CountDownLatch destroyed = new CountDownLatch(1);
+        CountDownLatch forked = new CountDownLatch(1);
+        RestLifecycle lifecycle = createForkingLifecycle(fanOut, destroyed, forked);
+        lifecycle.execute(createFacesContext());
+        assertTrue(forked.await(5, TimeUnit.SECONDS));
+        AsyncEvent event = new AsyncEvent(asyncContext, null, null);
+        for (AsyncListener listener : listeners) {
+            listener.onError(event);
+        }
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertTrue(destroyed.await(5, TimeUnit.SECONDS));
+        assertTrue(fanOut.getTasks().get(0).isDone());
+        assertEquals(1, dispatched.getCount());
+    }
+
+    /**
+     * Test execute method answering an offloaded method that times out with
+     * a 503.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testExecute4() throws Exception {
+        CountDownLatch destroyed = new CountDownLatch(1);
+        CountDownLatch forked = new CountDownLatch(1);
+        RestLifecycle lifecycle = createForkingLifecycle(new FanOut(), destroyed, forked);
+        lifecycle.execute(createFacesContext());
+        assertTrue(forked.await(5, TimeUnit.SECONDS));
+        List<Object> errors = new CopyOnWriteArrayList<>();
+        HttpServletResponse response = RestStubs.stub(HttpServletResponse.class, Map.of(
+                "isCommitted", arguments -> false,
+                "sendError", arguments -> errors.add(arguments[0])));
+        AsyncEvent event = new AsyncEvent(asyncContext, null, response);
+        for (AsyncListener listener : listeners) {
+            listener.onTimeout(event);
+            listener.onError(event);
+        }
+        assertEquals(List.of(503), errors);
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertTrue(destroyed.await(5, TimeUnit.SECONDS));
+        assertEquals(1, dispatched.getCount());
+    }
+
+    /**
+     * Test execute method abandoning an offloaded method that does not use
+     * @RestRequestScoped beans.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testExecute5() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        RestLifecycle lifecycle = createLifecycle(new RestExtension(), () -> {
+        }, () -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException ie) {
+                interrupted.countDown();
+            }
+            return null;
+        });
+        lifecycle.execute(createFacesContext());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        AsyncEvent event = new AsyncEvent(asyncContext, null, null);
+        for (AsyncListener listener : listeners) {
+            listener.onError(event);
+        }
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        executedOn.join(5000);
+        assertEquals(1, dispatched.getCount());
+    }
+
+    /**
+     * Test render method closing the result of a HEAD request.
+     */
+    @Test
+    void testRender() {
+        boolean[] closed = new boolean[1];
+        RestLifecycle lifecycle = new RestLifecycle();
+        RestStubs.set(lifecycle, "restExtension", new RestExtension());
+        method = "HEAD";
+        FacesContext facesContext = createFacesContext();
+        facesContext.getAttributes().put(RestLifecycle.class.getPackage().getName() + ".RestResult",
+                Stream.of("a").onClose(() -> closed[0] = true));
+        lifecycle.render(facesContext);
+        assertTrue(closed[0]);
+        assertTrue(facesContext.getAttributes().isEmpty());
+    }
+
+    /**
+     * Test render method closing the result after a writer that does not.
+     */
+    @Test
+    void testRender2() {
+        List<String> calls = new CopyOnWriteArrayList<>();
+        RestLifecycle lifecycle = new RestLifecycle();
+        RestStubs.set(lifecycle, "restExtension", new RestExtension());
+        RestStubs.set(lifecycle, "restResponseMatcher", (RestResponseMatcher) responseContentType
+                -> facesContext -> calls.add("write " + responseContentType));
+        FacesContext facesContext = createFacesContext();
+        facesContext.getAttributes().put(RestLifecycle.class.getPackage().getName() + ".RestResult",
+                Stream.of("a").onClose(() -> calls.add("close")));
+        lifecycle.render(facesContext);
+        assertEquals(List.of("write text/plain", "close"), calls);
+    }
+
+    /**
+     * Test render method keeping the @RestRequestScoped instances until the
+     * asynchronous response is complete.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testRender3() throws Exception {
+        RestExtension extension = new RestExtension();
+        RestRequestContext requestContext = extension.getRequestContext();
+        List<Object> destroyed = new CopyOnWriteArrayList<>();
+        @SuppressWarnings("unchecked")
+        Contextual<Object> contextual = RestStubs.stub(Contextual.class, Map.of(
+                "create", arguments -> new Object(),
+                "destroy", arguments -> destroyed.add(arguments[0])));
+        requestContext.getSlot(contextual);
+        requestContext.activate();
+        Object instance = requestContext.get(contextual, RestStubs.creationalContext());
+        RestLifecycle lifecycle = new RestLifecycle();
+        RestStubs.set(lifecycle, "restExtension", extension);
+        RestStubs.set(lifecycle, "restResponseMatcher", (RestResponseMatcher) responseContentType
+                -> facesContext -> asyncStarted = true);
+        lifecycle.render(createFacesContext());
+        assertFalse(requestContext.isActive());
+        assertTrue(destroyed.isEmpty());
+        assertEquals(1, listeners.size());
+        listeners.get(0).onComplete(new AsyncEvent(asyncContext, null, null));
+        assertEquals(List.of(instance), destroyed);
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.rest;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the RestPublisherWriter class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class RestPublisherWriterTest {
+
+    /**
+     * Stores the async listener.
+     */
+    private AsyncListener asyncListener;
+
+    /**
+     * Stores whether the subscription was cancelled.
+     */
+    private boolean cancelled;
+
+    /**
+     * Stores whether the asynchronous request was completed.
+     */
+    private boolean completed;
+
+    /**
+     * Stores the bytes written to the output stream.
+     */
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    /**
+     * Stores whether the output stream is ready.
+     */
+    private boolean ready = true;
+
+    /**
+     * Stores the number of items requested.
+     */
+    private long requested;
+
+    /**
+     * Stores the subscriber.
+     */
+    private Flow.Subscriber<? super Object> subscriber;
+
+    /**
+     * Stores the write listener.
+     */
+    private WriteListener writeListener;
+
+    /**
+     * Create and start a writer.
+     *
+     * @param ndjson whether to write newline delimited JSON.
+     * @throws IOException when an I/O error occurs.
+     */
+    private void start(boolean ndjson) throws IOException {
+        ServletOutputStream outputStream = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return ready;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+                writeListener = listener;
+            }
+
+            @Override
+            public void write(int b) {
+                output.write(b);
+            }
+        };
+        ServletContext servletContext = RestStubs.stub(ServletContext.class, Map.of(
+                "log", arguments -> null));
+        HttpServletRequest request = RestStubs.stub(HttpServletRequest.class, Map.of(
+                "getServletContext", arguments -> servletContext));
+        HttpServletResponse response = RestStubs.stub(HttpServletResponse.class, Map.of(
+                "getOutputStream", arguments -> outputStream,
+                "isCommitted", arguments -> true));
+        AsyncContext asyncContext = RestStubs.stub(AsyncContext.class, Map.of(
+                "addListener", arguments -> asyncListener = (AsyncListener) arguments[0],
+                "complete", arguments -> completed = true,
+                "getRequest", arguments -> request,
+                "getResponse", arguments -> response));
+        Jsonb jsonb = RestStubs.stub(Jsonb.class, Map.of(
+                "toJson", arguments -> {
+                    try {
+                        ((OutputStream) arguments[1]).write(
+                                ("\"" + arguments[0] + "\"").getBytes(StandardCharsets.UTF_8));
+                    } catch (IOException ioe) {
+                        throw new UncheckedIOException(ioe);
+                    }
+                    return null;
+                }));
+        new RestPublisherWriter(asyncContext, jsonb, ndjson).start(subscriber -> {
+            this.subscriber = subscriber;
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    requested += n;
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        });
+    }
+
+    /**
+     * Get what was written so far.
+     *
+     * @return the written text.
+     */
+    private String written() {
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Test start method only requesting an item when the output stream is
+     * ready for it.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testStart() throws Exception {
+        start(false);
+        assertEquals("[", written());
+        assertEquals(1, requested);
+
+        subscriber.onNext("a");
+        assertEquals("[\"a\"", written());
+        assertEquals(2, requested);
+
+        ready = false;
+        subscriber.onNext("b");
+        assertEquals("[\"a\"", written());
+        assertEquals(2, requested);
+        writeListener.onWritePossible();
+        assertEquals("[\"a\"", written());
+        assertEquals(2, requested);
+
+        ready = true;
+        writeListener.onWritePossible();
+        assertEquals("[\"a\",\"b\"", written());
+        assertEquals(3, requested);
+
+        subscriber.onComplete();
+        assertEquals("[\"a\",\"b\"]", written());
+        assertTrue(completed);
+        asyncListener.onComplete(null);
+        assertFalse(cancelled);
+    }
+
+    /**
+     * Test start method with newline delimited JSON.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testStart2() throws Exception {
+        ready = false;
+        start(true);
+        assertEquals(0, requested);
+        ready = true;
+        writeListener.onWritePossible();
+        assertEquals(1, requested);
+        subscriber.onNext("a");
+        subscriber.onComplete();
+        assertEquals("\"a\"\n", written());
+        assertTrue(completed);
+    }
+
+    /**
+     * Test start method cancelling the subscription when the client goes away.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testStart3() throws Exception {
+        start(false);
+        writeListener.onError(new IOException("Client disconnected"));
+        assertTrue(cancelled);
+        assertTrue(completed);
+        subscriber.onNext("a");
+        assertEquals("[", written());
+        assertEquals(1, requested);
+    }
+
+    /**
+     * Test start method cancelling the subscription when the asynchronous
+     * request fails.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testStart4() throws Exception {
+        start(false);
+        asyncListener.onError(null);
+        assertTrue(cancelled);
+        subscriber.onNext("a");
+        assertEquals("[", written());
+        assertEquals(1, requested);
+        assertFalse(completed);
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.rest;
+
+import com.manorrock.oyena.lifecycle.common.RegexEngine;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the RestRouteTable class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class RestRouteTableTest {
+
+    /**
+     * Create a route table.
+     *
+     * <p>
+     *  Each route is given as a triple of HTTP method (null for any), REST path
+     *  and the name of the method of this class to invoke.
+     * </p>
+     *
+     * @param routes the routes.
+     * @return the route table.
+     */
+    private static RestRouteTable createTable(String... routes) {
+        List<RestRoute> list = new ArrayList<>();
+        for (int i = 0; i < routes.length; i += 3) {
+            try {
+                list.add(new RestRoute(null, RestRouteTableTest.class.getDeclaredMethod(routes[i + 2]),
+                        routes[i + 1], routes[i]));
+            } catch (NoSuchMethodException nsme) {
+                throw new IllegalStateException(nsme);
+            }
+        }
+        return new RestRouteTable(list, RegexEngine.JAVA, 0, 0);
+    }
+
+    /**
+     * The method used for routes that accept any HTTP method.
+     *
+     * @return the result.
+     */
+    String any() {
+        return "any";
+    }
+
+    /**
+     * The method used for GET routes.
+     *
+     * @return the result.
+     */
+    String get() {
+        return "get";
+    }
+
+    /**
+     * The method used for POST routes.
+     *
+     * @return the result.
+     */
+    String post() {
+        return "post";
+    }
+
+    /**
+     * Test getAllowedMethods method.
+     */
+    @Test
+    void testGetAllowedMethods() {
+        RestRouteTable table = createTable(
+                "GET", "/orders", "get",
+                "POST", "/orders", "post",
+                "POST", "/carts", "post");
+        assertEquals(List.of("GET", "HEAD", "OPTIONS", "POST"),
+                List.copyOf(table.getAllowedMethods("/orders")));
+        assertEquals(Set.of("OPTIONS", "POST"), table.getAllowedMethods("/carts"));
+        assertEquals(Set.of(), table.getAllowedMethods("/none"));
+        assertEquals(Set.of(), table.getAllowedMethods(null));
+    }
+
+    /**
+     * Test match method.
+     */
+    @Test
+    void testMatch() {
+        RestRouteTable table = createTable(
+                "GET", "/orders", "get",
+                "POST", "/orders", "post",
+                null, "/ping", "any");
+        assertEquals("get", table.match("GET", "/orders").getMethod().getName());
+        assertEquals("post", table.match("POST", "/orders").getMethod().getName());
+        assertNull(table.match("DELETE", "/orders"));
+        assertEquals("any", table.match("GET", "/ping").getMethod().getName());
+        assertEquals("any", table.match("DELETE", "/ping").getMethod().getName());
+        assertNull(table.match("GET", "/none"));
+        assertNull(table.match("GET", null));
+    }
+
+    /**
+     * Test match method falling back to the GET routes for a HEAD request.
+     */
+    @Test
+    void testMatch3() {
+        RestRouteTable table = createTable(
+                "GET", "/orders", "get",
+                "POST", "/carts", "post");
+        assertEquals("get", table.match("HEAD", "/orders").getMethod().getName());
+        assertNull(table.match("HEAD", "/carts"));
+        assertNull(table.match("OPTIONS", "/orders"));
+    }
+
+    /**
+     * Test match method picking the longest REST path.
+     */
+    @Test
+    void testMatch2() {
+        RestRouteTable table = createTable(
+                "GET", "/users/{id:long}", "get",
+                null, "/users/.*", "any",
+                null, "/users/(?<name>[a-z]+)/orders", "post");
+        RestMappingMatch match = table.match("GET", "/users/42");
+        assertEquals("get", match.getMethod().getName());
+        assertEquals(Map.of("id", "42"), match.getPathParameters());
+        assertEquals("any", table.match("GET", "/users/abc").getMethod().getName());
+        match = table.match("GET", "/users/bob/orders");
+        assertEquals("post", match.getMethod().getName());
+        assertEquals(Map.of("name", "bob"), match.getPathParameters());
+        assertEquals("any", table.match("PUT", "/users/42").getMethod().getName());
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2002-2023 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice, 
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its 
+ *      contributors may be used to endorse or promote products derived from this
+ *      software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.manorrock.oyena.lifecycle.rest;
+
+import jakarta.enterprise.context.spi.CreationalContext;
+import jakarta.enterprise.inject.Instance;
+import jakarta.enterprise.inject.spi.Bean;
+import jakarta.faces.context.ExternalContext;
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.context.FacesContextWrapper;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The stubs used by the JUnit tests of the REST lifecycle.
+ *
+ * <p>
+ *  No CDI container or mocking library is available to the tests, so the
+ *  container interfaces are stubbed with dynamic proxies.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+final class RestStubs {
+
+    /**
+     * Constructor.
+     */
+    private RestStubs() {
+    }
+
+    /**
+     * Create a stub of an interface.
+     *
+     * <p>
+     *  The methods are looked up by name. A method that is not given throws
+     *  an UnsupportedOperationException, except for the methods of Object.
+     * </p>
+     *
+     * @param <T> the type.
+     * @param type the interface.
+     * @param methods the implementations of the methods by name.
+     * @return the stub.
+     */
+    static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+        return type.cast(Proxy.newProxyInstance(RestStubs.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, arguments) -> {
+                    Function<Object[], Object> function = methods.get(method.getName());
+                    if (function != null) {
+                        return function.apply(arguments);
+                    }
+                    return switch (method.getName()) {
+                        case "equals" -> proxy == arguments[0];
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "toString" -> type.getSimpleName() + " stub";
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    };
+                }));
+    }
+
+    /**
+     * Create a bean.
+     *
+     * @param beanClass the bean class.
+     * @param scope the scope.
+     * @return the bean.
+     */
+    @SuppressWarnings("unchecked")
+    static Bean<Object> bean(Class<?> beanClass, Class<?> scope) {
+        return stub(Bean.class, Map.of(
+                "getBeanClass", arguments -> beanClass,
+                "getScope", arguments -> scope,
+                "create", arguments -> newInstance(beanClass),
+                "destroy", arguments -> null));
+    }
+
+    /**
+     * Create an Instance that creates a new instance for every handle.
+     *
+     * @param factory the factory of the instances.
+     * @param destroyed the list the destroyed instances are added to.
+     * @return the Instance.
+     */
+    @SuppressWarnings("unchecked")
+    static Instance<Object> instance(Supplier<Object> factory, List<Object> destroyed) {
+        AtomicReference<Instance<Object>> self = new AtomicReference<>();
+        self.set(stub(Instance.class, Map.of(
+                "select", arguments -> self.get(),
+                "get", arguments -> factory.get(),
+                "getHandle", arguments -> {
+                    Object value = factory.get();
+                    return stub(Instance.Handle.class, Map.of(
+                            "get", handleArguments -> value,
+                            "destroy", handleArguments -> destroyed.add(value)));
+                })));
+        return self.get();
+    }
+
+    /**
+     * Create a creational context.
+     *
+     * @param <T> the type.
+     * @return the creational context.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> CreationalContext<T> creationalContext() {
+        return stub(CreationalContext.class, Map.of(
+                "push", arguments -> null,
+                "release", arguments -> null));
+    }
+
+    /**
+     * Create a Faces context with only an external context.
+     *
+     * @param externalContext the external context.
+     * @return the Faces context.
+     */
+    static FacesContext facesContext(ExternalContext externalContext) {
+        return new FacesContextWrapper(null) {
+            @Override
+            public ExternalContext getExternalContext() {
+                return externalContext;
+            }
+        };
+    }
+
+    /**
+     * Create a new instance of a class.
+     *
+     * @param type the class.
+     * @return the instance.
+     */
+    static Object newInstance(Class<?> type) {
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException roe) {
+            throw new IllegalStateException(roe);
+        }
+    }
+
+    /**
+     * Set a (private) field.
+     *
+     * @param target the target.
+     * @param name the name of the field.
+     * @param value the value.
+     */
+    static void set(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException roe) {
+            throw new IllegalStateException(roe);
+        }
+    }
+}
@@ -83,4 +83,15 @@ public class RestBean implements Serializable {
     public String pathParameter(@RestPathParameter("path") String path) {
         return path;
     }
+
+    /**
+     * Test the @RestPath annotation with a path template.
+     *
+     * @param id the id.
+     * @return the id.
+     */
+    @RestPath("/users/{id:long}")
+    public String user(@RestPathParameter("id") long id) {
+        return String.valueOf(id);
+    }
 }